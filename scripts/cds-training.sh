@@ -0,0 +1,35 @@
+#!/bin/bash
+
+# Gera o arquivo AppCDS (Class Data Sharing) do serviço a partir de uma execução de treino.
+#
+# Recebe o jar fino do perfil fast-startup (target/app/microservice-template-1.0.0-app.jar, com lib/ ao lado) e
+# sobe a aplicação até o fim do refresh do contexto (spring.context.exit=onRefresh) com -XX:ArchiveClassesAtExit:
+# as classes carregadas até ali vão para app.jsa, no mesmo diretório do jar. O treino precisa do PostgreSQL de
+# spring.datasource.* (Flyway e as cargas iniciais rodam no refresh); Kafka e Redis não são contatados.
+#
+# O arquivo só vale para a mesma JVM e o mesmo caminho do jar; a execução deve usar:
+#   java -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true -jar <jar>
+# Se não bater, a JVM avisa e sobe sem o arquivo.
+#
+# Uso: scripts/cds-training.sh <jar> [opções extras da JVM para o treino]
+
+set -e
+
+if [ $# -lt 1 ]; then
+    echo "Uso: $0 <jar> [opções da JVM]" >&2
+    exit 1
+fi
+
+JAR="$1"
+shift
+ARCHIVE="$(dirname "$JAR")/app.jsa"
+
+rm -f "$ARCHIVE"
+echo "Treino CDS: $JAR"
+java -XX:ArchiveClassesAtExit="$ARCHIVE" \
+     -Dspring.context.exit=onRefresh \
+     -Dspring.aot.enabled=true \
+     "$@" \
+     -jar "$JAR"
+
+echo "Arquivo CDS gerado: $ARCHIVE ($(du -h "$ARCHIVE" | cut -f1))"
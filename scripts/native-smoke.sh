@@ -0,0 +1,135 @@
+#!/bin/bash
+
+# Smoke test do executável nativo (perfil Maven native) contra as dependências locais do docker-compose.
+#
+# Sobe PostgreSQL, Redis, Zookeeper e Kafka (docker-compose.yml), inicia o binário apontando para eles e verifica
+# os caminhos que dependem de metadados de reflexão/recursos na imagem nativa:
+#   - /actuator/health UP (Hibernate, Flyway, Hikari, Redis e o consumidor Kafka subiram);
+#   - REST sem token e com token malformado -> 401 com invalid_token (decodificador JWT);
+#   - handshake WebSocket com token malformado -> 401, nunca 500;
+#   - evento user.created publicado no Kafka vira linha em notifications (JSON -> DistriSchoolEvent -> entidade JPA).
+# No fim mostra o tempo até "ready" (log de StartupTimings) e o RSS do processo.
+# Tokens válidos não são testados: o emissor é o Auth0 (JWKS via HTTPS), fora do ambiente local.
+#
+# Uso: scripts/native-smoke.sh [binário]   (padrão: target/notifications-service)
+
+set -e
+
+BINARY="${1:-target/notifications-service}"
+PORT="${SERVER_PORT:-8080}"
+BASE_URL="http://localhost:$PORT"
+LOG_FILE="target/native-smoke.log"
+DB_NAME="distrischool_template"
+DB_PASSWORD="${POSTGRES_PASSWORD:-distrischool123}"
+TOPIC="distrischool.auth.user.created"
+EVENT_ID="native-smoke-$(date +%s)"
+FAILURES=0
+
+if [ ! -x "$BINARY" ]; then
+    echo "❌ Binário nativo não encontrado: $BINARY"
+    echo "   Gere com: ./mvnw -Pnative native:compile -DskipTests"
+    exit 1
+fi
+
+check() {
+    local description="$1" expected="$2" actual="$3"
+    if [ "$actual" == "$expected" ]; then
+        echo "   ✅ $description ($actual)"
+    else
+        echo "   ❌ $description: esperado $expected, obtido $actual"
+        FAILURES=$((FAILURES + 1))
+    fi
+}
+
+echo "🐳 Subindo dependências locais..."
+POSTGRES_PASSWORD="$DB_PASSWORD" docker compose up -d postgres redis zookeeper kafka
+for i in $(seq 1 30); do
+    docker exec postgres pg_isready -U distrischool -d "$DB_NAME" > /dev/null 2>&1 && break
+    sleep 1
+done
+
+echo "🚀 Iniciando $BINARY (log em $LOG_FILE)..."
+mkdir -p "$(dirname "$LOG_FILE")"
+SERVER_PORT="$PORT" \
+SPRING_DATASOURCE_URL="jdbc:postgresql://localhost:5442/$DB_NAME" \
+SPRING_DATASOURCE_USERNAME=distrischool \
+SPRING_DATASOURCE_PASSWORD="$DB_PASSWORD" \
+SPRING_REDIS_HOST=localhost \
+SPRING_REDIS_PORT=6389 \
+KAFKA_BOOTSTRAP_SERVERS=localhost:9092 \
+"$BINARY" > "$LOG_FILE" 2>&1 &
+APP_PID=$!
+trap 'kill $APP_PID 2> /dev/null || true' EXIT
+
+echo ""
+echo "1️⃣  Health"
+HEALTH=""
+for i in $(seq 1 60); do
+    HEALTH=$(curl -s "$BASE_URL/actuator/health" || true)
+    [[ "$HEALTH" == *'"UP"'* ]] && break
+    kill -0 $APP_PID 2> /dev/null || break
+    sleep 0.5
+done
+if [[ "$HEALTH" == *'"UP"'* ]]; then
+    echo "   ✅ /actuator/health UP"
+else
+    echo "   ❌ O serviço não ficou UP. Últimas linhas do log:"
+    tail -30 "$LOG_FILE"
+    exit 1
+fi
+
+echo ""
+echo "2️⃣  Decodificador JWT (REST)"
+STATUS=$(curl -s -o /dev/null -w "%{http_code}" "$BASE_URL/api/v1/notifications")
+check "GET /api/v1/notifications sem token" 401 "$STATUS"
+CHALLENGE=$(curl -s -o /dev/null -D - -H "Authorization: Bearer not.a.jwt" "$BASE_URL/api/v1/notifications" \
+    | grep -i "^WWW-Authenticate" || true)
+if [[ "$CHALLENGE" == *"invalid_token"* ]]; then
+    echo "   ✅ Token malformado rejeitado com invalid_token"
+else
+    echo "   ❌ Token malformado: WWW-Authenticate inesperado: $CHALLENGE"
+    FAILURES=$((FAILURES + 1))
+fi
+
+echo ""
+echo "3️⃣  Handshake WebSocket"
+STATUS=$(curl -s -o /dev/null -w "%{http_code}" --max-time 5 \
+    -H "Connection: Upgrade" -H "Upgrade: websocket" \
+    -H "Sec-WebSocket-Version: 13" -H "Sec-WebSocket-Key: c21va2UtdGVzdC1rZXkxMg==" \
+    "$BASE_URL/ws/notifications?token=not.a.jwt")
+check "/ws/notifications com token malformado" 401 "$STATUS"
+
+echo ""
+echo "4️⃣  Kafka -> PostgreSQL"
+EVENT=$(cat <<EOF
+{"eventId":"$EVENT_ID","eventType":"user.created","source":"auth-service","version":"1.0","timestamp":"$(date -u +"%Y-%m-%dT%H:%M:%S")","data":{"userId":"$EVENT_ID","userName":"Native Smoke","userEmail":"$EVENT_ID@example.com","userRole":"STUDENT"}}
+EOF
+)
+# O consumidor começa no offset mais recente: reenvia o mesmo evento até ele chegar (o eventId deduplica)
+COUNT=0
+for i in $(seq 1 15); do
+    docker exec -i kafka kafka-console-producer --bootstrap-server localhost:9092 --topic "$TOPIC" \
+        <<< "$EVENT" > /dev/null 2>&1 || true
+    sleep 2
+    COUNT=$(docker exec postgres psql -U distrischool -d "$DB_NAME" -tAc \
+        "SELECT COUNT(*) FROM notifications WHERE event_id = '$EVENT_ID'" 2> /dev/null || echo 0)
+    [ "$COUNT" == "1" ] && break
+done
+check "Notificação gravada para $EVENT_ID" 1 "$COUNT"
+
+echo ""
+echo "📊 Resultado"
+READY=$(grep -o "Startup: ready [0-9]* ms" "$LOG_FILE" | head -1 || true)
+echo "   ${READY:-Startup: ready não encontrado no log}"
+echo "   RSS: $(grep VmRSS /proc/$APP_PID/status 2> /dev/null | awk '{print $2 " " $3}')"
+if grep -q "ClassNotFoundException\|NoSuchMethodException\|MissingReflectionRegistrationError\|UnsatisfiedLinkError" "$LOG_FILE"; then
+    echo "   ⚠️  O log tem erros de metadados da imagem nativa:"
+    grep -m 5 "ClassNotFoundException\|NoSuchMethodException\|MissingReflectionRegistrationError\|UnsatisfiedLinkError" "$LOG_FILE"
+    FAILURES=$((FAILURES + 1))
+fi
+
+if [ $FAILURES -gt 0 ]; then
+    echo "❌ $FAILURES verificação(ões) falharam (log: $LOG_FILE)"
+    exit 1
+fi
+echo "✅ Smoke test nativo OK"
@@ -0,0 +1,188 @@
+package com.distrischool.benchmark;
+
+import com.distrischool.notifications.entity.Notification;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.service.NotificationBackpressure;
+import com.distrischool.notifications.service.NotificationSnapshotCache;
+import com.distrischool.notifications.websocket.WebSocketAdmission;
+import com.distrischool.notifications.websocket.WebSocketHeartbeat;
+import com.distrischool.notifications.websocket.WebSocketRateLimiter;
+import com.distrischool.template.kafka.DistriSchoolEvent;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Realistic payloads and offline collaborators shared by the JMH benchmarks.
+ *
+ * SMALL mirrors a user.created event from the auth service (~400 bytes of JSON),
+ * LARGE mirrors a teacher.created event carrying subjects, classes and a biography (~6 KB).
+ */
+public final class BenchmarkFixtures {
+
+    public enum PayloadSize {
+        SMALL,
+        LARGE
+    }
+
+    /**
+     * Tenant of the fixture events, notifications and simulated sessions.
+     */
+    public static final String TENANT = "escola-municipal-centro";
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2026, 3, 2, 7, 45, 12, 345_000_000);
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * ObjectMapper configured like the application one (see spring.jackson in application.yml).
+     */
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+
+    public static NotificationMetrics metrics() {
+        return new NotificationMetrics(new SimpleMeterRegistry());
+    }
+
+    /**
+     * Backpressure that only counts; there is no listener container to pause in a benchmark.
+     */
+    public static NotificationBackpressure backpressure(NotificationMetrics metrics) {
+        return new NotificationBackpressure(new StaticListableBeanFactory().getBeanProvider(KafkaListenerEndpointRegistry.class),
+                metrics, false, 1000, 500);
+    }
+
+    /**
+     * Admission with the default connection cap, which benchmark session counts stay below.
+     */
+    public static WebSocketAdmission admission(NotificationMetrics metrics) {
+        return new WebSocketAdmission(metrics, 10_000, 10);
+    }
+
+    public static WebSocketRateLimiter rateLimiter(NotificationMetrics metrics) {
+        return new WebSocketRateLimiter(metrics, 5, 10, 20, 40, 1024, 100);
+    }
+
+    /**
+     * A snapshot cache that is never loaded, so welcomes carry no snapshot.
+     */
+    public static NotificationSnapshotCache snapshotCache(ObjectMapper objectMapper) {
+        return new NotificationSnapshotCache(null, null, null, null, objectMapper, 20);
+    }
+
+    /**
+     * A heartbeat that never fires within a benchmark run.
+     */
+    public static WebSocketHeartbeat idleHeartbeat(NotificationMetrics metrics) {
+        return new WebSocketHeartbeat(metrics, TimeUnit.HOURS.toMillis(1), TimeUnit.HOURS.toMillis(2));
+    }
+
+    /**
+     * Event as delivered by the Kafka JsonDeserializer (plain maps, timestamp as ISO string).
+     */
+    public static Map<String, Object> eventMap(PayloadSize size) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("eventId", "0b6f1c1e-7f0a-4d53-9a57-3d1f5b0a9c" + (size == PayloadSize.SMALL ? "01" : "02"));
+        event.put("eventType", size == PayloadSize.SMALL ? "user.created" : "teacher.created");
+        event.put("source", size == PayloadSize.SMALL ? "auth-service" : "teacher-service");
+        event.put("version", "1.0");
+        event.put("timestamp", TIMESTAMP.toString());
+        event.put("data", data(size));
+        event.put("metadata", metadata());
+        return event;
+    }
+
+    private static Map<String, Object> metadata() {
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("correlationId", "c7d4e8a2-51b6-4f0e-8d0c-2a9e6b3f1d44");
+        metadata.put("schoolId", TENANT);
+        metadata.put("origin", "bulk-import");
+        return metadata;
+    }
+
+    public static DistriSchoolEvent event(PayloadSize size) {
+        Map<String, Object> map = eventMap(size);
+        DistriSchoolEvent event = new DistriSchoolEvent();
+        event.setEventId((String) map.get("eventId"));
+        event.setEventType((String) map.get("eventType"));
+        event.setSource((String) map.get("source"));
+        event.setVersion("1.0");
+        event.setTimestamp(TIMESTAMP);
+        event.setData(data(size));
+        event.setMetadata(metadata());
+        return event;
+    }
+
+    public static Notification notification(PayloadSize size, ObjectMapper objectMapper) {
+        try {
+            return Notification.builder()
+                    .id(184_467L)
+                    .tenantId(TENANT)
+                    .eventId((String) eventMap(size).get("eventId"))
+                    .eventType(size == PayloadSize.SMALL ? "user.created" : "teacher.created")
+                    .title(size == PayloadSize.SMALL ? "Novo Usuário Criado" : "Novo Professor Criado")
+                    .message(size == PayloadSize.SMALL
+                            ? "Usuário Maria Eduarda Albuquerque criado com sucesso"
+                            : "Professor João Carlos Nascimento cadastrado")
+                    .data(objectMapper.writeValueAsString(data(size)))
+                    .timestamp(TIMESTAMP)
+                    .createdAt(TIMESTAMP)
+                    .updatedAt(TIMESTAMP)
+                    .build();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, Object> data(PayloadSize size) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        if (size == PayloadSize.SMALL) {
+            data.put("userId", "auth0|65f1c2d3e4a5b6c7d8e9f012");
+            data.put("userName", "Maria Eduarda Albuquerque");
+            data.put("userEmail", "maria.albuquerque@escola.distrischool.com");
+            data.put("firstName", "Maria Eduarda");
+            data.put("lastName", "Albuquerque");
+            data.put("role", "STUDENT");
+            data.put("enrollment", "2026-0001847");
+            return data;
+        }
+        data.put("teacherId", "7a1d9e44-2b3c-4d5e-8f90-112233445566");
+        data.put("teacherName", "João Carlos Nascimento");
+        data.put("teacherEmail", "joao.nascimento@escola.distrischool.com");
+        data.put("department", "Ciências Exatas");
+        List<Map<String, Object>> subjects = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Map<String, Object> subject = new LinkedHashMap<>();
+            subject.put("code", "MAT-" + (100 + i));
+            subject.put("name", "Matemática Aplicada " + i);
+            subject.put("workload", 60 + i);
+            subject.put("classes", List.of("1A", "1B", "2A", "3C"));
+            subjects.add(subject);
+        }
+        data.put("subjects", subjects);
+        Map<String, Object> address = new LinkedHashMap<>();
+        address.put("street", "Rua das Acácias, 1234");
+        address.put("city", "Belo Horizonte");
+        address.put("state", "MG");
+        address.put("zip", "30140-071");
+        data.put("address", address);
+        data.put("bio", "Professor de matemática com mais de quinze anos de experiência no ensino médio. ".repeat(30));
+        return data;
+    }
+}
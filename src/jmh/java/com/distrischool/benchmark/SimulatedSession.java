@@ -0,0 +1,128 @@
+package com.distrischool.benchmark;
+
+import com.distrischool.notifications.service.TenantResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory {@link WebSocketSession} whose {@link #sendMessage} blocks for a fixed time,
+ * standing in for a socket write to a client on a slow network.
+ */
+public class SimulatedSession implements WebSocketSession {
+
+    private final String id;
+    private final long writeNanos;
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final LongAdder sent = new LongAdder();
+    private volatile boolean open = true;
+
+    public SimulatedSession(String id, long writeNanos) {
+        this.id = id;
+        this.writeNanos = writeNanos;
+        attributes.put("userId", "auth0|" + id);
+        attributes.put("email", id + "@bench.distrischool.com");
+        attributes.put(TenantResolver.ATTRIBUTE, BenchmarkFixtures.TENANT);
+    }
+
+    public long sentCount() {
+        return sent.sum();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        if (writeNanos > 0) {
+            LockSupport.parkNanos(writeNanos);
+        }
+        sent.increment();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public URI getUri() {
+        return URI.create("ws://localhost/ws/notifications");
+    }
+
+    @Override
+    public HttpHeaders getHandshakeHeaders() {
+        return new HttpHeaders();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public Principal getPrincipal() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public String getAcceptedProtocol() {
+        return null;
+    }
+
+    @Override
+    public void setTextMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getTextMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+    }
+
+    @Override
+    public int getBinaryMessageSizeLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public List<WebSocketExtension> getExtensions() {
+        return List.of();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    @Override
+    public void close(CloseStatus status) {
+        open = false;
+    }
+}
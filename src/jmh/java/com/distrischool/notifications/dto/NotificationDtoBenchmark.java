@@ -0,0 +1,49 @@
+package com.distrischool.notifications.dto;
+
+import com.distrischool.benchmark.BenchmarkFixtures;
+import com.distrischool.benchmark.BenchmarkFixtures.PayloadSize;
+import com.distrischool.notifications.entity.Notification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link NotificationDTO#fromEntity(Notification, ObjectMapper)},
+ * executed once per search hit and once per notification entering the welcome snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotificationDtoBenchmark {
+
+    @Param({"SMALL", "LARGE"})
+    private PayloadSize payload;
+
+    private ObjectMapper objectMapper;
+    private Notification notification;
+
+    @Setup
+    public void setup() {
+        objectMapper = BenchmarkFixtures.objectMapper();
+        notification = BenchmarkFixtures.notification(payload, objectMapper);
+    }
+
+    @Benchmark
+    public NotificationDTO fromEntity() {
+        return NotificationDTO.fromEntity(notification, objectMapper);
+    }
+}
@@ -0,0 +1,64 @@
+package com.distrischool.notifications.dto;
+
+import com.distrischool.benchmark.BenchmarkFixtures;
+import com.distrischool.benchmark.BenchmarkFixtures.PayloadSize;
+import com.distrischool.notifications.entity.Notification;
+import com.distrischool.template.dto.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks serializing a 100-row listing response: DTOs plus databind (the former path) against
+ * {@link NotificationList}, streamed from the entities by {@link NotificationJsonWriter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotificationListSerializationBenchmark {
+
+    @Param({"SMALL", "LARGE"})
+    private PayloadSize payload;
+
+    private ObjectMapper objectMapper;
+    private List<Notification> notifications;
+
+    @Setup
+    public void setup() {
+        objectMapper = BenchmarkFixtures.objectMapper();
+        notifications = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            notifications.add(BenchmarkFixtures.notification(payload, objectMapper));
+        }
+    }
+
+    @Benchmark
+    public void dtoList() throws IOException {
+        List<NotificationDTO> dtos = notifications.stream().map(n -> NotificationDTO.fromEntity(n, objectMapper)).toList();
+        objectMapper.writeValue(OutputStream.nullOutputStream(), ApiResponse.success(dtos, "Found 100 notifications"));
+    }
+
+    @Benchmark
+    public void streamedList() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(),
+                ApiResponse.success(new NotificationList(notifications, id -> false), "Found 100 notifications"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.benchmark.BenchmarkFixtures;
+import com.distrischool.benchmark.BenchmarkFixtures.PayloadSize;
+import com.distrischool.notifications.entity.Notification;
+import com.distrischool.template.kafka.DistriSchoolEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link NotificationService#convertEventToNotification(DistriSchoolEvent)}:
+ * title/message templating plus re-serialization of the event data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotificationConversionBenchmark {
+
+    @Param({"SMALL", "LARGE"})
+    private PayloadSize payload;
+
+    private NotificationService service;
+    private DistriSchoolEvent event;
+
+    @Setup
+    public void setup() {
+        service = new NotificationService(null, null, null, BenchmarkFixtures.objectMapper(), null,
+                BenchmarkFixtures.metrics(), null, null, null, null, null,
+                new TenantResolver("https://distrischool.com/school_id", "schoolId"));
+        event = BenchmarkFixtures.event(payload);
+    }
+
+    @Benchmark
+    public Notification convertEventToNotification() {
+        return service.convertEventToNotification(event);
+    }
+}
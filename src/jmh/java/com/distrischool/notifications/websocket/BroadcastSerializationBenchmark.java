@@ -0,0 +1,60 @@
+package com.distrischool.notifications.websocket;
+
+import com.distrischool.benchmark.BenchmarkFixtures;
+import com.distrischool.benchmark.BenchmarkFixtures.PayloadSize;
+import com.distrischool.notifications.entity.Notification;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.websocket.NotificationProtocol.Encoding;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the envelope serialization done once per notification in
+ * {@link NotificationWebSocketHandler#broadcastNotification(Notification)}, per negotiated encoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BroadcastSerializationBenchmark {
+
+    @Param({"SMALL", "LARGE"})
+    private PayloadSize payload;
+
+    @Param({"JSON", "CBOR"})
+    private Encoding encoding;
+
+    private NotificationWebSocketHandler handler;
+    private Notification notification;
+
+    @Setup
+    public void setup() {
+        ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+        NotificationMetrics metrics = BenchmarkFixtures.metrics();
+        handler = new NotificationWebSocketHandler(new NotificationProtocol(objectMapper), metrics,
+                BenchmarkFixtures.idleHeartbeat(metrics), BenchmarkFixtures.backpressure(metrics),
+                BenchmarkFixtures.admission(metrics), BenchmarkFixtures.rateLimiter(metrics),
+                BenchmarkFixtures.snapshotCache(objectMapper), false, 10_000, 524_288, 50, 100, 4);
+        notification = BenchmarkFixtures.notification(payload, objectMapper);
+    }
+
+    @Benchmark
+    public WebSocketMessage<?> encodeNotification() {
+        return handler.encodeNotification(notification, encoding);
+    }
+}
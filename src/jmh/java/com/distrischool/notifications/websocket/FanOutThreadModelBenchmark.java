@@ -0,0 +1,82 @@
+package com.distrischool.notifications.websocket;
+
+import com.distrischool.benchmark.BenchmarkFixtures;
+import com.distrischool.benchmark.BenchmarkFixtures.PayloadSize;
+import com.distrischool.benchmark.SimulatedSession;
+import com.distrischool.notifications.entity.Notification;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares broadcast throughput of the platform-thread model (sequential blocking sends on the
+ * Kafka listener thread) with the opt-in virtual-thread model (one virtual thread per session send).
+ *
+ * {@code writeMicros} simulates the blocking socket write of each session; run with the gc profiler
+ * (always on in the benchmarks profile) to compare allocation, which includes virtual thread stacks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+public class FanOutThreadModelBenchmark {
+
+    public enum ThreadModel {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private ThreadModel model;
+
+    @Param({"200", "2000"})
+    private int sessions;
+
+    @Param({"0", "200"})
+    private long writeMicros;
+
+    private NotificationWebSocketHandler handler;
+    private Notification notification;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ObjectMapper objectMapper = BenchmarkFixtures.objectMapper();
+        NotificationMetrics metrics = BenchmarkFixtures.metrics();
+        handler = new NotificationWebSocketHandler(new NotificationProtocol(objectMapper), metrics,
+                BenchmarkFixtures.idleHeartbeat(metrics), BenchmarkFixtures.backpressure(metrics),
+                BenchmarkFixtures.admission(metrics), BenchmarkFixtures.rateLimiter(metrics),
+                BenchmarkFixtures.snapshotCache(objectMapper), model == ThreadModel.VIRTUAL, 60_000, 4 * 1024 * 1024,
+                50, 100, 4);
+        long writeNanos = TimeUnit.MICROSECONDS.toNanos(writeMicros);
+        for (int i = 0; i < sessions; i++) {
+            handler.afterConnectionEstablished(new SimulatedSession("session-" + i, writeNanos));
+        }
+        notification = BenchmarkFixtures.notification(PayloadSize.SMALL, objectMapper);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        handler.shutdown();
+    }
+
+    @Benchmark
+    public void broadcast() {
+        handler.broadcastNotification(notification);
+    }
+}
@@ -0,0 +1,50 @@
+package com.distrischool.template.kafka;
+
+import com.distrischool.benchmark.BenchmarkFixtures;
+import com.distrischool.benchmark.BenchmarkFixtures.PayloadSize;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link EventConsumer#convertMapToEvent(Map)}, the first step for every Kafka record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventConversionBenchmark {
+
+    @Param({"SMALL", "LARGE"})
+    private PayloadSize payload;
+
+    private EventConsumer consumer;
+    private Map<String, Object> eventMap;
+
+    @Setup
+    public void setup() {
+        NotificationMetrics metrics = BenchmarkFixtures.metrics();
+        consumer = new EventConsumer(null, BenchmarkFixtures.objectMapper(), metrics,
+                BenchmarkFixtures.backpressure(metrics), new EventOffsetTracker());
+        eventMap = BenchmarkFixtures.eventMap(payload);
+    }
+
+    @Benchmark
+    public DistriSchoolEvent convertMapToEvent() {
+        return consumer.convertMapToEvent(eventMap);
+    }
+}
@@ -0,0 +1,38 @@
+package com.distrischool.notifications.config;
+
+import com.distrischool.notifications.websocket.NotificationProtocol;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.List;
+
+/**
+ * Handshake handler for /ws/notifications.
+ * Negotiates the frame encoding through the subprotocol (notifications.cbor or notifications.json) and
+ * accepts permessage-deflate from clients that offer it, unless websocket.compression.enabled is false.
+ */
+public class NotificationHandshakeHandler extends DefaultHandshakeHandler {
+
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final boolean compression;
+
+    public NotificationHandshakeHandler(boolean compression) {
+        this.compression = compression;
+        setSupportedProtocols(NotificationProtocol.Encoding.subprotocols());
+    }
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                 List<WebSocketExtension> requestedExtensions,
+                                                                 List<WebSocketExtension> supportedExtensions) {
+        List<WebSocketExtension> extensions = super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+        if (compression) {
+            return extensions;
+        }
+        return extensions.stream()
+                .filter(extension -> !PERMESSAGE_DEFLATE.equals(extension.getName()))
+                .toList();
+    }
+}
@@ -0,0 +1,90 @@
+package com.distrischool.notifications.config;
+
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.service.NotificationChangeWatermark;
+import com.distrischool.notifications.service.ReplicaReads;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Read/write splitting over a read replica, enabled with {@code notifications.datasource.replica.enabled=true}.
+ *
+ * Three Hikari pools replace the auto-configured one:
+ * <ul>
+ *     <li>{@code primary} ({@code spring.datasource.*}): read-write transactions and statements outside a
+ *     transaction, i.e. Kafka ingestion, read-state updates, Flyway and SSE replay;</li>
+ *     <li>{@code replica} ({@code notifications.datasource.replica.*}): read-only transactions while the replica
+ *     is within {@code max-staleness-ms};</li>
+ *     <li>{@code primary-read} ({@code notifications.datasource.primary-read.*}): a small pool on the primary
+ *     that takes read-only transactions while the replica is stale or down, and during startup, before the first
+ *     lag check.</li>
+ * </ul>
+ * API reads never borrow from the primary pool, so a burst of listing requests can exhaust its own pool but not
+ * starve ingestion. Staleness is measured by {@link ReplicaLagMonitor}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "notifications.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryPool(DataSourceProperties properties) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("primary");
+        return pool;
+    }
+
+    @Bean
+    @ConfigurationProperties("notifications.datasource.primary-read")
+    public HikariDataSource primaryReadPool(DataSourceProperties properties) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("primary-read");
+        pool.setReadOnly(true);
+        return pool;
+    }
+
+    @Bean
+    @ConfigurationProperties("notifications.datasource.replica")
+    public HikariDataSource replicaPool() {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("replica");
+        pool.setReadOnly(true);
+        return pool;
+    }
+
+    /**
+     * The DataSource used by JPA, Flyway and JDBC. The physical connection is fetched lazily, at the first
+     * statement, once the transaction's read-only flag is known to the router.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryPool") DataSource primary,
+                                 @Qualifier("primaryReadPool") DataSource primaryRead,
+                                 @Qualifier("replicaPool") DataSource replica,
+                                 ReplicaReads replicaReads) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primary, primaryRead, replica, replicaReads));
+    }
+
+    @Bean(destroyMethod = "stop")
+    ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryPool") DataSource primary,
+                                        @Qualifier("replicaPool") DataSource replica,
+                                        NotificationChangeWatermark changeWatermark,
+                                        ReplicaReads replicaReads,
+                                        NotificationMetrics metrics,
+                                        @Value("${notifications.datasource.replica.max-staleness-ms:5000}") long maxStalenessMs,
+                                        @Value("${notifications.datasource.replica.check-interval-ms:1000}") long checkIntervalMs) {
+        return new ReplicaLagMonitor(primary, replica, changeWatermark, replicaReads, metrics, maxStalenessMs,
+                checkIntervalMs);
+    }
+}
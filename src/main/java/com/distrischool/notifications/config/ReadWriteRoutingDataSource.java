@@ -0,0 +1,40 @@
+package com.distrischool.notifications.config;
+
+import com.distrischool.notifications.service.ReplicaReads;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Routes read-write work to the primary pool and read-only transactions to the replica, or to the primary's
+ * separate read pool while the replica is stale. Must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction's read-only flag is
+ * only set after the transaction manager asks for a connection.
+ */
+final class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {
+        PRIMARY,
+        PRIMARY_READ,
+        REPLICA
+    }
+
+    private final ReplicaReads replicaReads;
+
+    ReadWriteRoutingDataSource(DataSource primary, DataSource primaryRead, DataSource replica, ReplicaReads replicaReads) {
+        this.replicaReads = replicaReads;
+        setTargetDataSources(Map.<Object, Object>of(Route.PRIMARY, primary, Route.PRIMARY_READ, primaryRead, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Route.PRIMARY;
+        }
+        return replicaReads.useReplica() ? Route.REPLICA : Route.PRIMARY_READ;
+    }
+}
@@ -0,0 +1,110 @@
+package com.distrischool.notifications.config;
+
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.service.NotificationChangeWatermark;
+import com.distrischool.notifications.service.ReplicaReads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures replication lag with a heartbeat: every check writes the current time to {@code replication_heartbeat}
+ * on the primary and reads the row back from the replica. The replica is fresh while the heartbeat it returns is
+ * at most {@code maxStalenessMs} old.
+ *
+ * Each heartbeat is recorded with the change watermarks of every tenant, sampled just before it was written; once
+ * the replica returns a heartbeat, it has applied every change behind those watermarks, which become the ETag source
+ * for reads served by the replica. The replica starts out stale until the first check succeeds, and any failure on
+ * either side marks it stale. With several instances sharing the row, a heartbeat written by another instance still
+ * bounds the lag, as long as clocks are roughly in sync.
+ */
+@Slf4j
+final class ReplicaLagMonitor {
+
+    private static final String WRITE_BEAT = "UPDATE replication_heartbeat SET beat_at_ms = ? WHERE id = 1";
+    private static final String READ_BEAT = "SELECT beat_at_ms FROM replication_heartbeat WHERE id = 1";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final NotificationChangeWatermark changeWatermark;
+    private final ReplicaReads replicaReads;
+    private final long maxStalenessMs;
+    private final long checkIntervalMs;
+    private final ScheduledExecutorService checker;
+    // Checker thread only: heartbeats written and not yet seen on the replica, with their watermarks
+    private final TreeMap<Long, NotificationChangeWatermark.Watermarks> beats = new TreeMap<>();
+    private volatile long stalenessMs = -1;
+
+    ReplicaLagMonitor(DataSource primary, DataSource replica, NotificationChangeWatermark changeWatermark,
+                      ReplicaReads replicaReads, NotificationMetrics metrics, long maxStalenessMs, long checkIntervalMs) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.changeWatermark = changeWatermark;
+        this.replicaReads = replicaReads;
+        this.maxStalenessMs = maxStalenessMs;
+        this.checkIntervalMs = checkIntervalMs;
+        this.checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        metrics.registerReplicaLag(() -> stalenessMs, replicaReads::isFresh);
+    }
+
+    /**
+     * Starts checking once the application is ready, so startup loads (snapshot cache, change watermark) always
+     * read the primary.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        checker.scheduleWithFixedDelay(this::check, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        checker.shutdownNow();
+        replicaReads.stale();
+    }
+
+    void check() {
+        try {
+            NotificationChangeWatermark.Watermarks watermarks = changeWatermark.snapshot();
+            long beat = System.currentTimeMillis();
+            primary.update(WRITE_BEAT, beat);
+            beats.put(beat, watermarks);
+
+            Long seen = replica.queryForObject(READ_BEAT, Long.class);
+            long now = System.currentTimeMillis();
+            // Heartbeats this old can no longer make the replica fresh
+            beats.headMap(now - 2 * maxStalenessMs).clear();
+            Map.Entry<Long, NotificationChangeWatermark.Watermarks> applied = seen == null ? null : beats.floorEntry(seen);
+            stalenessMs = seen == null ? -1 : now - seen;
+            if (applied != null && stalenessMs <= maxStalenessMs) {
+                beats.headMap(applied.getKey()).clear();
+                if (!replicaReads.isFresh()) {
+                    log.info("Read replica caught up ({} ms behind): routing read-only queries to it", stalenessMs);
+                }
+                replicaReads.caughtUp(applied.getValue());
+            } else {
+                markStale(stalenessMs + " ms behind");
+            }
+        } catch (Exception e) {
+            stalenessMs = -1;
+            markStale("check failed: " + e.getMessage());
+        }
+    }
+
+    private void markStale(String reason) {
+        if (replicaReads.isFresh()) {
+            log.warn("Read replica stale ({}): routing read-only queries to the primary", reason);
+        }
+        replicaReads.stale();
+    }
+}
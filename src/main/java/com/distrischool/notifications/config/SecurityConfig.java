@@ -8,6 +8,7 @@
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.SecurityFilterChain;
 
@@ -26,11 +27,15 @@ public class SecurityConfig {
 
     /**
      * JWT Decoder configured for Auth0.
+     * Uses the well-known Auth0 JWKS endpoint (fetched lazily on first decode) plus issuer validation,
+     * so startup does not depend on reaching the OIDC discovery document.
      */
     @Bean
     public JwtDecoder jwtDecoder() {
         String issuer = String.format("https://%s/", auth0Domain);
-        return NimbusJwtDecoder.withIssuerLocation(issuer).build();
+        NimbusJwtDecoder decoder = NimbusJwtDecoder.withJwkSetUri(issuer + ".well-known/jwks.json").build();
+        decoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuer));
+        return decoder;
     }
 
     /**
@@ -0,0 +1,44 @@
+package com.distrischool.notifications.config;
+
+import com.distrischool.notifications.websocket.WebSocketAdmission;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+
+/**
+ * Sheds WebSocket handshakes with 503 and a Retry-After hint while the node is at its connection cap.
+ * Registered ahead of {@link WebSocketAuthInterceptor}, so a saturated node does not decode tokens.
+ */
+@Slf4j
+public class WebSocketAdmissionInterceptor implements HandshakeInterceptor {
+
+    private final WebSocketAdmission admission;
+
+    public WebSocketAdmissionInterceptor(WebSocketAdmission admission) {
+        this.admission = admission;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (!admission.shouldShed()) {
+            return true;
+        }
+        log.warn("WebSocket handshake shed: node at its connection cap ({} connections)", admission.getConnections());
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, admission.retryAfter());
+        return false;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+        // Connections are counted once established, see NotificationWebSocketHandler
+    }
+}
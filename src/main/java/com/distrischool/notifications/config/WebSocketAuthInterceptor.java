@@ -1,11 +1,14 @@
 package com.distrischool.notifications.config;
 
+import com.distrischool.notifications.service.TenantResolver;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.JwtException;
@@ -18,16 +21,20 @@
 /**
  * WebSocket handshake interceptor that validates JWT tokens from Auth0.
  * The token should be passed as a query parameter: ws://host/ws/notifications?token=JWT_TOKEN
+ * The tenant (school) of the token is stored with the user information; a malformed tenant claim is refused.
  */
 @Slf4j
 @Component
 public class WebSocketAuthInterceptor implements HandshakeInterceptor {
 
     private final JwtDecoder jwtDecoder;
+    private final TenantResolver tenantResolver;
     private final String audience;
 
-    public WebSocketAuthInterceptor(JwtDecoder jwtDecoder, @Value("${auth0.audience}") String audience) {
+    public WebSocketAuthInterceptor(JwtDecoder jwtDecoder, TenantResolver tenantResolver,
+                                    @Value("${auth0.audience}") String audience) {
         this.jwtDecoder = jwtDecoder;
+        this.tenantResolver = tenantResolver;
         this.audience = audience;
     }
 
@@ -36,12 +43,29 @@ public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse res
                                    WebSocketHandler wsHandler, Map<String, Object> attributes) throws Exception {
         
         // Extract token from query parameters
-        String token = extractTokenFromRequest(request);
-        
+        String queryToken = null;
+        if (request instanceof ServletServerHttpRequest servletRequest) {
+            queryToken = servletRequest.getServletRequest().getParameter("token");
+        }
+
+        HttpStatus status = authenticate(resolveToken(queryToken, request.getHeaders()), attributes);
+        if (status != HttpStatus.OK) {
+            response.setStatusCode(status);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Validates a handshake token and stores the user information in the session attributes.
+     * Shared by the servlet handshake and the reactive transport.
+     *
+     * @return {@link HttpStatus#OK} if the handshake may proceed, otherwise the status to reject it with
+     */
+    public HttpStatus authenticate(String token, Map<String, Object> attributes) {
         if (token == null || token.isEmpty()) {
             log.warn("WebSocket handshake rejected: No token provided");
-            response.setStatusCode(HttpStatus.UNAUTHORIZED);
-            return false;
+            return HttpStatus.UNAUTHORIZED;
         }
 
         try {
@@ -51,29 +75,35 @@ public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse res
             // Verify audience
             if (jwt.getAudience() != null && !jwt.getAudience().isEmpty() && !jwt.getAudience().contains(audience)) {
                 log.warn("WebSocket handshake rejected: Invalid audience in token");
-                response.setStatusCode(HttpStatus.FORBIDDEN);
-                return false;
+                return HttpStatus.FORBIDDEN;
+            }
+
+            String tenant;
+            try {
+                tenant = tenantResolver.fromJwt(jwt);
+            } catch (AccessDeniedException e) {
+                log.warn("WebSocket handshake rejected: Invalid tenant in token");
+                return HttpStatus.FORBIDDEN;
             }
 
             // Store user information in session attributes for later use
+            attributes.put(TenantResolver.ATTRIBUTE, tenant);
             attributes.put("userId", jwt.getSubject());
             attributes.put("email", jwt.getClaimAsString("email"));
             attributes.put("name", jwt.getClaimAsString("name"));
             attributes.put("jwt", jwt);
             
-            log.info("WebSocket handshake authenticated for user: {} ({})", 
-                    jwt.getClaimAsString("email"), jwt.getSubject());
+            log.info("WebSocket handshake authenticated for user: {} ({}) of tenant {}",
+                    jwt.getClaimAsString("email"), jwt.getSubject(), tenant);
             
-            return true;
+            return HttpStatus.OK;
             
         } catch (JwtException e) {
             log.warn("WebSocket handshake rejected: Invalid or expired token - {}", e.getMessage());
-            response.setStatusCode(HttpStatus.UNAUTHORIZED);
-            return false;
+            return HttpStatus.UNAUTHORIZED;
         } catch (Exception e) {
             log.error("WebSocket handshake error: {}", e.getMessage(), e);
-            response.setStatusCode(HttpStatus.INTERNAL_SERVER_ERROR);
-            return false;
+            return HttpStatus.INTERNAL_SERVER_ERROR;
         }
     }
 
@@ -84,28 +114,26 @@ public void afterHandshake(ServerHttpRequest request, ServerHttpResponse respons
     }
 
     /**
-     * Extracts JWT token from request query parameters or Authorization header.
-     * Supports both:
+     * Resolves the JWT token of a handshake.
+     * Supports:
      * - Query parameter: ?token=JWT_TOKEN
      * - Authorization header: Authorization: Bearer JWT_TOKEN
+     * - Sec-WebSocket-Protocol header: Bearer JWT_TOKEN
      */
-    private String extractTokenFromRequest(ServerHttpRequest request) {
+    public static String resolveToken(String queryToken, HttpHeaders headers) {
         // Try query parameter first (most common for WebSocket)
-        if (request instanceof ServletServerHttpRequest servletRequest) {
-            String token = servletRequest.getServletRequest().getParameter("token");
-            if (token != null && !token.isEmpty()) {
-                return token;
-            }
+        if (queryToken != null && !queryToken.isEmpty()) {
+            return queryToken;
         }
 
         // Try Authorization header as fallback
-        String authHeader = request.getHeaders().getFirst("Authorization");
+        String authHeader = headers.getFirst("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             return authHeader.substring(7);
         }
 
         // Try Sec-WebSocket-Protocol header (some clients use this)
-        String protocol = request.getHeaders().getFirst("Sec-WebSocket-Protocol");
+        String protocol = headers.getFirst("Sec-WebSocket-Protocol");
         if (protocol != null && protocol.startsWith("Bearer ")) {
             return protocol.substring(7);
         }
@@ -113,4 +141,3 @@ private String extractTokenFromRequest(ServerHttpRequest request) {
         return null;
     }
 }
-
@@ -1,8 +1,10 @@
 package com.distrischool.notifications.config;
 
 import com.distrischool.notifications.websocket.NotificationWebSocketHandler;
+import com.distrischool.notifications.websocket.WebSocketAdmission;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
@@ -12,24 +14,33 @@
  * WebSocket configuration for real-time notifications.
  * Uses plain WebSocket (not STOMP) for simple client connections.
  * Protected by JWT authentication via WebSocketAuthInterceptor.
+ * Handshakes beyond the node connection cap are shed first by WebSocketAdmissionInterceptor.
+ * Encoding (JSON/CBOR subprotocol) and permessage-deflate are negotiated by NotificationHandshakeHandler.
+ * Replaced by the reactor-netty server when websocket.transport=reactive.
  */
 @Configuration
+@ConditionalOnProperty(name = "websocket.transport", havingValue = "servlet", matchIfMissing = true)
 @EnableWebSocket
 @RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final NotificationWebSocketHandler notificationWebSocketHandler;
     private final WebSocketAuthInterceptor webSocketAuthInterceptor;
+    private final WebSocketAdmission webSocketAdmission;
 
     @Value("${websocket.allowed-origins:*}")
     private String allowedOrigins;
 
+    @Value("${websocket.compression.enabled:true}")
+    private boolean compression;
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         // Register the WebSocket handler at /ws/notifications
         // Authentication is handled by WebSocketAuthInterceptor during handshake
         registry.addHandler(notificationWebSocketHandler, "/ws/notifications")
-                .addInterceptors(webSocketAuthInterceptor)
+                .setHandshakeHandler(new NotificationHandshakeHandler(compression))
+                .addInterceptors(new WebSocketAdmissionInterceptor(webSocketAdmission), webSocketAuthInterceptor)
                 .setAllowedOriginPatterns(allowedOrigins.split(","));
     }
 }
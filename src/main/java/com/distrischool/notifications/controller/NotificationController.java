@@ -1,21 +1,55 @@
 package com.distrischool.notifications.controller;
 
-import com.distrischool.notifications.dto.NotificationDTO;
+import com.distrischool.notifications.dto.NotificationList;
+import com.distrischool.notifications.dto.NotificationSearchPage;
+import com.distrischool.notifications.dto.ScheduledNotificationDTO;
+import com.distrischool.notifications.dto.ScheduledNotificationRequest;
+import com.distrischool.notifications.entity.ScheduledNotification;
+import com.distrischool.notifications.service.NotificationChangeWatermark;
+import com.distrischool.notifications.service.NotificationReadStates;
+import com.distrischool.notifications.service.NotificationScheduler;
 import com.distrischool.notifications.service.NotificationService;
+import com.distrischool.notifications.service.ReadState;
+import com.distrischool.notifications.service.ReplicaReads;
+import com.distrischool.notifications.service.TenantResolver;
+import com.distrischool.notifications.sse.NotificationSseHub;
 import com.distrischool.template.dto.ApiResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * REST Controller for notifications.
  * Provides endpoints matching frontend expectations.
+ *
+ * The listings support conditional GETs: they carry an ETag and Last-Modified from
+ * {@link NotificationChangeWatermark} and the caller's read state, and a request whose If-None-Match /
+ * If-Modified-Since still matches gets 304 after a single key lookup of that read state.
+ *
+ * Read flags are per user, the subject of the JWT ({@link NotificationReadStates}): marking a notification read
+ * only changes it for the caller.
+ *
+ * {@code /stream} is a Server-Sent Events alternative to the WebSocket, served by {@link NotificationSseHub}.
+ *
+ * {@code /scheduled} stores notifications to publish at a future time (reminders), delivered by
+ * {@link NotificationScheduler}.
+ *
+ * Every endpoint only sees the notifications of the caller's tenant (school), taken from the JWT by
+ * {@link TenantResolver}; a malformed tenant claim is answered with 403.
  */
 @Slf4j
 @RestController
@@ -23,7 +57,17 @@
 @RequiredArgsConstructor
 public class NotificationController {
 
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_FILTER_LIMIT = 500;
+    private static final int MAX_SCHEDULED_LIMIT = 500;
+
     private final NotificationService notificationService;
+    private final NotificationChangeWatermark changeWatermark;
+    private final NotificationReadStates readStates;
+    private final NotificationSseHub sseHub;
+    private final ReplicaReads replicaReads;
+    private final TenantResolver tenantResolver;
+    private final NotificationScheduler scheduler;
     private final ObjectMapper objectMapper;
 
     /**
@@ -32,42 +76,290 @@ public class NotificationController {
      * Response format: { success: boolean, data: Notification[], message?: string }
      */
     @GetMapping
-    public ResponseEntity<ApiResponse<List<NotificationDTO>>> getAllNotifications() {
-        log.info("GET /api/v1/notifications - Fetching all notifications");
+    public ResponseEntity<ApiResponse<NotificationList>> getAllNotifications(@AuthenticationPrincipal Jwt jwt,
+                                                                             WebRequest request) {
+        String tenant = tenantResolver.fromJwt(jwt);
+        try (ReplicaReads.ReadView view = replicaReads.open(tenant, changeWatermark.current(tenant))) {
+            if (notModified(request, view.watermark(), readStates.getRecent(tenant, userOf(jwt)))) {
+                return null;
+            }
+            ReadState readState = readStates.get(tenant, userOf(jwt));
+            log.info("GET /api/v1/notifications - Fetching all notifications");
 
-        try {
-            List<NotificationDTO> notifications = notificationService.getAllNotifications()
-                    .stream()
-                    .map(n -> NotificationDTO.fromEntity(n, objectMapper))
-                    .collect(Collectors.toList());
+            NotificationList notifications = new NotificationList(notificationService.getAllNotifications(tenant),
+                    readState::isRead);
 
-            ApiResponse<List<NotificationDTO>> response = new ApiResponse<>(
+            ApiResponse<NotificationList> response = new ApiResponse<>(
                     true,
                     String.format("Found %d notifications", notifications.size()),
                     notifications
             );
 
             log.info("Returning {} notifications", notifications.size());
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
         } catch (Exception e) {
             log.error("Error fetching notifications", e);
-            ApiResponse<List<NotificationDTO>> errorResponse = ApiResponse.error(
+            ApiResponse<NotificationList> errorResponse = ApiResponse.error(
                     "Failed to fetch notifications: " + e.getMessage()
             );
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
         }
     }
 
+    /**
+     * GET /api/v1/notifications/filter?type=user.created&type=teacher.created&from=...&to=...&read=false&limit=50
+     * Returns notifications matching every given filter, newest first. All filters are optional;
+     * {@code from} is inclusive and {@code to} exclusive (ISO date-time, same format as {@code timestamp}).
+     */
+    @GetMapping("/filter")
+    public ResponseEntity<ApiResponse<NotificationList>> filterNotifications(
+            @RequestParam(value = "type", required = false) List<String> eventTypes,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "read", required = false) Boolean read,
+            @RequestParam(value = "limit", defaultValue = "50") int limit,
+            @AuthenticationPrincipal Jwt jwt,
+            WebRequest request) {
+        log.info("GET /api/v1/notifications/filter - types={}, from={}, to={}, read={}, limit={}", eventTypes, from, to, read, limit);
+        String tenant = tenantResolver.fromJwt(jwt);
+
+        // Before the conditional check, so an invalid request never gets a 304
+        if (limit < 1 || limit > MAX_FILTER_LIMIT) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(
+                    String.format("limit must be between 1 and %d", MAX_FILTER_LIMIT)));
+        }
+
+        try (ReplicaReads.ReadView view = replicaReads.open(tenant, changeWatermark.current(tenant))) {
+            if (notModified(request, view.watermark(), readStates.getRecent(tenant, userOf(jwt)))) {
+                return null;
+            }
+            ReadState readState = readStates.get(tenant, userOf(jwt));
+
+            NotificationList notifications = new NotificationList(
+                    notificationService.findNotifications(tenant, eventTypes, from, to, read, readState, limit),
+                    readState::isRead);
+
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(ApiResponse.success(notifications,
+                    String.format("Found %d notifications", notifications.size())));
+        } catch (Exception e) {
+            log.error("Error filtering notifications", e);
+            ApiResponse<NotificationList> errorResponse = ApiResponse.error(
+                    "Failed to filter notifications: " + e.getMessage()
+            );
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    /**
+     * GET /api/v1/notifications/search?q=...&limit=20&cursor=...
+     * Full-text search (Portuguese configuration) over title, message and user/teacher names and emails.
+     * Accepts web-search syntax: quoted phrases, {@code or}, and {@code -} to exclude a term.
+     * Results are ranked; pass {@code nextCursor} from the response as {@code cursor} to get the next page.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<NotificationSearchPage>> searchNotifications(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @AuthenticationPrincipal Jwt jwt) {
+        log.info("GET /api/v1/notifications/search - Searching notifications");
+        String tenant = tenantResolver.fromJwt(jwt);
+
+        if (query.isBlank() || limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(
+                    String.format("q must not be blank and limit must be between 1 and %d", MAX_SEARCH_LIMIT)));
+        }
+
+        try {
+            NotificationSearchPage page = notificationService.search(tenant, query, cursor, limit,
+                    readStates.get(tenant, userOf(jwt)));
+            return ResponseEntity.ok(ApiResponse.success(page,
+                    String.format("Found %d notifications", page.getNotifications().size())));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error searching notifications", e);
+            ApiResponse<NotificationSearchPage> errorResponse = ApiResponse.error(
+                    "Failed to search notifications: " + e.getMessage()
+            );
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    /**
+     * GET /api/v1/notifications/stream
+     * Server-Sent Events stream of new notifications ({@code event: notification}, {@code id} = notification id,
+     * {@code data} in the list format). Authenticated with the usual Bearer header. A {@code Last-Event-ID}
+     * header, sent by EventSource on reconnect, first replays the notifications persisted after that id.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNotifications(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+            @AuthenticationPrincipal Jwt jwt) {
+        log.info("GET /api/v1/notifications/stream - Opening notification stream");
+        return sseHub.subscribe(tenantResolver.fromJwt(jwt), parseEventId(lastEventId));
+    }
+
+    /**
+     * POST /api/v1/notifications/scheduled
+     * Schedules a notification: { eventId?, type?, title, message, data?, deliverAt }. {@code deliverAt} is UTC, in
+     * the format of {@code timestamp}; at that time the notification is saved and pushed like any other.
+     * Posting an {@code eventId} that is already pending returns the pending notification.
+     */
+    @PostMapping("/scheduled")
+    public ResponseEntity<ApiResponse<ScheduledNotificationDTO>> scheduleNotification(
+            @RequestBody ScheduledNotificationRequest request,
+            @AuthenticationPrincipal Jwt jwt) {
+        log.info("POST /api/v1/notifications/scheduled - Scheduling notification for {}", request.getDeliverAt());
+        String tenant = tenantResolver.fromJwt(jwt);
+
+        String invalid = validate(request);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(invalid));
+        }
+
+        try {
+            ScheduledNotification scheduled = scheduler.schedule(tenant, request);
+            return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(
+                    ScheduledNotificationDTO.fromEntity(scheduled, objectMapper), "Notification scheduled"));
+        } catch (Exception e) {
+            log.error("Error scheduling notification", e);
+            ApiResponse<ScheduledNotificationDTO> errorResponse = ApiResponse.error(
+                    "Failed to schedule notification: " + e.getMessage()
+            );
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    /**
+     * GET /api/v1/notifications/scheduled?limit=50
+     * Returns the pending scheduled notifications, soonest first. Delivered ones are in the regular listings.
+     */
+    @GetMapping("/scheduled")
+    public ResponseEntity<ApiResponse<List<ScheduledNotificationDTO>>> getScheduledNotifications(
+            @RequestParam(value = "limit", defaultValue = "50") int limit,
+            @AuthenticationPrincipal Jwt jwt) {
+        log.info("GET /api/v1/notifications/scheduled - Fetching scheduled notifications");
+        String tenant = tenantResolver.fromJwt(jwt);
+
+        if (limit < 1 || limit > MAX_SCHEDULED_LIMIT) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(
+                    String.format("limit must be between 1 and %d", MAX_SCHEDULED_LIMIT)));
+        }
+
+        try {
+            List<ScheduledNotificationDTO> scheduled = new ArrayList<>();
+            for (ScheduledNotification notification : notificationService.findScheduled(tenant, limit)) {
+                scheduled.add(ScheduledNotificationDTO.fromEntity(notification, objectMapper));
+            }
+            return ResponseEntity.ok(ApiResponse.success(scheduled,
+                    String.format("Found %d scheduled notifications", scheduled.size())));
+        } catch (Exception e) {
+            log.error("Error fetching scheduled notifications", e);
+            ApiResponse<List<ScheduledNotificationDTO>> errorResponse = ApiResponse.error(
+                    "Failed to fetch scheduled notifications: " + e.getMessage()
+            );
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    /**
+     * DELETE /api/v1/notifications/scheduled/{id}
+     * Cancels a pending scheduled notification; 404 once it has been delivered.
+     */
+    @DeleteMapping("/scheduled/{id}")
+    public ResponseEntity<ApiResponse<Void>> cancelScheduledNotification(@PathVariable Long id,
+                                                                         @AuthenticationPrincipal Jwt jwt) {
+        log.info("DELETE /api/v1/notifications/scheduled/{} - Cancelling scheduled notification", id);
+        String tenant = tenantResolver.fromJwt(jwt);
+
+        try {
+            if (scheduler.cancel(tenant, id)) {
+                return ResponseEntity.ok(ApiResponse.success("Scheduled notification cancelled"));
+            }
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.error("Scheduled notification not found"));
+        } catch (Exception e) {
+            log.error("Error cancelling scheduled notification {}", id, e);
+            ApiResponse<Void> errorResponse = ApiResponse.error(
+                    "Failed to cancel scheduled notification: " + e.getMessage()
+            );
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
+        }
+    }
+
+    /**
+     * @return the problem with a scheduling request, or null if it is valid; lengths are those of the columns
+     */
+    private static String validate(ScheduledNotificationRequest request) {
+        if (request.getDeliverAt() == null) {
+            return "deliverAt is required";
+        }
+        if (request.getTitle() == null || request.getTitle().isBlank() || request.getTitle().length() > 255) {
+            return "title must not be blank and at most 255 characters";
+        }
+        if (request.getMessage() == null || request.getMessage().isBlank()) {
+            return "message must not be blank";
+        }
+        if (request.getType() != null && request.getType().length() > 100) {
+            return "type must be at most 100 characters";
+        }
+        if (request.getEventId() != null && request.getEventId().length() > 255) {
+            return "eventId must be at most 255 characters";
+        }
+        return null;
+    }
+
+    /**
+     * An unparseable Last-Event-ID starts a live-only stream rather than failing the reconnect.
+     */
+    private static Long parseEventId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring invalid Last-Event-ID: {}", lastEventId);
+            return null;
+        }
+    }
+
+    /**
+     * Checks the conditional request headers against the watermark of the database serving the read (see
+     * {@link ReplicaReads}) and the caller's recently checked read state ({@link NotificationReadStates#getRecent}),
+     * so a 304 costs no query. Either way the ETag and Last-Modified headers are set; when this returns true the
+     * status is 304 and the handler returns null (no body). A 200 reads the current state, which may be newer than
+     * the one in its ETag; the cached state has then caught up, so the next request gets a 200 with the new ETag.
+     */
+    private static boolean notModified(WebRequest request, NotificationChangeWatermark.Watermark watermark,
+                                       ReadState readState) {
+        return request.checkNotModified(watermark.etag(readState.version()),
+                Math.max(watermark.lastModified(), readState.lastModified()));
+    }
+
+    /**
+     * The user whose read state applies: the token's subject.
+     */
+    private static String userOf(Jwt jwt) {
+        return jwt == null ? null : jwt.getSubject();
+    }
+
     /**
      * PUT /api/v1/notifications/{id}/read
-     * Marks a notification as read.
+     * Marks a notification as read for the caller.
      */
     @PutMapping("/{id}/read")
-    public ResponseEntity<ApiResponse<Void>> markAsRead(@PathVariable Long id) {
+    public ResponseEntity<ApiResponse<Void>> markAsRead(@PathVariable Long id, @AuthenticationPrincipal Jwt jwt) {
         log.info("PUT /api/v1/notifications/{}/read - Marking notification as read", id);
+        String tenant = tenantResolver.fromJwt(jwt);
+        String user = userOf(jwt);
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(ApiResponse.error("Token has no subject"));
+        }
 
         try {
-            var notification = notificationService.markAsRead(id);
+            var notification = notificationService.markAsRead(tenant, user, id);
             if (notification.isPresent()) {
                 ApiResponse<Void> response = ApiResponse.success("Notification marked as read");
                 return ResponseEntity.ok(response);
@@ -25,7 +25,7 @@ public class NotificationDTO {
     private Object data; // Can be parsed JSON object
 
     /**
-     * Convert Notification entity to DTO.
+     * Convert Notification entity to DTO, unread; read state is per user and set by the caller.
      */
     public static NotificationDTO fromEntity(Notification notification, ObjectMapper objectMapper) {
         NotificationDTO dto = new NotificationDTO();
@@ -36,7 +36,7 @@ public static NotificationDTO fromEntity(Notification notification, ObjectMapper
         dto.setType(notification.getEventType());
         dto.setTitle(notification.getTitle());
         dto.setMessage(notification.getMessage());
-        dto.setRead(notification.getRead());
+        dto.setRead(false);
         
         // Format timestamp as ISO string
         dto.setTimestamp(notification.getTimestamp().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
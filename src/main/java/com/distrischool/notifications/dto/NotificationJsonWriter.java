@@ -0,0 +1,243 @@
+package com.distrischool.notifications.dto;
+
+import com.distrischool.notifications.entity.Notification;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.SerializationConfig;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongPredicate;
+
+/**
+ * Streaming writer for notifications in the {@link NotificationDTO} shape, straight from the entity.
+ *
+ * Used on the hot paths (listings and WebSocket broadcasts) instead of {@link NotificationDTO#fromEntity} plus
+ * databind: no DTO, no parsed data tree, no id or timestamp strings. The stored data JSON is copied token by token
+ * into the target generator, which may be JSON or CBOR. Output is the same as serializing the DTO with the given
+ * mapper configuration: null fields, and null entries of data objects, are written or left out following its
+ * default inclusion, and data that is not valid JSON counts as null, as in {@link NotificationDTO#fromEntity}.
+ * The one difference is in CBOR: arrays inside data are copied as indefinite-length arrays, which decode to the
+ * same values.
+ *
+ * Read state is per user, so {@code read} comes from the caller: broadcasts carry new notifications, unread for
+ * everyone, and listings pass the user's read state.
+ */
+public final class NotificationJsonWriter {
+
+    // Longest id (19 digits plus sign) or timestamp fast-path value (29 chars)
+    private static final int SCRATCH_LENGTH = 32;
+    private static final JsonFactory DATA_FACTORY = new JsonFactory();
+
+    private NotificationJsonWriter() {
+    }
+
+    /**
+     * Which nulls the mapper writes: DTO fields ({@code nullFields}) and entries of the data maps
+     * ({@code nullEntries}), as parsed by {@link NotificationDTO#fromEntity}.
+     */
+    public record Inclusion(boolean nullFields, boolean nullEntries) {
+
+        public static Inclusion of(SerializationConfig config) {
+            return new Inclusion(
+                    writesNulls(config.getDefaultPropertyInclusion(NotificationDTO.class).getValueInclusion()),
+                    writesNulls(config.getDefaultPropertyInclusion(Map.class).getContentInclusion()));
+        }
+
+        private static boolean writesNulls(JsonInclude.Include include) {
+            return include == JsonInclude.Include.ALWAYS || include == JsonInclude.Include.USE_DEFAULTS;
+        }
+    }
+
+    /**
+     * Writes a new notification, unread.
+     */
+    public static void write(JsonGenerator generator, Notification notification, Inclusion inclusion) throws IOException {
+        write(generator, notification, inclusion, false, new char[SCRATCH_LENGTH]);
+    }
+
+    /**
+     * Writes new notifications as an array, all unread.
+     */
+    public static void write(JsonGenerator generator, List<Notification> notifications, Inclusion inclusion)
+            throws IOException {
+        write(generator, notifications, inclusion, id -> false);
+    }
+
+    /**
+     * Writes the notifications as an array, read as {@code read} tells by notification ID.
+     */
+    public static void write(JsonGenerator generator, List<Notification> notifications, Inclusion inclusion,
+                             LongPredicate read) throws IOException {
+        char[] scratch = new char[SCRATCH_LENGTH];
+        generator.writeStartArray(notifications, notifications.size());
+        for (Notification notification : notifications) {
+            write(generator, notification, inclusion,
+                    notification.getId() != null && read.test(notification.getId()), scratch);
+        }
+        generator.writeEndArray();
+    }
+
+    private static void write(JsonGenerator generator, Notification notification, Inclusion inclusion, boolean read,
+                              char[] scratch) throws IOException {
+        generator.writeStartObject();
+        if (notification.getId() != null) {
+            generator.writeFieldName("id");
+            generator.writeString(scratch, 0, formatLong(notification.getId(), scratch));
+        } else if (inclusion.nullFields()) {
+            generator.writeNullField("id");
+        }
+        writeStringField(generator, "type", notification.getEventType(), inclusion);
+        writeStringField(generator, "title", notification.getTitle(), inclusion);
+        writeStringField(generator, "message", notification.getMessage(), inclusion);
+        if (notification.getTimestamp() != null) {
+            generator.writeFieldName("timestamp");
+            writeTimestamp(generator, notification.getTimestamp(), scratch);
+        } else if (inclusion.nullFields()) {
+            generator.writeNullField("timestamp");
+        }
+        generator.writeBooleanField("read", read);
+        String data = notification.getData();
+        if (data != null && !data.isEmpty() && hasValue(data)) {
+            generator.writeFieldName("data");
+            try (JsonParser parser = DATA_FACTORY.createParser(data)) {
+                copyData(parser, generator, inclusion.nullEntries());
+            }
+        } else if (inclusion.nullFields()) {
+            generator.writeNullField("data");
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Whether {@code data} starts with a well-formed, non-null value. Tokenizes the value without copying it, so a
+     * malformed one is caught before anything has been written to the target generator.
+     */
+    private static boolean hasValue(String data) throws IOException {
+        try (JsonParser parser = DATA_FACTORY.createParser(data)) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return false;
+            }
+            parser.skipChildren();
+            return true;
+        } catch (JsonProcessingException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Copies the first value of the parser, dropping object entries whose value is null unless
+     * {@code nullEntries}.
+     */
+    private static void copyData(JsonParser parser, JsonGenerator generator, boolean nullEntries) throws IOException {
+        int depth = 0;
+        JsonToken token = parser.nextToken();
+        while (token != null) {
+            if (token == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                token = parser.nextToken();
+                if (token == JsonToken.VALUE_NULL && !nullEntries) {
+                    token = parser.nextToken();
+                    continue;
+                }
+                generator.writeFieldName(name);
+            }
+            generator.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+            if (depth == 0) {
+                return;
+            }
+            token = parser.nextToken();
+        }
+    }
+
+    private static void writeStringField(JsonGenerator generator, String name, String value, Inclusion inclusion)
+            throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        } else if (inclusion.nullFields()) {
+            generator.writeNullField(name);
+        }
+    }
+
+    /**
+     * Writes the timestamp exactly as {@link DateTimeFormatter#ISO_LOCAL_DATE_TIME} formats it: seconds always,
+     * the fraction only when non-zero and without trailing zeros.
+     */
+    private static void writeTimestamp(JsonGenerator generator, LocalDateTime timestamp, char[] scratch) throws IOException {
+        int year = timestamp.getYear();
+        if (year < 0 || year > 9999) {
+            // Signed or expanded years are left to the formatter
+            generator.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(timestamp));
+            return;
+        }
+        int pos = 0;
+        pos = digits(scratch, pos, year, 4);
+        scratch[pos++] = '-';
+        pos = digits(scratch, pos, timestamp.getMonthValue(), 2);
+        scratch[pos++] = '-';
+        pos = digits(scratch, pos, timestamp.getDayOfMonth(), 2);
+        scratch[pos++] = 'T';
+        pos = digits(scratch, pos, timestamp.getHour(), 2);
+        scratch[pos++] = ':';
+        pos = digits(scratch, pos, timestamp.getMinute(), 2);
+        scratch[pos++] = ':';
+        pos = digits(scratch, pos, timestamp.getSecond(), 2);
+        int nano = timestamp.getNano();
+        if (nano > 0) {
+            scratch[pos++] = '.';
+            pos = digits(scratch, pos, nano, 9);
+            while (scratch[pos - 1] == '0') {
+                pos--;
+            }
+        }
+        generator.writeString(scratch, 0, pos);
+    }
+
+    /**
+     * Writes {@code value} zero-padded to {@code width} digits at {@code pos}; returns the position after it.
+     */
+    private static int digits(char[] buffer, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    /**
+     * Formats {@code value} like {@link Long#toString(long)} into the start of the buffer; returns its length.
+     */
+    private static int formatLong(long value, char[] buffer) {
+        if (value == Long.MIN_VALUE) {
+            String text = Long.toString(value);
+            text.getChars(0, text.length(), buffer, 0);
+            return text.length();
+        }
+        boolean negative = value < 0;
+        long remaining = negative ? -value : value;
+        int end = SCRATCH_LENGTH;
+        do {
+            buffer[--end] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (negative) {
+            buffer[--end] = '-';
+        }
+        int length = SCRATCH_LENGTH - end;
+        System.arraycopy(buffer, end, buffer, 0, length);
+        return length;
+    }
+}
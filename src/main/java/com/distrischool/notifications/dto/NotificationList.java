@@ -0,0 +1,38 @@
+package com.distrischool.notifications.dto;
+
+import com.distrischool.notifications.entity.Notification;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.LongPredicate;
+
+/**
+ * Notifications returned by a listing endpoint, with the read state of the requesting user ({@code read}, by
+ * notification ID). Serialized as an array of {@link NotificationDTO}-shaped objects by
+ * {@link NotificationJsonWriter}, directly into the response stream, without building DTOs.
+ */
+@JsonSerialize(using = NotificationList.Serializer.class)
+public record NotificationList(List<Notification> notifications, LongPredicate read) {
+
+    public int size() {
+        return notifications.size();
+    }
+
+    public static final class Serializer extends StdSerializer<NotificationList> {
+
+        public Serializer() {
+            super(NotificationList.class);
+        }
+
+        @Override
+        public void serialize(NotificationList value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            NotificationJsonWriter.write(generator, value.notifications(),
+                    NotificationJsonWriter.Inclusion.of(provider.getConfig()), value.read());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.distrischool.notifications.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A page of full-text search results, best match first.
+ * {@code nextCursor} is passed back as {@code cursor} to fetch the next page; null on the last page.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationSearchPage {
+
+    private List<NotificationDTO> notifications;
+    private String nextCursor;
+}
@@ -0,0 +1,23 @@
+package com.distrischool.notifications.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Initial state sent with the WebSocket welcome: the user's unread count and the latest notifications, newest first,
+ * read flags as the user set them.
+ * {@code lastId} is the highest notification ID in the snapshot (null when empty); live notification frames
+ * that follow never repeat a notification of the snapshot.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationSnapshot {
+
+    private long unreadCount;
+    private List<NotificationDTO> notifications;
+    private String lastId;
+}
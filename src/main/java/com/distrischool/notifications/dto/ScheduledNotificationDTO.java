@@ -0,0 +1,44 @@
+package com.distrischool.notifications.dto;
+
+import com.distrischool.notifications.entity.ScheduledNotification;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.format.DateTimeFormatter;
+
+/**
+ * A pending scheduled notification, in the format of {@link NotificationDTO} plus its delivery time.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledNotificationDTO {
+
+    private String id;
+    private String eventId;
+    private String type;
+    private String title;
+    private String message;
+    private String deliverAt;
+    private Object data;
+
+    public static ScheduledNotificationDTO fromEntity(ScheduledNotification scheduled, ObjectMapper objectMapper) {
+        ScheduledNotificationDTO dto = new ScheduledNotificationDTO();
+        dto.setId(scheduled.getId().toString());
+        dto.setEventId(scheduled.getEventId());
+        dto.setType(scheduled.getEventType());
+        dto.setTitle(scheduled.getTitle());
+        dto.setMessage(scheduled.getMessage());
+        dto.setDeliverAt(scheduled.getDeliverAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        if (scheduled.getData() != null && !scheduled.getData().isEmpty()) {
+            try {
+                dto.setData(objectMapper.readValue(scheduled.getData(), Object.class));
+            } catch (Exception e) {
+                dto.setData(null);
+            }
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,37 @@
+package com.distrischool.notifications.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Body of {@code POST /api/v1/notifications/scheduled}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledNotificationRequest {
+
+    /**
+     * Optional idempotency key: scheduling the same event ID twice keeps the first, and it becomes the event ID
+     * of the notification. Generated when absent.
+     */
+    private String eventId;
+
+    /**
+     * Notification type, {@code reminder} when absent.
+     */
+    private String type;
+
+    private String title;
+    private String message;
+    private Map<String, Object> data;
+
+    /**
+     * When to deliver, UTC (same format as {@code timestamp}); a time in the past delivers at once.
+     */
+    private LocalDateTime deliverAt;
+}
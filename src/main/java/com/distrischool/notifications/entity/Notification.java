@@ -13,20 +13,35 @@
 /**
  * Notification entity for storing notifications from Kafka events.
  * These notifications are displayed to users in the frontend.
+ * The {@code search_vector} column is maintained by a database trigger and is not mapped.
+ * The table is list-partitioned by {@code tenant_id}; queries filter on it so they touch one partition.
  */
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", uniqueConstraints = @UniqueConstraint(columnNames = {"event_id", "tenant_id"}))
+@SqlResultSetMapping(
+        name = Notification.SEARCH_RESULT_MAPPING,
+        entities = @EntityResult(entityClass = Notification.class),
+        columns = @ColumnResult(name = "rank", type = Float.class)
+)
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Notification {
 
+    /**
+     * Result set mapping for full-text search rows: the notification plus its {@code rank} column.
+     */
+    public static final String SEARCH_RESULT_MAPPING = "NotificationSearchResult";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "event_id", nullable = false, unique = true, length = 255)
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 32)
+    private String tenantId;
+
+    @Column(name = "event_id", nullable = false, length = 255)
     private String eventId;
 
     @Column(name = "event_type", nullable = false, length = 100)
@@ -41,10 +56,6 @@ public class Notification {
     @Column(name = "data", columnDefinition = "TEXT")
     private String data; // JSON string of event data
 
-    @Column(name = "read", nullable = false)
-    @Builder.Default
-    private Boolean read = false;
-
     @Column(name = "timestamp", nullable = false)
     private LocalDateTime timestamp;
 
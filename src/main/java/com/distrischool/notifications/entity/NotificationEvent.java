@@ -0,0 +1,59 @@
+package com.distrischool.notifications.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * A Kafka event aggregated into a digest notification.
+ * Kept for deduplication: the digest's own eventId does not identify the events it summarizes.
+ * The id is assigned, so {@link Persistable} tells Spring Data to insert directly instead of merging.
+ */
+@Entity
+@Table(name = "notification_events")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationEvent implements Persistable<String> {
+
+    @Id
+    @Column(name = "event_id", nullable = false, length = 255)
+    private String eventId;
+
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 32)
+    private String tenantId;
+
+    @Column(name = "notification_id", nullable = false)
+    private Long notificationId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Transient
+    @Builder.Default
+    private boolean newEvent = true;
+
+    @Override
+    public String getId() {
+        return eventId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEvent;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        newEvent = false;
+    }
+}
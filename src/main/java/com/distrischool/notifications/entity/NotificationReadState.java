@@ -0,0 +1,50 @@
+package com.distrischool.notifications.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * The notifications one user of a tenant has read, as a serialized Roaring bitmap of their IDs.
+ * {@code version} increases with every change, so a cached copy is checked for staleness without reading the bitmap.
+ */
+@Entity
+@Table(name = "notification_read_state")
+@IdClass(NotificationReadState.Key.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationReadState {
+
+    @Id
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 32)
+    private String tenantId;
+
+    @Id
+    @Column(name = "user_id", nullable = false, updatable = false, length = 255)
+    private String userId;
+
+    @Column(name = "read_ids", nullable = false)
+    private byte[] readIds;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private String tenantId;
+        private String userId;
+    }
+}
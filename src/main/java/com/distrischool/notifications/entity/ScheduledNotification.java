@@ -0,0 +1,53 @@
+package com.distrischool.notifications.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * A notification to publish at {@code deliverAt}.
+ * The row is deleted in the transaction that saves the {@link Notification}, so only pending deliveries are stored.
+ */
+@Entity
+@Table(name = "scheduled_notifications",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"event_id", "tenant_id"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledNotification {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 32)
+    private String tenantId;
+
+    @Column(name = "event_id", nullable = false, length = 255)
+    private String eventId;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    @Column(name = "title", nullable = false, length = 255)
+    private String title;
+
+    @Column(name = "message", nullable = false, columnDefinition = "TEXT")
+    private String message;
+
+    @Column(name = "data", columnDefinition = "TEXT")
+    private String data; // JSON string of notification data
+
+    @Column(name = "deliver_at", nullable = false)
+    private LocalDateTime deliverAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
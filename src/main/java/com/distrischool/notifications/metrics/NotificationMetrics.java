@@ -0,0 +1,457 @@
+package com.distrischool.notifications.metrics;
+
+import com.distrischool.notifications.service.NotificationPriority;
+import com.distrischool.notifications.service.TenantRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Micrometer instrumentation for the notification pipeline
+ * (Kafka consumption -> persistence -> WebSocket and SSE delivery).
+ *
+ * All meters are registered up front or on the first sighting of an event type, so recording
+ * on the hot path only passes primitives ({@code System.nanoTime()} deltas) and performs no allocation.
+ */
+@Component
+public class NotificationMetrics {
+
+    /**
+     * Upper bound of distinct event type tags, protects Prometheus from unbounded cardinality.
+     */
+    static final int MAX_EVENT_TYPE_TAGS = 64;
+
+    static final String OTHER_EVENT_TYPE = "other";
+
+    /**
+     * Database stages measured by {@link #recordDbTime(DbStage, long)}.
+     */
+    public enum DbStage {
+        LOOKUP("lookup"),
+        INSERT("insert"),
+        UPDATE("update"),
+        QUERY("query");
+
+        private final String tag;
+
+        DbStage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Reasons an inbound WebSocket frame is dropped before parsing, see {@link #inboundDropped(InboundDrop)}.
+     */
+    public enum InboundDrop {
+        RATE("rate"),
+        SIZE("size"),
+        TYPE("type");
+
+        private final String tag;
+
+        InboundDrop(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Pipeline stages served by priority lanes, see {@link #recordLaneWait(LaneStage, NotificationPriority, long)}.
+     */
+    public enum LaneStage {
+        PERSIST("persist"),
+        DISPATCH("dispatch");
+
+        private final String tag;
+
+        LaneStage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * What became of the records read by the Kafka backfill, see {@link #backfilled(BackfillOutcome, long)}.
+     */
+    public enum BackfillOutcome {
+        INSERTED("inserted"),
+        DUPLICATE("duplicate"),
+        SKIPPED("skipped"),
+        FAILED("failed");
+
+        private final String tag;
+
+        BackfillOutcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Timer consumeToPersist;
+    private final Timer persistToSocket;
+    private final Timer deliveryLag;
+    private final Timer scheduledLateness;
+    private final Timer fanOut;
+    private final Counter failedSends;
+    private final DistributionSummary batchSize;
+    private final Counter reapedSessions;
+    private final DistributionSummary digestSize;
+    private final Counter shedConnections;
+    private final Counter policyClosures;
+    private final Counter sseOverflows;
+    private final Counter[] inboundDrops;
+    private final Counter[] backfillRecords;
+    private final Timer[] dbTimers;
+    private final Timer[][] laneWaits;
+    private final Timer[] laneLatencies = new Timer[NotificationPriority.values().length];
+    private final Counter[] laneSloMisses = new Counter[NotificationPriority.values().length];
+    private final long[] laneSloNanos = new long[NotificationPriority.values().length];
+    private final Map<String, Counter> consumedByType = new ConcurrentHashMap<>();
+
+    public NotificationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.consumeToPersist = latencyTimer("notifications.pipeline.consume.to.persist",
+                "Time from Kafka record reception until the notification is persisted");
+        this.persistToSocket = latencyTimer("notifications.pipeline.persist.to.socket",
+                "Time from persistence until the notification is written to every WebSocket session");
+        this.deliveryLag = Timer.builder("notifications.pipeline.delivery.lag")
+                .description("Time from the event timestamp until the notification is delivered to clients")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(registry);
+        this.scheduledLateness = Timer.builder("notifications.scheduled.lateness")
+                .description("Time from the due time of a scheduled notification until it is persisted")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(5))
+                .register(registry);
+        this.fanOut = latencyTimer("notifications.websocket.fanout",
+                "Time spent sending one notification to all connected sessions");
+        this.failedSends = Counter.builder("notifications.websocket.send.failures")
+                .description("WebSocket sends that failed and dropped the session")
+                .register(registry);
+        this.reapedSessions = Counter.builder("notifications.websocket.sessions.reaped")
+                .description("WebSocket sessions closed by the heartbeat after the idle timeout")
+                .register(registry);
+        this.batchSize = DistributionSummary.builder("notifications.websocket.batch.size")
+                .description("Notifications coalesced into one notifications frame")
+                .register(registry);
+        this.digestSize = DistributionSummary.builder("notifications.digest.size")
+                .description("Events aggregated into one digest notification")
+                .register(registry);
+        this.shedConnections = Counter.builder("notifications.websocket.connections.shed")
+                .description("WebSocket connections refused because the node is at its connection cap")
+                .register(registry);
+        this.policyClosures = Counter.builder("notifications.websocket.sessions.policy.closed")
+                .description("WebSocket sessions closed for repeatedly exceeding the inbound limits")
+                .register(registry);
+        this.sseOverflows = Counter.builder("notifications.sse.overflows")
+                .description("SSE streams closed because their frame buffer filled up")
+                .register(registry);
+        InboundDrop[] drops = InboundDrop.values();
+        this.inboundDrops = new Counter[drops.length];
+        for (InboundDrop drop : drops) {
+            inboundDrops[drop.ordinal()] = Counter.builder("notifications.websocket.inbound.dropped")
+                    .description("Inbound WebSocket frames dropped before parsing")
+                    .tag("reason", drop.tag)
+                    .register(registry);
+        }
+        BackfillOutcome[] outcomes = BackfillOutcome.values();
+        this.backfillRecords = new Counter[outcomes.length];
+        for (BackfillOutcome outcome : outcomes) {
+            backfillRecords[outcome.ordinal()] = Counter.builder("notifications.backfill.records")
+                    .description("Kafka records read by the backfill, by outcome")
+                    .tag("outcome", outcome.tag)
+                    .register(registry);
+        }
+        DbStage[] stages = DbStage.values();
+        this.dbTimers = new Timer[stages.length];
+        for (DbStage stage : stages) {
+            dbTimers[stage.ordinal()] = Timer.builder("notifications.db")
+                    .description("Database time per pipeline stage")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(100_000))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+        }
+        LaneStage[] laneStages = LaneStage.values();
+        NotificationPriority[] lanes = NotificationPriority.values();
+        this.laneWaits = new Timer[laneStages.length][lanes.length];
+        for (LaneStage stage : laneStages) {
+            for (NotificationPriority lane : lanes) {
+                laneWaits[stage.ordinal()][lane.ordinal()] = Timer.builder("notifications.lane.queue.wait")
+                        .description("Time an item waited in its priority lane before a worker took it")
+                        .tag("stage", stage.tag)
+                        .tag("lane", lane.tag())
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofNanos(10_000))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(registry);
+            }
+        }
+    }
+
+    private Timer latencyTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+    }
+
+    /**
+     * Registers the active WebSocket session gauge backed by a transport's session registry.
+     */
+    public void registerActiveSessions(String transport, TenantRegistry<?, ?> sessions) {
+        Gauge.builder("notifications.websocket.sessions.active", sessions, TenantRegistry::size)
+                .description("Currently open WebSocket sessions")
+                .tag("transport", transport)
+                .register(registry);
+    }
+
+    /**
+     * Registers the open SSE stream gauge backed by the SSE hub's subscriber registry.
+     */
+    public void registerSseSubscribers(TenantRegistry<?, ?> subscribers) {
+        Gauge.builder("notifications.sse.streams.active", subscribers, TenantRegistry::size)
+                .description("Currently open Server-Sent Events streams")
+                .register(registry);
+    }
+
+    /**
+     * Registers the read replica gauges: age of the latest heartbeat seen on the replica (-1 when unknown) and
+     * whether read-only queries are routed to it (1/0).
+     */
+    public void registerReplicaLag(LongSupplier stalenessMs, BooleanSupplier fresh) {
+        Gauge.builder("notifications.datasource.replica.staleness", stalenessMs, LongSupplier::getAsLong)
+                .description("Replication lag measured by the heartbeat, -1 when unknown")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("notifications.datasource.replica.fresh", fresh, f -> f.getAsBoolean() ? 1 : 0)
+                .description("1 while read-only queries are routed to the read replica")
+                .register(registry);
+    }
+
+    /**
+     * Registers the cold start gauge: time from JVM start until the first notification was broadcast.
+     */
+    public void registerFirstNotification(LongSupplier uptimeMs) {
+        Gauge.builder("notifications.startup.first.notification", uptimeMs, LongSupplier::getAsLong)
+                .description("Time from JVM start until the first notification was broadcast, -1 until then")
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+
+    /**
+     * Registers the gauge of scheduled notifications loaded into the scheduler's timing wheel.
+     */
+    public void registerScheduledLoaded(IntSupplier loaded) {
+        Gauge.builder("notifications.scheduled.loaded", loaded, IntSupplier::getAsInt)
+                .description("Scheduled notifications within the horizon, held in memory until due")
+                .register(registry);
+    }
+
+    /**
+     * Registers the gauge of per-user read states cached in memory.
+     */
+    public void registerReadStatesCached(IntSupplier cached) {
+        Gauge.builder("notifications.read_state.cached", cached, IntSupplier::getAsInt)
+                .description("Users whose read bitmap is cached on this instance")
+                .register(registry);
+    }
+
+    /**
+     * Registers the gauge of records the backfill has yet to read, up to the end offsets taken at its start.
+     */
+    public void registerBackfillRemaining(LongSupplier remaining) {
+        Gauge.builder("notifications.backfill.remaining", remaining, LongSupplier::getAsLong)
+                .description("Kafka records left until the backfill hands off to the live consumer")
+                .register(registry);
+    }
+
+    /**
+     * Registers the end-to-end latency timer of a priority lane, with its objective as a histogram bucket, and the
+     * counter of notifications that missed it.
+     */
+    public void registerLane(NotificationPriority lane, Duration slo) {
+        laneSloNanos[lane.ordinal()] = slo.toNanos();
+        laneLatencies[lane.ordinal()] = Timer.builder("notifications.lane.latency")
+                .description("Time from Kafka record reception until the notification is handed to every transport")
+                .tag("lane", lane.tag())
+                .publishPercentileHistogram()
+                .serviceLevelObjectives(slo)
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry);
+        laneSloMisses[lane.ordinal()] = Counter.builder("notifications.lane.slo.misses")
+                .description("Notifications handed to the transports later than their lane's latency objective")
+                .tag("lane", lane.tag())
+                .register(registry);
+    }
+
+    /**
+     * Registers the depth gauge of one priority lane.
+     */
+    public void registerLaneQueue(LaneStage stage, NotificationPriority lane, IntSupplier depth) {
+        Gauge.builder("notifications.lane.queue.size", depth, IntSupplier::getAsInt)
+                .description("Items waiting in a priority lane")
+                .tag("stage", stage.tag)
+                .tag("lane", lane.tag())
+                .register(registry);
+    }
+
+    /**
+     * Registers the consumption backpressure gauges: notifications in flight, paused state (1/0) and watermarks.
+     */
+    public void registerBackpressure(AtomicInteger inFlight, BooleanSupplier paused, int highWaterMark, int lowWaterMark) {
+        Gauge.builder("notifications.backpressure.in.flight", inFlight, AtomicInteger::get)
+                .description("Notifications consumed from Kafka and not yet dispatched to every transport")
+                .register(registry);
+        Gauge.builder("notifications.backpressure.paused", paused, p -> p.getAsBoolean() ? 1 : 0)
+                .description("1 while Kafka consumption is paused by backpressure")
+                .register(registry);
+        Gauge.builder("notifications.backpressure.water.mark", () -> highWaterMark)
+                .description("In-flight notifications that pause (high) or resume (low) consumption")
+                .tag("level", "high")
+                .register(registry);
+        Gauge.builder("notifications.backpressure.water.mark", () -> lowWaterMark)
+                .description("In-flight notifications that pause (high) or resume (low) consumption")
+                .tag("level", "low")
+                .register(registry);
+    }
+
+    /**
+     * Counts one consumed event for the per-type throughput rate.
+     */
+    public void eventConsumed(String eventType) {
+        String key = eventType != null ? eventType : OTHER_EVENT_TYPE;
+        Counter counter = consumedByType.get(key);
+        if (counter == null) {
+            counter = registerConsumedCounter(key);
+        }
+        counter.increment();
+    }
+
+    private Counter registerConsumedCounter(String eventType) {
+        if (consumedByType.size() >= MAX_EVENT_TYPE_TAGS) {
+            return consumedCounter(OTHER_EVENT_TYPE);
+        }
+        Counter counter = consumedCounter(eventType);
+        Counter existing = consumedByType.putIfAbsent(eventType, counter);
+        return existing != null ? existing : counter;
+    }
+
+    private Counter consumedCounter(String tag) {
+        return Counter.builder("notifications.events.consumed")
+                .description("Events consumed from Kafka per event type")
+                .tag("event.type", tag)
+                .register(registry);
+    }
+
+    public void recordConsumeToPersist(long nanos) {
+        consumeToPersist.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPersistToSocket(long nanos) {
+        persistToSocket.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFanOut(long nanos) {
+        fanOut.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBatch(int notifications) {
+        batchSize.record(notifications);
+    }
+
+    public void recordDigest(int events) {
+        digestSize.record(events);
+    }
+
+    public void connectionShed() {
+        shedConnections.increment();
+    }
+
+    public void inboundDropped(InboundDrop reason) {
+        inboundDrops[reason.ordinal()].increment();
+    }
+
+    public void sessionClosedForPolicy() {
+        policyClosures.increment();
+    }
+
+    public void sseOverflow() {
+        sseOverflows.increment();
+    }
+
+    public void backfilled(BackfillOutcome outcome, long records) {
+        backfillRecords[outcome.ordinal()].increment(records);
+    }
+
+    public void sessionReaped() {
+        reapedSessions.increment();
+    }
+
+    public void sendFailed() {
+        failedSends.increment();
+    }
+
+    public void recordLaneWait(LaneStage stage, NotificationPriority lane, long nanos) {
+        laneWaits[stage.ordinal()][lane.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the end-to-end latency of a lane; the lane must have been registered with
+     * {@link #registerLane(NotificationPriority, Duration)}.
+     */
+    public void recordLaneLatency(NotificationPriority lane, long nanos) {
+        laneLatencies[lane.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+        if (nanos > laneSloNanos[lane.ordinal()]) {
+            laneSloMisses[lane.ordinal()].increment();
+        }
+    }
+
+    public void recordDbTime(DbStage stage, long nanos) {
+        dbTimers[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the lag between the event timestamp and now.
+     * Event timestamps are {@link LocalDateTime} values produced in UTC (see hibernate jdbc time_zone).
+     */
+    public void recordDeliveryLag(LocalDateTime eventTimestamp) {
+        if (eventTimestamp == null) {
+            return;
+        }
+        long lag = System.currentTimeMillis() - epochMillis(eventTimestamp);
+        if (lag >= 0) {
+            deliveryLag.record(lag, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Records how late a scheduled notification due at {@code dueAt} (UTC) was persisted.
+     */
+    public void recordScheduledLateness(LocalDateTime dueAt) {
+        scheduledLateness.record(Math.max(0, System.currentTimeMillis() - epochMillis(dueAt)), TimeUnit.MILLISECONDS);
+    }
+
+    private static long epochMillis(LocalDateTime utc) {
+        return utc.toEpochSecond(ZoneOffset.UTC) * 1000L + utc.getNano() / 1_000_000;
+    }
+}
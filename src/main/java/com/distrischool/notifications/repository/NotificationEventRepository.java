@@ -0,0 +1,30 @@
+package com.distrischool.notifications.repository;
+
+import com.distrischool.notifications.entity.NotificationEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for events aggregated into digest notifications.
+ */
+@Repository
+public interface NotificationEventRepository extends JpaRepository<NotificationEvent, String> {
+
+    /**
+     * Find an event of a tenant aggregated into a digest.
+     */
+    Optional<NotificationEvent> findByTenantIdAndEventId(String tenantId, String eventId);
+
+    /**
+     * Returns which of the given event IDs were already aggregated into a digest of the tenant.
+     */
+    @Query("select e.eventId from NotificationEvent e where e.tenantId = :tenantId and e.eventId in :eventIds")
+    List<String> findExistingEventIds(@Param("tenantId") String tenantId,
+                                      @Param("eventIds") Collection<String> eventIds);
+}
@@ -0,0 +1,54 @@
+package com.distrischool.notifications.repository;
+
+import com.distrischool.notifications.entity.NotificationReadState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Repository for per-user read state.
+ *
+ * Read-write by default, for marks. Lookups are read-only, so they borrow from the read pools rather than the
+ * primary pool that ingestion writes through; a user must see their own marks right away, which a lagging replica
+ * would not show, so callers run them with {@link com.distrischool.notifications.service.ReplicaReads#onPrimary}.
+ */
+@Repository
+@Transactional
+public interface NotificationReadStateRepository
+        extends JpaRepository<NotificationReadState, NotificationReadState.Key> {
+
+    @Transactional(readOnly = true)
+    Optional<NotificationReadState> findByTenantIdAndUserId(String tenantId, String userId);
+
+    /**
+     * Current version of a user's read state, to revalidate a cached copy without reading the bitmap.
+     */
+    @Transactional(readOnly = true)
+    @Query("select r.version from NotificationReadState r where r.tenantId = :tenantId and r.userId = :userId")
+    Optional<Long> findVersion(@Param("tenantId") String tenantId, @Param("userId") String userId);
+
+    /**
+     * Locks a user's read state until the end of the transaction, so concurrent marks of the same user apply one
+     * after the other instead of overwriting each other's bitmap.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from NotificationReadState r where r.tenantId = :tenantId and r.userId = :userId")
+    Optional<NotificationReadState> findForUpdate(@Param("tenantId") String tenantId, @Param("userId") String userId);
+
+    /**
+     * Creates an empty read state for the user unless one exists; concurrent first marks of a user both succeed.
+     */
+    @Modifying
+    @Query(value = "insert into notification_read_state (tenant_id, user_id, read_ids, version, updated_at)"
+            + " values (:tenantId, :userId, :readIds, 0, current_timestamp) on conflict do nothing",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("tenantId") String tenantId, @Param("userId") String userId,
+                       @Param("readIds") byte[] readIds);
+}
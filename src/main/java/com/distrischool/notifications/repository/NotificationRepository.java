@@ -1,41 +1,62 @@
 package com.distrischool.notifications.repository;
 
 import com.distrischool.notifications.entity.Notification;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * Repository for Notification entity.
+ * Every query is scoped to one tenant, so it only reads that tenant's partition.
  */
 @Repository
-public interface NotificationRepository extends JpaRepository<Notification, Long> {
+public interface NotificationRepository extends JpaRepository<Notification, Long>,
+        JpaSpecificationExecutor<Notification>, NotificationSearchRepository {
 
     /**
-     * Find all unread notifications ordered by timestamp descending.
+     * Find all notifications of a tenant ordered by timestamp descending.
      */
-    List<Notification> findByReadFalseOrderByTimestampDesc();
+    List<Notification> findByTenantIdOrderByTimestampDesc(String tenantId);
 
     /**
-     * Find all notifications ordered by timestamp descending.
+     * Find a notification of a tenant by ID.
      */
-    List<Notification> findAllByOrderByTimestampDesc();
+    Optional<Notification> findByTenantIdAndId(String tenantId, Long id);
 
     /**
-     * Find notification by ID if it's unread.
+     * Find notification by event ID (to avoid duplicates).
      */
-    Optional<Notification> findByIdAndReadFalse(Long id);
+    Optional<Notification> findByTenantIdAndEventId(String tenantId, String eventId);
 
     /**
-     * Find notification by event ID (to avoid duplicates).
+     * Notifications of a tenant persisted after the given ID, oldest first (SSE Last-Event-ID replay).
      */
-    Optional<Notification> findByEventId(String eventId);
-}
-
-
-
+    List<Notification> findByTenantIdAndIdGreaterThanOrderByIdAsc(String tenantId, Long id, Limit limit);
 
+    /**
+     * IDs and creation times of a tenant's notifications after the given ID, in ID order: one range scan of the
+     * partition's primary key (see {@code NotificationIdIndex}).
+     */
+    @Query("select n.id, n.createdAt from Notification n where n.tenantId = :tenantId and n.id > :after order by n.id")
+    List<Object[]> findIdsAfter(@Param("tenantId") String tenantId, @Param("after") long after, Limit limit);
 
+    /**
+     * Highest ID and latest update time per tenant, one row per tenant with notifications.
+     */
+    @Query("select n.tenantId, max(n.id), max(n.updatedAt) from Notification n group by n.tenantId")
+    List<Object[]> findChangeWatermarks();
 
+    /**
+     * Returns which of the given event IDs already have a notification of the tenant.
+     */
+    @Query("select n.eventId from Notification n where n.tenantId = :tenantId and n.eventId in :eventIds")
+    List<String> findExistingEventIds(@Param("tenantId") String tenantId,
+                                      @Param("eventIds") Collection<String> eventIds);
+}
@@ -0,0 +1,35 @@
+package com.distrischool.notifications.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in ranked search results: the rank and id of the last hit returned.
+ *
+ * Encoded as an opaque URL-safe token. The rank travels as its exact float bits, so the next page resumes
+ * at the same {@code (rank, id)} key the database compares against.
+ */
+public record NotificationSearchCursor(float rank, long id) {
+
+    public String encode() {
+        String key = Integer.toHexString(Float.floatToIntBits(rank)) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static NotificationSearchCursor decode(String token) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            int separator = key.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid search cursor");
+            }
+            float rank = Float.intBitsToFloat(Integer.parseUnsignedInt(key.substring(0, separator), 16));
+            return new NotificationSearchCursor(rank, Long.parseLong(key.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid search cursor", e);
+        }
+    }
+}
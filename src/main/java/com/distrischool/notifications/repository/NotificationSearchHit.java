@@ -0,0 +1,13 @@
+package com.distrischool.notifications.repository;
+
+import com.distrischool.notifications.entity.Notification;
+
+/**
+ * A search match and its {@code ts_rank}.
+ */
+public record NotificationSearchHit(Notification notification, float rank) {
+
+    public NotificationSearchCursor cursor() {
+        return new NotificationSearchCursor(rank, notification.getId());
+    }
+}
@@ -0,0 +1,16 @@
+package com.distrischool.notifications.repository;
+
+import java.util.List;
+
+/**
+ * Full-text search over notifications, backed by the {@code search_vector} column and its GIN index.
+ */
+public interface NotificationSearchRepository {
+
+    /**
+     * Finds notifications of the tenant matching a web-search style query ({@code websearch_to_tsquery}, Portuguese
+     * configuration), best match first, ties broken by newest id. Pass the cursor of the last hit of the
+     * previous page to continue after it, or {@code null} for the first page.
+     */
+    List<NotificationSearchHit> search(String tenantId, String query, NotificationSearchCursor after, int limit);
+}
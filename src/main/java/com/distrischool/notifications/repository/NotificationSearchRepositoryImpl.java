@@ -0,0 +1,57 @@
+package com.distrischool.notifications.repository;
+
+import com.distrischool.notifications.entity.Notification;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Native PostgreSQL implementation of {@link NotificationSearchRepository}.
+ *
+ * The tenant filter prunes the scan to one partition, whose GIN index on {@code search_vector} narrows it to the
+ * matching rows; only those are ranked.
+ * Pages are keyset-paginated on {@code (rank, id)}, so deep pages cost the same as the first one.
+ */
+public class NotificationSearchRepositoryImpl implements NotificationSearchRepository {
+
+    private static final String MATCHES = """
+            SELECT n.*, ts_rank(n.search_vector, q) AS rank
+            FROM notifications n, websearch_to_tsquery('portuguese', :query) q
+            WHERE n.tenant_id = :tenantId AND n.search_vector @@ q
+            """;
+
+    private static final String FIRST_PAGE = "SELECT * FROM (" + MATCHES + ") hits"
+            + " ORDER BY hits.rank DESC, hits.id DESC LIMIT :limit";
+
+    private static final String NEXT_PAGE = "SELECT * FROM (" + MATCHES + ") hits"
+            + " WHERE hits.rank < CAST(:afterRank AS real)"
+            + " OR (hits.rank = CAST(:afterRank AS real) AND hits.id < :afterId)"
+            + " ORDER BY hits.rank DESC, hits.id DESC LIMIT :limit";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<NotificationSearchHit> search(String tenantId, String query, NotificationSearchCursor after, int limit) {
+        Query nativeQuery = entityManager.createNativeQuery(after == null ? FIRST_PAGE : NEXT_PAGE,
+                Notification.SEARCH_RESULT_MAPPING);
+        nativeQuery.setParameter("tenantId", tenantId);
+        nativeQuery.setParameter("query", query);
+        nativeQuery.setParameter("limit", limit);
+        if (after != null) {
+            nativeQuery.setParameter("afterRank", after.rank());
+            nativeQuery.setParameter("afterId", after.id());
+        }
+
+        List<?> rows = nativeQuery.getResultList();
+        List<NotificationSearchHit> hits = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            hits.add(new NotificationSearchHit((Notification) columns[0], ((Number) columns[1]).floatValue()));
+        }
+        return hits;
+    }
+}
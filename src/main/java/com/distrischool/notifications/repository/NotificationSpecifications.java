@@ -0,0 +1,62 @@
+package com.distrischool.notifications.repository;
+
+import com.distrischool.notifications.entity.Notification;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Criteria for the filtered notifications query.
+ *
+ * The tenant is required and selects one partition of the table. Every other filter is optional; the ones given
+ * are combined with AND into a single SQL statement. The predicates line up with the composite indexes from
+ * V3__Add_notifications_filter_indexes.sql, which exist on every partition. Read state is per user and kept
+ * outside the table (see V8); it is matched by notification ID with {@link #idIn} and {@link #idNotIn}.
+ */
+public final class NotificationSpecifications {
+
+    private NotificationSpecifications() {
+    }
+
+    /**
+     * @param tenantId   tenant whose notifications are matched
+     * @param eventTypes event types to include, or null/empty for all
+     * @param from       inclusive lower bound on the event timestamp, or null
+     * @param to         exclusive upper bound on the event timestamp, or null
+     */
+    public static Specification<Notification> matching(String tenantId, Collection<String> eventTypes,
+                                                       LocalDateTime from, LocalDateTime to) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>(4);
+            predicates.add(cb.equal(root.get("tenantId"), tenantId));
+            if (eventTypes != null && !eventTypes.isEmpty()) {
+                predicates.add(root.get("eventType").in(eventTypes));
+            }
+            if (from != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("timestamp"), from));
+            }
+            if (to != null) {
+                predicates.add(cb.lessThan(root.get("timestamp"), to));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Notifications with one of the given IDs; looked up through the primary key of the tenant's partition.
+     */
+    public static Specification<Notification> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    /**
+     * Notifications with none of the given IDs, or all of them if there are none.
+     */
+    public static Specification<Notification> idNotIn(Collection<Long> ids) {
+        return (root, query, cb) -> ids.isEmpty() ? cb.conjunction() : cb.not(root.get("id").in(ids));
+    }
+}
@@ -0,0 +1,72 @@
+package com.distrischool.notifications.repository;
+
+import com.distrischool.notifications.entity.ScheduledNotification;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for notifications pending delivery at a future time.
+ */
+@Repository
+public interface ScheduledNotificationRepository extends JpaRepository<ScheduledNotification, Long> {
+
+    /**
+     * Pending notification of a tenant with the given event ID.
+     */
+    Optional<ScheduledNotification> findByTenantIdAndEventId(String tenantId, String eventId);
+
+    /**
+     * Pending notifications of a tenant, soonest first.
+     */
+    List<ScheduledNotification> findByTenantIdOrderByDeliverAtAscIdAsc(String tenantId, Limit limit);
+
+    /**
+     * Keys due before {@code until} that follow the {@code (at, id)} cursor, in cursor order. The redundant
+     * {@code deliverAt >= :at} bounds one range scan of the {@code (deliver_at, id)} index that stops at the limit;
+     * with the {@code or} alone PostgreSQL reads and sorts the whole range first.
+     */
+    @Query("select new com.distrischool.notifications.repository.ScheduledSlot(s.id, s.tenantId, s.deliverAt)"
+            + " from ScheduledNotification s"
+            + " where s.deliverAt >= :at and (s.deliverAt > :at or s.id > :id) and s.deliverAt < :until"
+            + " order by s.deliverAt, s.id")
+    List<ScheduledSlot> findSlotsAfter(@Param("at") LocalDateTime at, @Param("id") Long id,
+                                       @Param("until") LocalDateTime until, Limit limit);
+
+    /**
+     * Keys due before {@code until}, oldest first.
+     */
+    @Query("select new com.distrischool.notifications.repository.ScheduledSlot(s.id, s.tenantId, s.deliverAt)"
+            + " from ScheduledNotification s where s.deliverAt < :until order by s.deliverAt, s.id")
+    List<ScheduledSlot> findSlotsBefore(@Param("until") LocalDateTime until, Limit limit);
+
+    /**
+     * Locks the given pending notifications for delivery, skipping rows another transaction holds: with several
+     * instances due at once, each row is delivered by the instance that locks it first, and the others do not wait.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select s from ScheduledNotification s where s.id in :ids")
+    List<ScheduledNotification> claim(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Cancels a pending notification of a tenant.
+     *
+     * @return 1 if it was pending, 0 if it does not exist or was already delivered
+     */
+    @Modifying
+    @Query("delete from ScheduledNotification s where s.tenantId = :tenantId and s.id = :id")
+    int deleteByTenantIdAndId(@Param("tenantId") String tenantId, @Param("id") Long id);
+}
@@ -0,0 +1,9 @@
+package com.distrischool.notifications.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Key of a pending scheduled notification: what the scheduler keeps in memory, without the content.
+ */
+public record ScheduledSlot(Long id, String tenantId, LocalDateTime deliverAt) {
+}
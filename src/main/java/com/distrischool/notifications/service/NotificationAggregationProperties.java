@@ -0,0 +1,74 @@
+package com.distrischool.notifications.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-event-type rules for {@link NotificationAggregator}, bound from {@code notifications.aggregation}.
+ * Event types are matched after normalization ({@code USER_CREATED} and {@code user.created} are the same).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "notifications.aggregation")
+public class NotificationAggregationProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Event data of the first events of a digest kept as samples.
+     */
+    private int sampleSize = 5;
+
+    /**
+     * Aggregated event types; types not listed here become one notification per event.
+     */
+    private Map<String, Rule> types = new HashMap<>();
+
+    /**
+     * The rule for an event type, or null when the type is not aggregated.
+     */
+    public Rule ruleFor(String normalizedEventType) {
+        if (!enabled) {
+            return null;
+        }
+        Rule rule = types.get(normalizedEventType);
+        return rule != null && rule.isEnabled() ? rule : null;
+    }
+
+    @Data
+    public static class Rule {
+
+        private boolean enabled = true;
+
+        /**
+         * The window closes once no event of the type arrived for this long (sliding window).
+         */
+        private long windowMs = 1000;
+
+        /**
+         * Upper bound on how long the first event of a window waits, however busy the window stays.
+         */
+        private long maxDelayMs = 5000;
+
+        /**
+         * Windows with fewer events are stored as individual notifications.
+         */
+        private int minEvents = 3;
+
+        /**
+         * The window closes as soon as it holds this many events.
+         */
+        private int maxEvents = 1000;
+
+        private String title = "Notificações Agrupadas";
+
+        /**
+         * {@link String#format} pattern for the digest message; the argument is the event count.
+         */
+        private String message = "%d notificações";
+    }
+}
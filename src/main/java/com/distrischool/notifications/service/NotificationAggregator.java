@@ -0,0 +1,227 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.template.kafka.DistriSchoolEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Aggregation stage between the Kafka listener and {@link NotificationService}.
+ *
+ * Events of a type configured in {@link NotificationAggregationProperties} open a window that stays open while
+ * events of the same type and tenant keep arriving within {@code window-ms} of each other (sliding), for at most
+ * {@code max-delay-ms}, or until it holds {@code max-events}. A closed window with at least {@code min-events}
+ * events becomes one digest notification ("35 usuários criados"); smaller windows are stored one notification
+ * per event as before. Other event types, and types of the urgent lane whatever their rule, are saved immediately
+ * on the calling ingestion worker ({@link NotificationIngestion}).
+ *
+ * Windows are closed and persisted on a single flush thread. Buffered events count as in flight for
+ * {@link NotificationBackpressure}, and keep their Kafka offsets uncommitted, until their window is persisted.
+ *
+ * Windows are keyed by tenant and type, so a digest never mixes schools. The tenant's partition is requested here
+ * (see {@link TenantPartitions}).
+ */
+@Slf4j
+@Component
+public class NotificationAggregator {
+
+    private final NotificationService notificationService;
+    private final NotificationAggregationProperties properties;
+    private final NotificationPriorityProperties priorities;
+    private final NotificationBackpressure backpressure;
+    private final TenantResolver tenantResolver;
+    private final TenantPartitions tenantPartitions;
+    private final ScheduledExecutorService flushThread;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<WindowKey, Window> windows = new HashMap<>();
+
+    public NotificationAggregator(NotificationService notificationService,
+                                  NotificationAggregationProperties properties,
+                                  NotificationPriorityProperties priorities,
+                                  NotificationBackpressure backpressure,
+                                  TenantResolver tenantResolver,
+                                  TenantPartitions tenantPartitions) {
+        this.notificationService = notificationService;
+        this.properties = properties;
+        this.priorities = priorities;
+        this.backpressure = backpressure;
+        this.tenantResolver = tenantResolver;
+        this.tenantPartitions = tenantPartitions;
+        this.flushThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-aggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Saves the event as a notification, now or as part of a digest when its window closes.
+     *
+     * @param receivedNanos {@link System#nanoTime()} at Kafka reception, for the consume-to-persist latency
+     * @param persisted     run once the event is handled, saved or failed, so its Kafka offset can be committed;
+     *                      for a buffered event, once its window is persisted
+     * @throws IllegalArgumentException if the event metadata carries a malformed tenant
+     */
+    public void submit(DistriSchoolEvent event, long receivedNanos, Runnable persisted) {
+        Window full = null;
+        boolean buffered = false;
+        try {
+            String tenant = tenantResolver.fromEvent(event);
+            String eventType = NotificationService.normalizeEventType(event.getEventType());
+            // A window would hold an urgent event back for up to max-delay-ms
+            NotificationAggregationProperties.Rule rule = priorities.laneOf(eventType) == NotificationPriority.URGENT
+                    ? null : properties.ruleFor(eventType);
+            if (rule == null) {
+                tenantPartitions.ensure(tenant);
+                notificationService.saveNotification(event, receivedNanos);
+                return;
+            }
+            WindowKey key = new WindowKey(tenant, eventType);
+
+            backpressure.acquire();
+            lock.lock();
+            try {
+                Window window = windows.get(key);
+                if (window == null) {
+                    Window opened = new Window(key, rule, receivedNanos);
+                    windows.put(key, opened);
+                    flushThread.schedule(() -> check(opened), rule.getWindowMs(), TimeUnit.MILLISECONDS);
+                    window = opened;
+                }
+                window.events.add(event);
+                window.persisted.add(persisted);
+                buffered = true;
+                window.lastArrivalNanos = receivedNanos;
+                if (window.events.size() >= rule.getMaxEvents()) {
+                    windows.remove(key);
+                    window.closed = true;
+                    full = window;
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            if (!buffered) {
+                persisted.run();
+            }
+        }
+
+        if (full != null) {
+            Window closed = full;
+            flushThread.execute(() -> flush(closed));
+        }
+    }
+
+    /**
+     * Persists every open window, then stops the flush thread.
+     * Runs after the listener container has stopped, so no event arrives meanwhile.
+     */
+    @PreDestroy
+    public void shutdown() {
+        List<Window> open;
+        lock.lock();
+        try {
+            open = new ArrayList<>(windows.values());
+            windows.clear();
+            open.forEach(window -> window.closed = true);
+        } finally {
+            lock.unlock();
+        }
+        flushThread.shutdown();
+        try {
+            flushThread.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        open.forEach(this::flush);
+    }
+
+    /**
+     * Closes the window once its deadline has passed, otherwise checks again at the deadline.
+     * Rescheduling on expiry keeps the per-event cost at a list append instead of a timer reset.
+     */
+    private void check(Window window) {
+        long remainingNanos;
+        lock.lock();
+        try {
+            if (window.closed) {
+                return;
+            }
+            long deadline = Math.min(
+                    window.lastArrivalNanos + TimeUnit.MILLISECONDS.toNanos(window.rule.getWindowMs()),
+                    window.firstArrivalNanos + TimeUnit.MILLISECONDS.toNanos(window.rule.getMaxDelayMs()));
+            remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                windows.remove(window.key);
+                window.closed = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (remainingNanos > 0) {
+            flushThread.schedule(() -> check(window), remainingNanos, TimeUnit.NANOSECONDS);
+        } else {
+            flush(window);
+        }
+    }
+
+    private void flush(Window window) {
+        List<DistriSchoolEvent> events = window.events;
+        try {
+            tenantPartitions.ensure(window.key.tenant());
+            if (events.size() < window.rule.getMinEvents()) {
+                for (DistriSchoolEvent event : events) {
+                    try {
+                        notificationService.saveNotification(event, window.firstArrivalNanos);
+                    } catch (Exception e) {
+                        log.error("Error saving notification for event {}: {}", event.getEventId(), e.getMessage(), e);
+                    }
+                }
+            } else {
+                notificationService.saveDigest(events, window.rule, properties.getSampleSize(), window.firstArrivalNanos);
+                log.info("Aggregated {} {} events of tenant {} into a digest notification", events.size(),
+                        window.key.eventType(), window.key.tenant());
+            }
+        } catch (Exception e) {
+            log.error("Error saving digest of {} {} events: {}", events.size(), window.key.eventType(), e.getMessage(), e);
+        } finally {
+            backpressure.release(events.size());
+            window.persisted.forEach(Runnable::run);
+        }
+    }
+
+    private record WindowKey(String tenant, String eventType) {
+    }
+
+    /**
+     * Events of one tenant and type collected since the window opened. Guarded by the lock until {@code closed},
+     * then owned by the thread that flushes it.
+     */
+    private static final class Window {
+
+        private final WindowKey key;
+        private final NotificationAggregationProperties.Rule rule;
+        private final long firstArrivalNanos;
+        private final List<DistriSchoolEvent> events = new ArrayList<>();
+        private final List<Runnable> persisted = new ArrayList<>();
+        private long lastArrivalNanos;
+        private boolean closed;
+
+        private Window(WindowKey key, NotificationAggregationProperties.Rule rule, long firstArrivalNanos) {
+            this.key = key;
+            this.rule = rule;
+            this.firstArrivalNanos = firstArrivalNanos;
+            this.lastArrivalNanos = firstArrivalNanos;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.distrischool.notifications.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Historical backfill from Kafka, bound from {@code notifications.backfill}; see
+ * {@link com.distrischool.template.kafka.EventBackfill}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "notifications.backfill")
+public class NotificationBackfillProperties {
+
+    /**
+     * Rebuild notifications from the topics at startup; the live listener starts once the backfill is done.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Consumer group of the backfill, separate from the live one. It starts from the earliest offsets and commits
+     * after every batch, so an interrupted backfill resumes where it stopped; a new group ID reads everything again.
+     */
+    private String groupId = "notifications-backfill";
+
+    /**
+     * Records per poll, and rows per COPY transaction.
+     */
+    private int batchSize = 5000;
+
+    /**
+     * Threads decoding and templating the records of a poll; 0 = one per CPU.
+     */
+    private int decodeThreads = 0;
+
+    /**
+     * Interval between progress logs.
+     */
+    private long reportIntervalMs = 10_000;
+}
@@ -0,0 +1,114 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Backpressure from notification dispatch to Kafka consumption.
+ *
+ * Counts notifications in flight: records being processed by the event listener (conversion, persistence,
+ * broadcast) plus notifications still waiting in a WebSocket batch window or flush queue. When the count
+ * reaches the high-water mark the listener container pauses its assigned partitions; it resumes once the
+ * count drops to the low-water mark. The consumer keeps polling while paused, so the group does not rebalance.
+ */
+@Slf4j
+@Component
+public class NotificationBackpressure {
+
+    /**
+     * Id of the {@code @KafkaListener} that is paused and resumed.
+     */
+    public static final String LISTENER_ID = "notificationEventsListener";
+
+    private final ObjectProvider<KafkaListenerEndpointRegistry> registry;
+    private final boolean enabled;
+    private final int highWaterMark;
+    private final int lowWaterMark;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock transition = new ReentrantLock();
+    private volatile boolean paused;
+
+    public NotificationBackpressure(ObjectProvider<KafkaListenerEndpointRegistry> registry,
+                                    NotificationMetrics metrics,
+                                    @Value("${notifications.backpressure.enabled:true}") boolean enabled,
+                                    @Value("${notifications.backpressure.high-water-mark:1000}") int highWaterMark,
+                                    @Value("${notifications.backpressure.low-water-mark:500}") int lowWaterMark) {
+        if (lowWaterMark >= highWaterMark) {
+            throw new IllegalArgumentException("notifications.backpressure.low-water-mark must be below the high-water mark");
+        }
+        this.registry = registry;
+        this.enabled = enabled;
+        this.highWaterMark = highWaterMark;
+        this.lowWaterMark = lowWaterMark;
+        metrics.registerBackpressure(inFlight, this::isPaused, highWaterMark, lowWaterMark);
+    }
+
+    /**
+     * Marks one notification as in flight.
+     */
+    public void acquire() {
+        int count = inFlight.incrementAndGet();
+        if (enabled && !paused && count >= highWaterMark) {
+            updateState();
+        }
+    }
+
+    /**
+     * Marks notifications as fully dispatched.
+     */
+    public void release(int notifications) {
+        int count = inFlight.addAndGet(-notifications);
+        if (paused && count <= lowWaterMark) {
+            updateState();
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Re-evaluates the watermarks under a lock, so a pause and a resume racing on different threads
+     * are applied to the container in the order of the decisions.
+     */
+    private void updateState() {
+        transition.lock();
+        try {
+            int count = inFlight.get();
+            if (!paused && count >= highWaterMark) {
+                MessageListenerContainer container = container();
+                if (container != null) {
+                    container.pause();
+                    paused = true;
+                    log.warn("Pausing Kafka consumption: {} notifications in flight (high-water mark {})", count, highWaterMark);
+                }
+            } else if (paused && count <= lowWaterMark) {
+                MessageListenerContainer container = container();
+                if (container != null) {
+                    container.resume();
+                }
+                paused = false;
+                log.info("Resuming Kafka consumption: {} notifications in flight (low-water mark {})", count, lowWaterMark);
+            }
+        } finally {
+            transition.unlock();
+        }
+    }
+
+    private MessageListenerContainer container() {
+        KafkaListenerEndpointRegistry endpoints = registry.getIfAvailable();
+        return endpoints == null ? null : endpoints.getListenerContainer(LISTENER_ID);
+    }
+}
@@ -1,43 +1,121 @@
 package com.distrischool.notifications.service;
 
 import com.distrischool.notifications.entity.Notification;
-import com.distrischool.notifications.websocket.NotificationWebSocketHandler;
-import lombok.RequiredArgsConstructor;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.metrics.NotificationMetrics.LaneStage;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
 /**
  * Service for broadcasting notifications via WebSocket to connected clients.
+ * This is the single broadcast source: every active transport registers as a {@link NotificationSubscriber}.
+ *
+ * Persisted notifications are {@linkplain #dispatch dispatched} through priority lanes: dispatch workers hand them
+ * to the transports in weighted order, so an urgent notification overtakes a queue of bulk ones, and the
+ * persisting thread never waits on the fan-out. Each lane's latency from Kafka reception until the hand-over is
+ * measured against its objective ({@code notifications.lane.latency}).
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class NotificationBroadcastService {
 
-    private final NotificationWebSocketHandler webSocketHandler;
+    private final List<NotificationSubscriber> subscribers;
+    private final NotificationPriorityProperties priorities;
+    private final NotificationBackpressure backpressure;
+    private final NotificationMetrics metrics;
+    private final PriorityLanes<Dispatch> lanes;
+    // IDs queued for dispatch; the lowest bounds the resume ID of notifications that overtake it
+    private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+
+    public NotificationBroadcastService(List<NotificationSubscriber> subscribers,
+                                        NotificationPriorityProperties priorities,
+                                        NotificationBackpressure backpressure,
+                                        NotificationMetrics metrics) {
+        this.subscribers = subscribers;
+        this.priorities = priorities;
+        this.backpressure = backpressure;
+        this.metrics = metrics;
+        for (NotificationPriority priority : NotificationPriority.values()) {
+            metrics.registerLane(priority, Duration.ofMillis(priorities.lane(priority).getSloMs()));
+        }
+        this.lanes = new PriorityLanes<>("notification-dispatch", LaneStage.DISPATCH, priorities,
+                priorities.getDispatchWorkers(), metrics, this::deliver);
+    }
+
+    /**
+     * Hands every queued notification to the transports. The transports are destroyed after this service.
+     */
+    @PreDestroy
+    public void shutdown() {
+        lanes.shutdown();
+    }
+
+    /**
+     * Queues a persisted notification on the dispatch lane of its event type. The notification counts as in
+     * flight for {@link NotificationBackpressure} until every transport has it.
+     *
+     * @param receivedNanos {@link System#nanoTime()} at Kafka reception
+     * @param persistedNanos {@link System#nanoTime()} after the insert
+     */
+    public void dispatch(Notification notification, long receivedNanos, long persistedNanos) {
+        NotificationPriority priority = priorities.laneOf(
+                NotificationService.normalizeEventType(notification.getEventType()));
+        backpressure.acquire();
+        pending.add(notification.getId());
+        lanes.submit(priority, new Dispatch(notification, priority, receivedNanos, persistedNanos));
+    }
 
     /**
      * Broadcasts a notification to all connected WebSocket clients.
-     * 
+     *
      * @param notification The notification to broadcast
      */
     public void broadcastNotification(Notification notification) {
-        try {
-            webSocketHandler.broadcastNotification(notification);
-            log.info("Broadcasted notification {} to WebSocket clients", notification.getId());
-        } catch (Exception e) {
-            log.error("Error broadcasting notification {}: {}", notification.getId(), e.getMessage(), e);
-        }
+        broadcast(notification, NotificationPriority.NORMAL, notification.getId());
     }
 
     /**
      * Broadcasts a notification with a custom message format.
-     * 
+     *
      * @param notification The notification to broadcast
      */
     public void broadcastNotificationWithWrapper(Notification notification) {
         // Same as broadcastNotification for plain WebSocket
         broadcastNotification(notification);
     }
-}
 
+    private void deliver(Dispatch dispatch) {
+        Notification notification = dispatch.notification();
+        try {
+            pending.remove(notification.getId());
+            Long lowest = pending.ceiling(Long.MIN_VALUE);
+            long resumeId = lowest != null && lowest < notification.getId() ? lowest - 1 : notification.getId();
+            broadcast(notification, dispatch.priority(), resumeId);
+            long now = System.nanoTime();
+            metrics.recordPersistToSocket(now - dispatch.persistedNanos());
+            metrics.recordLaneLatency(dispatch.priority(), now - dispatch.receivedNanos());
+        } finally {
+            backpressure.release(1);
+        }
+    }
+
+    private void broadcast(Notification notification, NotificationPriority priority, long resumeId) {
+        for (NotificationSubscriber subscriber : subscribers) {
+            try {
+                subscriber.onNotification(notification, priority, resumeId);
+            } catch (Exception e) {
+                log.error("Error broadcasting notification {}: {}", notification.getId(), e.getMessage(), e);
+            }
+        }
+        log.info("Broadcasted notification {} to WebSocket clients", notification.getId());
+    }
+
+    private record Dispatch(Notification notification, NotificationPriority priority, long receivedNanos,
+                            long persistedNanos) {
+    }
+}
@@ -0,0 +1,195 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.entity.Notification;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.metrics.NotificationMetrics.DbStage;
+import com.distrischool.template.kafka.DistriSchoolEvent;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk insertion of notifications built from historical events, for the Kafka backfill.
+ *
+ * A batch is streamed with {@code COPY} into a session-local staging table and moved into {@code notifications} by
+ * one {@code INSERT ... SELECT ... ON CONFLICT DO NOTHING}, in one transaction: rows whose event already has a
+ * notification, directly or through a digest ({@code notification_events}), are skipped, so loading an event
+ * twice, or one the live consumer has saved already, is harmless. Rows are not broadcast; the tenants' change
+ * watermarks advance, so conditional GETs see them. Requires PostgreSQL.
+ */
+@Component
+public class NotificationBulkLoader {
+
+    private static final DateTimeFormatter UTC_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS'+00'");
+
+    private static final String CREATE_STAGING = """
+            CREATE TEMP TABLE IF NOT EXISTS notifications_backfill (
+                tenant_id TEXT, event_id TEXT, event_type TEXT, title TEXT, message TEXT, data TEXT,
+                timestamp TIMESTAMPTZ
+            ) ON COMMIT DELETE ROWS""";
+
+    private static final String COPY_STAGING = "COPY notifications_backfill"
+            + " (tenant_id, event_id, event_type, title, message, data, timestamp) FROM STDIN WITH (FORMAT csv)";
+
+    private static final String INSERT_NEW = """
+            WITH inserted AS (
+                INSERT INTO notifications (tenant_id, event_id, event_type, title, message, data, timestamp)
+                SELECT s.tenant_id, s.event_id, s.event_type, s.title, s.message, s.data, s.timestamp
+                FROM notifications_backfill s
+                WHERE NOT EXISTS (SELECT 1 FROM notification_events e
+                                  WHERE e.event_id = s.event_id AND e.tenant_id = s.tenant_id)
+                ORDER BY s.timestamp, s.event_id
+                ON CONFLICT (event_id, tenant_id) DO NOTHING
+                RETURNING id, tenant_id
+            )
+            SELECT tenant_id, count(*), max(id) FROM inserted GROUP BY tenant_id""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationService notificationService;
+    private final TenantPartitions tenantPartitions;
+    private final NotificationChangeWatermark changeWatermark;
+    private final NotificationMetrics metrics;
+
+    public NotificationBulkLoader(JdbcTemplate jdbcTemplate,
+                                  NotificationService notificationService,
+                                  TenantPartitions tenantPartitions,
+                                  NotificationChangeWatermark changeWatermark,
+                                  NotificationMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationService = notificationService;
+        this.tenantPartitions = tenantPartitions;
+        this.changeWatermark = changeWatermark;
+        this.metrics = metrics;
+    }
+
+    /**
+     * The notification the live consumer would save for the event, not aggregated. Thread-safe.
+     *
+     * @throws IllegalArgumentException if the event carries a malformed tenant, or does not fit the columns (the
+     *                                  live consumer fails on it as well); one such row would fail its whole batch
+     */
+    public Notification toNotification(DistriSchoolEvent event) {
+        Notification notification = notificationService.convertEventToNotification(event);
+        if (notification.getEventId() == null || notification.getEventId().length() > 255
+                || notification.getEventType() == null || notification.getEventType().length() > 100) {
+            throw new IllegalArgumentException("Event " + event.getEventId() + " has no valid ID or type");
+        }
+        return notification;
+    }
+
+    /**
+     * Inserts the notifications whose event has none yet, in one transaction.
+     *
+     * @return notifications inserted per tenant
+     */
+    public Map<String, Integer> load(List<Notification> notifications) {
+        Set<String> tenants = new LinkedHashSet<>();
+        notifications.forEach(notification -> tenants.add(notification.getTenantId()));
+        // Created in the background, see TenantPartitions
+        tenants.forEach(tenantPartitions::ensure);
+
+        long start = System.nanoTime();
+        Map<String, long[]> inserted = jdbcTemplate.execute((ConnectionCallback<Map<String, long[]>>) connection ->
+                copyAndInsert(connection, notifications));
+        metrics.recordDbTime(DbStage.INSERT, System.nanoTime() - start);
+
+        Map<String, Integer> counts = new HashMap<>();
+        inserted.forEach((tenant, countAndMaxId) -> {
+            counts.put(tenant, (int) countAndMaxId[0]);
+            changeWatermark.changed(tenant, countAndMaxId[1]);
+        });
+        return counts;
+    }
+
+    private Map<String, long[]> copyAndInsert(Connection connection, List<Notification> notifications)
+            throws SQLException {
+        if (!connection.isWrapperFor(PGConnection.class)) {
+            throw new IllegalStateException("Bulk loading requires PostgreSQL");
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING);
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new PGCopyOutputStream(connection.unwrap(PGConnection.class), COPY_STAGING, 1 << 16),
+                    StandardCharsets.UTF_8), 1 << 16)) {
+                for (Notification notification : notifications) {
+                    writeRow(out, notification);
+                }
+            } catch (IOException e) {
+                throw e.getCause() instanceof SQLException sql ? sql : new SQLException("COPY failed", e);
+            }
+            Map<String, long[]> inserted = new HashMap<>();
+            try (ResultSet rs = statement.executeQuery(INSERT_NEW)) {
+                while (rs.next()) {
+                    inserted.put(rs.getString(1), new long[] {rs.getLong(2), rs.getLong(3)});
+                }
+            }
+            connection.commit();
+            return inserted;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void writeRow(Writer out, Notification notification) throws IOException {
+        writeField(out, notification.getTenantId());
+        out.write(',');
+        writeField(out, notification.getEventId());
+        out.write(',');
+        writeField(out, notification.getEventType());
+        out.write(',');
+        writeField(out, notification.getTitle());
+        out.write(',');
+        writeField(out, notification.getMessage());
+        out.write(',');
+        writeField(out, notification.getData());
+        out.write(',');
+        // Timestamps are LocalDateTime values in UTC, like every timestamp (see hibernate jdbc time_zone)
+        out.write(UTC_TIMESTAMP.format(notification.getTimestamp()));
+        out.write('\n');
+    }
+
+    /**
+     * A CSV field: null as an unquoted empty field, anything else quoted, so an empty string stays empty.
+     */
+    private static void writeField(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            } else if (c == '\0') {
+                // PostgreSQL text cannot hold NUL
+                continue;
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,126 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.repository.NotificationRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Change watermarks of the notification listings, one per tenant, for conditional GETs (ETag / Last-Modified).
+ *
+ * Derived per tenant from the highest ID and latest {@code updated_at} at startup, then advanced in memory on every
+ * insert, so checking it never touches the database. Read state is per user ({@link NotificationReadStates}):
+ * listings add the user's read state version to the ETag, so one user's marks never invalidate another's.
+ * Changes are applied after their transaction commits: a listing read before that carries the older watermark and
+ * is simply fetched again on the next poll, while a watermark never points at data that is not visible yet. A
+ * tenant without notifications has the baseline watermark (no ID, startup time), and one tenant's changes never
+ * invalidate another tenant's ETags.
+ */
+@Slf4j
+@Component
+public class NotificationChangeWatermark {
+
+    private final NotificationRepository notificationRepository;
+    private final ConcurrentHashMap<String, Watermark> current = new ConcurrentHashMap<>();
+    private volatile Watermark baseline = new Watermark(0, System.currentTimeMillis());
+
+    public NotificationChangeWatermark(NotificationRepository notificationRepository) {
+        this.notificationRepository = notificationRepository;
+    }
+
+    @PostConstruct
+    public void load() {
+        baseline = new Watermark(0, System.currentTimeMillis());
+        for (Object[] row : notificationRepository.findChangeWatermarks()) {
+            long maxId = row[1] instanceof Long id ? id : 0;
+            // Stored times are LocalDateTime values in UTC, like every timestamp (see hibernate jdbc time_zone)
+            long lastModified = row[2] instanceof LocalDateTime updatedAt
+                    ? updatedAt.toInstant(ZoneOffset.UTC).toEpochMilli()
+                    : baseline.lastModified();
+            current.merge((String) row[0], new Watermark(maxId, lastModified), NotificationChangeWatermark::later);
+        }
+        log.info("Notification change watermarks loaded for {} tenants", current.size());
+    }
+
+    public Watermark current(String tenant) {
+        return current.getOrDefault(tenant, baseline);
+    }
+
+    /**
+     * The watermarks of every tenant at this moment.
+     */
+    public Watermarks snapshot() {
+        return new Watermarks(Map.copyOf(current), baseline);
+    }
+
+    /**
+     * Tenants with notifications, as loaded at startup plus the ones changed since.
+     */
+    public Set<String> tenants() {
+        return Set.copyOf(current.keySet());
+    }
+
+    /**
+     * Records a change to the notification with the given ID, once the current transaction (if any) commits.
+     */
+    public void changed(String tenant, long notificationId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    advance(tenant, notificationId);
+                }
+            });
+        } else {
+            advance(tenant, notificationId);
+        }
+    }
+
+    private void advance(String tenant, long notificationId) {
+        // Strictly increasing, so two changes within the same millisecond still yield different ETags
+        current.compute(tenant, (key, previous) -> {
+            Watermark from = previous != null ? previous : baseline;
+            return new Watermark(Math.max(from.maxId(), notificationId),
+                    Math.max(System.currentTimeMillis(), from.lastModified() + 1));
+        });
+    }
+
+    private static Watermark later(Watermark a, Watermark b) {
+        return new Watermark(Math.max(a.maxId(), b.maxId()), Math.max(a.lastModified(), b.lastModified()));
+    }
+
+    /**
+     * Watermarks of every tenant at one moment; tenants missing from {@code byTenant} had the baseline.
+     */
+    public record Watermarks(Map<String, Watermark> byTenant, Watermark baseline) {
+
+        public Watermark forTenant(String tenant) {
+            return byTenant.getOrDefault(tenant, baseline);
+        }
+    }
+
+    /**
+     * @param maxId        highest notification ID
+     * @param lastModified time of the latest change, epoch milliseconds
+     */
+    public record Watermark(long maxId, long lastModified) {
+
+        /**
+         * Weak ETag of a listing as one user sees it: the listing is served in several representations (gzip),
+         * and Tomcat does not compress responses that carry a strong ETag.
+         *
+         * @param readVersion version of the user's {@link ReadState}
+         */
+        public String etag(long readVersion) {
+            return "W/\"" + maxId + "-" + lastModified + "-" + readVersion + "\"";
+        }
+    }
+}
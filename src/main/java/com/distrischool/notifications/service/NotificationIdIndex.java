@@ -0,0 +1,188 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.repository.NotificationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The IDs of every notification of a tenant, one Roaring bitmap per tenant. A user's unread notifications are the
+ * tenant's IDs minus their {@link ReadState}, so unread counts and listings are bitmap operations over the ID range
+ * rather than scans of the notification rows.
+ *
+ * A tenant's IDs are loaded on first use, in pages of one primary key range scan, and then kept current two ways:
+ * notifications persisted by this instance are added once their transaction commits, and a refresh, at most every
+ * {@code notifications.read-state.id-refresh-ms} per tenant, reads the IDs persisted since, by any instance. IDs
+ * are drawn before their transaction commits, so a refresh reads again every ID created within
+ * {@code id-settle-ms}: one that becomes visible after a higher one is still picked up. Notifications are never
+ * deleted, so the index only grows; it takes about two bytes per notification, less where the IDs form runs.
+ */
+@Slf4j
+@Component
+public class NotificationIdIndex {
+
+    private static final int PAGE_SIZE = 50_000;
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationReadStateProperties properties;
+    private final ConcurrentHashMap<String, TenantIds> tenants = new ConcurrentHashMap<>();
+
+    public NotificationIdIndex(NotificationRepository notificationRepository,
+                               NotificationReadStateProperties properties) {
+        this.notificationRepository = notificationRepository;
+        this.properties = properties;
+    }
+
+    /**
+     * Records a notification persisted by this instance, once the current transaction (if any) commits.
+     */
+    public void added(String tenant, long notificationId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(tenant, notificationId);
+                }
+            });
+        } else {
+            add(tenant, notificationId);
+        }
+    }
+
+    private void add(String tenant, long notificationId) {
+        // A tenant not loaded yet reads the ID with its first load
+        TenantIds ids = tenants.get(tenant);
+        if (ids != null) {
+            ids.lock.lock();
+            try {
+                ids.ids.addLong(notificationId);
+            } finally {
+                ids.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reads the tenant's IDs persisted since the last refresh, or all of them on first use, unless the last
+     * refresh is more recent than {@code id-refresh-ms}. Runs in the caller's transaction, if any.
+     */
+    public void refresh(String tenant) {
+        TenantIds ids = tenants.computeIfAbsent(tenant, key -> new TenantIds());
+        if (System.currentTimeMillis() - ids.refreshedAt < properties.getIdRefreshMs()) {
+            return;
+        }
+        ids.refreshLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (now - ids.refreshedAt < properties.getIdRefreshMs()) {
+                return;
+            }
+            LocalDateTime settledBefore = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(now - properties.getIdSettleMs()), ZoneOffset.UTC);
+            long after = ids.settledId;
+            long settled = ids.settledId;
+            List<Object[]> page;
+            do {
+                page = notificationRepository.findIdsAfter(tenant, after, Limit.of(PAGE_SIZE));
+                ids.lock.lock();
+                try {
+                    for (Object[] row : page) {
+                        long id = (Long) row[0];
+                        ids.ids.addLong(id);
+                        after = id;
+                        // Every lower ID was drawn before this one, so it has committed by now
+                        if (!(row[1] instanceof LocalDateTime createdAt) || createdAt.isBefore(settledBefore)) {
+                            settled = id;
+                        }
+                    }
+                } finally {
+                    ids.lock.unlock();
+                }
+            } while (page.size() == PAGE_SIZE);
+            if (ids.refreshedAt == 0) {
+                log.info("Loaded notification ID index of tenant {}: {} notifications", tenant, size(ids));
+            }
+            ids.settledId = settled;
+            ids.refreshedAt = now;
+        } finally {
+            ids.refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Number of the tenant's notifications the user has not read. Uses the IDs known to this instance, loading
+     * the tenant on first use, without refreshing them.
+     */
+    public long unreadCount(String tenant, ReadState readState) {
+        TenantIds ids = loaded(tenant);
+        ids.lock.lock();
+        try {
+            return ids.ids.getLongCardinality() - Roaring64NavigableMap.andCardinality(ids.ids, readState.ids());
+        } finally {
+            ids.lock.unlock();
+        }
+    }
+
+    /**
+     * The tenant's notifications the user has not read, as a new bitmap the caller owns. Uses the IDs known to this
+     * instance, loading the tenant on first use, without refreshing them.
+     */
+    public Roaring64NavigableMap unread(String tenant, ReadState readState) {
+        TenantIds ids = loaded(tenant);
+        ids.lock.lock();
+        try {
+            return Roaring64NavigableMap.andNot(ids.ids, readState.ids());
+        } finally {
+            ids.lock.unlock();
+        }
+    }
+
+    /**
+     * Loads the tenant's IDs unless they are loaded already.
+     */
+    public void load(String tenant) {
+        loaded(tenant);
+    }
+
+    private TenantIds loaded(String tenant) {
+        TenantIds ids = tenants.get(tenant);
+        if (ids == null || ids.refreshedAt == 0) {
+            refresh(tenant);
+            ids = tenants.get(tenant);
+        }
+        return ids;
+    }
+
+    private static long size(TenantIds ids) {
+        ids.lock.lock();
+        try {
+            return ids.ids.getLongCardinality();
+        } finally {
+            ids.lock.unlock();
+        }
+    }
+
+    /**
+     * Index of one tenant. The bitmap is guarded by {@code lock}; refreshes are serialized by {@code refreshLock},
+     * which is held across the database reads, so the bitmap stays readable meanwhile.
+     */
+    private static final class TenantIds {
+
+        private final Roaring64NavigableMap ids = new Roaring64NavigableMap();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ReentrantLock refreshLock = new ReentrantLock();
+        // Refresh state, written under refreshLock: every ID up to settledId is known; 0 = never refreshed
+        private long settledId;
+        private volatile long refreshedAt;
+    }
+}
@@ -0,0 +1,74 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.metrics.NotificationMetrics.LaneStage;
+import com.distrischool.template.kafka.DistriSchoolEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persistence side of the priority lanes, between the Kafka listener and {@link NotificationAggregator}.
+ *
+ * The listener only classifies an event by type ({@link NotificationPriorityProperties}) and queues it on its lane;
+ * persistence workers take events in weighted order, so an urgent event consumed behind thousands of bulk events
+ * waits for at most the event in progress instead of the whole backlog. Urgent events still have to be consumed
+ * from Kafka first: the backpressure high-water mark bounds how far behind a bulk backlog they can be.
+ *
+ * A queued event stays in flight for {@link NotificationBackpressure} until the aggregator has taken it; its Kafka
+ * offset stays uncommitted until the aggregator has persisted it (see {@code EventOffsetTracker}), so a crash
+ * redelivers what the lanes and open windows held.
+ */
+@Slf4j
+@Component
+public class NotificationIngestion {
+
+    private final NotificationAggregator aggregator;
+    private final NotificationPriorityProperties priorities;
+    private final NotificationBackpressure backpressure;
+    private final PriorityLanes<Ingest> lanes;
+
+    public NotificationIngestion(NotificationAggregator aggregator,
+                                 NotificationPriorityProperties priorities,
+                                 NotificationBackpressure backpressure,
+                                 NotificationMetrics metrics) {
+        this.aggregator = aggregator;
+        this.priorities = priorities;
+        this.backpressure = backpressure;
+        this.lanes = new PriorityLanes<>("notification-ingest", LaneStage.PERSIST, priorities,
+                priorities.getWorkers(), metrics, this::persist);
+    }
+
+    /**
+     * Queues the event on the lane of its type. Takes over the in-flight count the listener acquired for it.
+     *
+     * @param receivedNanos {@link System#nanoTime()} at Kafka reception, for the consume-to-persist latency
+     * @param persisted     run once the event is handled, saved or failed, to let its offset be committed
+     */
+    public void submit(DistriSchoolEvent event, long receivedNanos, Runnable persisted) {
+        NotificationPriority priority = priorities.laneOf(NotificationService.normalizeEventType(event.getEventType()));
+        lanes.submit(priority, new Ingest(event, receivedNanos, persisted));
+    }
+
+    /**
+     * Persists every queued event. Runs after the listener container has stopped and before the aggregator
+     * flushes its windows.
+     */
+    @PreDestroy
+    public void shutdown() {
+        lanes.shutdown();
+    }
+
+    private void persist(Ingest ingest) {
+        try {
+            aggregator.submit(ingest.event(), ingest.receivedNanos(), ingest.persisted());
+        } catch (Exception e) {
+            log.error("Error processing event {}: {}", ingest.event().getEventId(), e.getMessage(), e);
+        } finally {
+            backpressure.release(1);
+        }
+    }
+
+    private record Ingest(DistriSchoolEvent event, long receivedNanos, Runnable persisted) {
+    }
+}
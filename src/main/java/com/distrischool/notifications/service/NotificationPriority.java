@@ -0,0 +1,24 @@
+package com.distrischool.notifications.service;
+
+/**
+ * Priority lanes of the notification pipeline, see {@link NotificationPriorityProperties}.
+ * Declared from highest to lowest; lanes of equal credit are served in this order.
+ */
+public enum NotificationPriority {
+    URGENT("urgent"),
+    NORMAL("normal"),
+    BULK("bulk");
+
+    private final String tag;
+
+    NotificationPriority(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * Lowercase name, used as metric tag.
+     */
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,87 @@
+package com.distrischool.notifications.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Priority lanes, bound from {@code notifications.priority}: the lane of each event type and the weight, capacity
+ * and latency objective of each lane. Event types are matched after normalization, as in
+ * {@link NotificationAggregationProperties}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "notifications.priority")
+public class NotificationPriorityProperties {
+
+    /**
+     * When disabled every event goes through the normal lane, in arrival order.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Threads persisting events taken from the ingestion lanes. With more than one, events of the same lane may
+     * be persisted out of order.
+     */
+    private int workers = 1;
+
+    /**
+     * Threads handing persisted notifications to the transports. With more than one, notifications of the same
+     * lane may reach clients out of order.
+     */
+    private int dispatchWorkers = 1;
+
+    /**
+     * Lane of each event type; types not listed here use the normal lane.
+     */
+    private Map<String, NotificationPriority> types = new HashMap<>();
+
+    private Lane urgent = new Lane(8, 1000, 500);
+    private Lane normal = new Lane(3, 1000, 2000);
+    private Lane bulk = new Lane(1, 1000, 10000);
+
+    /**
+     * The lane of an event type.
+     */
+    public NotificationPriority laneOf(String normalizedEventType) {
+        if (!enabled) {
+            return NotificationPriority.NORMAL;
+        }
+        return types.getOrDefault(normalizedEventType, NotificationPriority.NORMAL);
+    }
+
+    public Lane lane(NotificationPriority priority) {
+        return switch (priority) {
+            case URGENT -> urgent;
+            case NORMAL -> normal;
+            case BULK -> bulk;
+        };
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Lane {
+
+        /**
+         * Share of the picks while several lanes hold work.
+         */
+        private int weight;
+
+        /**
+         * Queued items before producers block.
+         */
+        private int capacity;
+
+        /**
+         * Latency objective from Kafka reception until the notification is handed to every transport; exported
+         * as a histogram bucket and counted as a miss when exceeded.
+         */
+        private long sloMs;
+    }
+}
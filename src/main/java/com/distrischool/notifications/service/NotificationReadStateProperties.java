@@ -0,0 +1,43 @@
+package com.distrischool.notifications.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-user read state, bound from {@code notifications.read-state}; see {@link NotificationReadStates} and
+ * {@link NotificationIdIndex}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "notifications.read-state")
+public class NotificationReadStateProperties {
+
+    /**
+     * Users whose read bitmaps are held in memory on this instance; the least recently used are evicted beyond it.
+     */
+    private int cacheSize = 10_000;
+
+    /**
+     * How long a cached read state answers conditional requests without being revalidated against the database;
+     * bounds how late a mark made through another instance changes the ETag here.
+     */
+    private long revalidateMs = 5000;
+
+    /**
+     * Minimum interval between two reads of a tenant's new notification IDs from the database.
+     */
+    private long idRefreshMs = 1000;
+
+    /**
+     * How long after its creation a notification is certain to be visible to every read, also on the replica:
+     * must exceed the longest insert transaction plus {@code notifications.datasource.replica.max-staleness-ms}.
+     * Newer IDs are read again on every refresh, so one committed out of ID order is never skipped.
+     */
+    private long idSettleMs = 15_000;
+
+    /**
+     * Most notification IDs bound into one query of a read-state filtered listing.
+     */
+    private int queryBatchSize = 1000;
+}
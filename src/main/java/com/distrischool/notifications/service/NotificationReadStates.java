@@ -0,0 +1,228 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.entity.NotificationReadState;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.repository.NotificationReadStateRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-user read state: which notifications each user of a tenant has read, replacing the global read flag.
+ *
+ * A user's state is one Roaring bitmap of notification IDs, stored as a single {@code notification_read_state} row
+ * (see V8) and held in memory for the {@code notifications.read-state.cache-size} most recently used users. A read
+ * notification costs a few bits, or less once the IDs form runs, instead of a row per user and notification.
+ *
+ * A cached state is revalidated against the row's version before a listing uses it, which reads a single key of
+ * the primary through its read pool ({@link ReplicaReads#onPrimary}), so marks made through another instance are
+ * seen right away without taking connections from ingestion. Conditional requests skip that read while the cached
+ * copy was checked within {@code notifications.read-state.revalidate-ms}, so polls answered with 304 stay in
+ * memory. Marks are serialized per user by a row lock and published to the cache once their transaction commits.
+ */
+@Component
+public class NotificationReadStates {
+
+    private final NotificationReadStateRepository repository;
+    private final ReplicaReads replicaReads;
+    private final long revalidateNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by the lock; least recently used first
+    private final LinkedHashMap<Key, Cached> cache;
+
+    public NotificationReadStates(NotificationReadStateRepository repository,
+                                  ReplicaReads replicaReads,
+                                  NotificationReadStateProperties properties,
+                                  NotificationMetrics metrics) {
+        this.repository = repository;
+        this.replicaReads = replicaReads;
+        this.revalidateNanos = TimeUnit.MILLISECONDS.toNanos(properties.getRevalidateMs());
+        int capacity = properties.getCacheSize();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Cached> eldest) {
+                return size() > capacity;
+            }
+        };
+        metrics.registerReadStatesCached(this::size);
+    }
+
+    /**
+     * The user's current read state. Costs one primary key lookup when the cached copy is current, and loads
+     * the bitmap otherwise.
+     *
+     * @param user subject of the user's token; null (no user) has read nothing
+     */
+    public ReadState get(String tenant, String user) {
+        if (user == null) {
+            return ReadState.NONE;
+        }
+        Key key = new Key(tenant, user);
+        Cached cached = cached(key);
+        if (cached != null) {
+            long version = replicaReads.onPrimary(() -> repository.findVersion(tenant, user)).orElse(0L);
+            if (version <= cached.state().version()) {
+                checked(key, cached.state());
+                return cached.state();
+            }
+        }
+        return load(key);
+    }
+
+    /**
+     * The user's read state for a conditional request: the cached copy while it was loaded, revalidated or marked
+     * on this instance within {@code revalidate-ms}, without querying the database; {@link #get} otherwise.
+     * Marks made through another instance show up after at most that interval.
+     */
+    public ReadState getRecent(String tenant, String user) {
+        if (user == null) {
+            return ReadState.NONE;
+        }
+        Cached cached = cached(new Key(tenant, user));
+        if (cached != null && System.nanoTime() - cached.checkedNanos() < revalidateNanos) {
+            return cached.state();
+        }
+        return get(tenant, user);
+    }
+
+    /**
+     * The user's read state as cached on this instance, without revalidating it; loaded on a miss. Used by the
+     * WebSocket welcome, so reconnecting users do not query the database.
+     */
+    public ReadState getCached(String tenant, String user) {
+        if (user == null) {
+            return ReadState.NONE;
+        }
+        Key key = new Key(tenant, user);
+        Cached cached = cached(key);
+        return cached != null ? cached.state() : load(key);
+    }
+
+    /**
+     * Marks a notification read for the user. Must run in a read-write transaction, which holds the user's row lock
+     * until it ends; the cache sees the new state once it commits.
+     *
+     * @return true if the notification was unread
+     */
+    public boolean markRead(String tenant, String user, long notificationId) {
+        Key key = new Key(tenant, user);
+        repository.insertIfAbsent(tenant, user, ReadState.NONE.serialize());
+        NotificationReadState row = repository.findForUpdate(tenant, user)
+                .orElseThrow(() -> new IllegalStateException("Read state of " + user + " vanished"));
+
+        // The row is locked, so a cached copy at its version is the stored bitmap
+        Cached cached = cached(key);
+        ReadState current = cached != null && cached.state().version() == row.getVersion()
+                ? cached.state()
+                : ReadState.deserialize(row.getReadIds(), row.getVersion(), epochMillis(row.getUpdatedAt()));
+        if (current.isRead(notificationId)) {
+            publish(key, current);
+            return false;
+        }
+
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        ReadState updated = current.with(notificationId, row.getVersion() + 1, epochMillis(now));
+        row.setReadIds(updated.serialize());
+        row.setVersion(updated.version());
+        row.setUpdatedAt(now);
+        publish(key, updated);
+        return true;
+    }
+
+    private ReadState load(Key key) {
+        ReadState loaded = replicaReads.onPrimary(() -> repository.findByTenantIdAndUserId(key.tenant(), key.user()))
+                .map(row -> ReadState.deserialize(row.getReadIds(), row.getVersion(), epochMillis(row.getUpdatedAt())))
+                .orElse(ReadState.NONE);
+        if (loaded.version() > 0) {
+            put(key, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Caches the state once the current transaction (if any) commits.
+     */
+    private void publish(Key key, ReadState state) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(key, state);
+                }
+            });
+        } else {
+            put(key, state);
+        }
+    }
+
+    private Cached cached(Key key) {
+        lock.lock();
+        try {
+            return cache.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Caches the state unless a newer one is cached already (loads and commits can finish out of order).
+     */
+    private void put(Key key, ReadState state) {
+        lock.lock();
+        try {
+            Cached cached = cache.get(key);
+            if (cached == null || cached.state().version() < state.version()) {
+                cache.put(key, new Cached(state, System.nanoTime()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Restarts the revalidation interval of the cached state, if it is still the cached one.
+     */
+    private void checked(Key key, ReadState state) {
+        lock.lock();
+        try {
+            Cached cached = cache.get(key);
+            if (cached != null && cached.state() == state) {
+                cache.put(key, new Cached(state, System.nanoTime()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int size() {
+        lock.lock();
+        try {
+            return cache.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stored times are {@link LocalDateTime} values in UTC, like every timestamp (see hibernate jdbc time_zone).
+     */
+    private static long epochMillis(LocalDateTime utc) {
+        return utc.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private record Key(String tenant, String user) {
+    }
+
+    /**
+     * A cached state and when it was last known to match the stored row ({@link System#nanoTime}).
+     */
+    private record Cached(ReadState state, long checkedNanos) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.distrischool.notifications.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduled notification delivery, bound from {@code notifications.scheduled}; see {@link NotificationScheduler}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "notifications.scheduled")
+public class NotificationScheduleProperties {
+
+    /**
+     * When disabled this instance delivers nothing; scheduled notifications stay pending for the other instances.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Timing wheel resolution: a notification is delivered at most one tick after it is due.
+     */
+    private long tickMs = 100;
+
+    /**
+     * Buckets per timing wheel level.
+     */
+    private int wheelSize = 512;
+
+    /**
+     * How far ahead pending notifications are loaded into memory.
+     */
+    private long horizonMs = 600_000;
+
+    /**
+     * Interval between loads of the next part of the horizon; must be well below {@code horizonMs}.
+     */
+    private long reloadIntervalMs = 60_000;
+
+    /**
+     * Rows per load query.
+     */
+    private int pageSize = 5000;
+
+    /**
+     * Upper bound of notifications held in memory; beyond it loading resumes at the next reload.
+     */
+    private int maxLoaded = 200_000;
+
+    /**
+     * Notifications saved and broadcast per transaction.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Notifications still pending this long after they were due, e.g. scheduled on an instance that went down,
+     * are picked up by every reload.
+     */
+    private long overdueGraceMs = 60_000;
+}
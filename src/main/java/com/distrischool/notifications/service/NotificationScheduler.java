@@ -0,0 +1,255 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.dto.ScheduledNotificationRequest;
+import com.distrischool.notifications.entity.ScheduledNotification;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.repository.ScheduledSlot;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Delivers scheduled notifications ({@code scheduled_notifications}, see V7) when they are due.
+ *
+ * Only the next {@code horizon-ms} is held in memory, in a hierarchical {@link TimingWheel}. Every
+ * {@code reload-interval-ms} a loader thread reads the keys due within the horizon that follow its cursor, one
+ * range of the {@code (deliver_at, id)} index per page. A delivery deletes its row, so the table only holds what
+ * is still pending: neither a reload nor the first load after a restart, which starts from the oldest overdue row,
+ * reads more than what is due soon. Notifications scheduled through this instance within reach of the horizon go
+ * straight into the wheel.
+ *
+ * Each tick hands what is due to {@link NotificationService#deliverScheduled}, {@code batch-size} notifications per
+ * transaction. Every instance loads the same horizon; the row lock taken at delivery lets one of them deliver each
+ * notification and the others skip it. A notification no wheel holds, e.g. scheduled on an instance that went down,
+ * or whose delivery failed, is picked up by every reload once it is {@code overdue-grace-ms} late.
+ */
+@Slf4j
+@Component
+public class NotificationScheduler {
+
+    private static final LocalDateTime CURSOR_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final NotificationService notificationService;
+    private final NotificationScheduleProperties properties;
+    private final TenantPartitions tenantPartitions;
+    private final ScheduledExecutorService ticker;
+    private final ScheduledExecutorService loader;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by the lock: the wheel, the keys it holds (by ID) and those found due but not yet delivered
+    private final TimingWheel<ScheduledSlot> wheel;
+    private final Map<Long, ScheduledSlot> loaded = new HashMap<>();
+    private List<ScheduledSlot> due = new ArrayList<>();
+    // Loader thread only: the last key loaded
+    private LocalDateTime cursorAt = CURSOR_START;
+    private long cursorId;
+
+    public NotificationScheduler(NotificationService notificationService,
+                                 NotificationScheduleProperties properties,
+                                 TenantPartitions tenantPartitions,
+                                 NotificationMetrics metrics) {
+        this.notificationService = notificationService;
+        this.properties = properties;
+        this.tenantPartitions = tenantPartitions;
+        this.wheel = new TimingWheel<>(properties.getTickMs(), properties.getWheelSize(), System.currentTimeMillis());
+        this.ticker = daemonThread("notification-scheduler");
+        this.loader = daemonThread("notification-scheduler-loader");
+        metrics.registerScheduledLoaded(this::loadedCount);
+    }
+
+    /**
+     * Starts loading and delivering once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            log.info("Scheduled notification delivery disabled on this instance");
+            return;
+        }
+        loader.scheduleWithFixedDelay(this::reload, 0, properties.getReloadIntervalMs(), TimeUnit.MILLISECONDS);
+        ticker.scheduleWithFixedDelay(this::tick, properties.getTickMs(), properties.getTickMs(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops loading and lets a delivery in progress finish. Whatever is loaded stays pending in the table.
+     */
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+        ticker.shutdown();
+        try {
+            ticker.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stores a notification to deliver at {@code request.deliverAt}, see {@link NotificationService#schedule}.
+     */
+    public ScheduledNotification schedule(String tenant, ScheduledNotificationRequest request) {
+        ScheduledNotification scheduled = notificationService.schedule(tenant, request);
+        // A load running while the row was committed may have moved its cursor past it, up to one reload ahead
+        long reach = System.currentTimeMillis() + properties.getHorizonMs() + properties.getReloadIntervalMs();
+        if (properties.isEnabled() && epochMillis(scheduled.getDeliverAt()) < reach) {
+            offer(new ScheduledSlot(scheduled.getId(), scheduled.getTenantId(), scheduled.getDeliverAt()));
+        }
+        return scheduled;
+    }
+
+    /**
+     * Cancels a pending scheduled notification, see {@link NotificationService#cancelScheduled}, and drops it from
+     * the wheel. Other instances holding it skip it at delivery, as its row is gone.
+     *
+     * @return false if it does not exist, belongs to another tenant or was already delivered
+     */
+    public boolean cancel(String tenant, Long id) {
+        if (!notificationService.cancelScheduled(tenant, id)) {
+            return false;
+        }
+        lock.lock();
+        try {
+            ScheduledSlot slot = loaded.get(id);
+            // One found due already is skipped at delivery instead
+            if (slot != null && wheel.remove(epochMillis(slot.deliverAt()), slot)) {
+                loaded.remove(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    private void reload() {
+        try {
+            long now = System.currentTimeMillis();
+            for (ScheduledSlot slot : notificationService.findOverdueSlots(
+                    utc(now - properties.getOverdueGraceMs()), properties.getPageSize())) {
+                offer(slot);
+            }
+
+            LocalDateTime until = utc(now + properties.getHorizonMs());
+            int added = 0;
+            while (loadedCount() < properties.getMaxLoaded()) {
+                List<ScheduledSlot> page = notificationService.findScheduledSlots(cursorAt, cursorId, until,
+                        properties.getPageSize());
+                for (ScheduledSlot slot : page) {
+                    if (offer(slot)) {
+                        added++;
+                    }
+                    cursorAt = slot.deliverAt();
+                    cursorId = slot.id();
+                }
+                if (page.size() < properties.getPageSize()) {
+                    break;
+                }
+            }
+            if (added > 0) {
+                log.info("Loaded {} scheduled notifications due before {}", added, until);
+            }
+        } catch (Exception e) {
+            log.error("Failed to load scheduled notifications: {}", e.getMessage(), e);
+        }
+    }
+
+    private void tick() {
+        List<ScheduledSlot> batch;
+        lock.lock();
+        try {
+            wheel.advance(System.currentTimeMillis(), due::add);
+            if (due.isEmpty()) {
+                return;
+            }
+            batch = due;
+            due = new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        long dueNanos = System.nanoTime();
+        for (int from = 0; from < batch.size(); from += properties.getBatchSize()) {
+            deliver(batch.subList(from, Math.min(batch.size(), from + properties.getBatchSize())), dueNanos);
+        }
+    }
+
+    private void deliver(List<ScheduledSlot> slots, long dueNanos) {
+        List<Long> ids = new ArrayList<>(slots.size());
+        slots.forEach(slot -> ids.add(slot.id()));
+        try {
+            // Created in the background, see TenantPartitions
+            slots.stream().map(ScheduledSlot::tenantId).distinct().forEach(tenantPartitions::ensure);
+            notificationService.deliverScheduled(ids, dueNanos);
+        } catch (Exception e) {
+            log.error("Failed to deliver {} scheduled notifications, retrying once they are overdue: {}",
+                    slots.size(), e.getMessage(), e);
+        } finally {
+            lock.lock();
+            try {
+                ids.forEach(loaded::remove);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Adds a key to the wheel, or to the next delivery if it is already due.
+     *
+     * @return false if the wheel holds it already
+     */
+    private boolean offer(ScheduledSlot slot) {
+        lock.lock();
+        try {
+            if (loaded.putIfAbsent(slot.id(), slot) != null) {
+                return false;
+            }
+            if (!wheel.add(epochMillis(slot.deliverAt()), slot)) {
+                due.add(slot);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int loadedCount() {
+        lock.lock();
+        try {
+            return loaded.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Scheduled times are {@link LocalDateTime} values in UTC, like every timestamp (see hibernate jdbc time_zone).
+     */
+    private static long epochMillis(LocalDateTime utc) {
+        return utc.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime utc(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+
+    private static ScheduledExecutorService daemonThread(String name) {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -1,18 +1,46 @@
 package com.distrischool.notifications.service;
 
+import com.distrischool.notifications.dto.NotificationDTO;
+import com.distrischool.notifications.dto.NotificationSearchPage;
+import com.distrischool.notifications.dto.ScheduledNotificationRequest;
 import com.distrischool.notifications.entity.Notification;
+import com.distrischool.notifications.entity.NotificationEvent;
+import com.distrischool.notifications.entity.ScheduledNotification;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.metrics.NotificationMetrics.DbStage;
+import com.distrischool.notifications.repository.NotificationEventRepository;
 import com.distrischool.notifications.repository.NotificationRepository;
+import com.distrischool.notifications.repository.NotificationSearchCursor;
+import com.distrischool.notifications.repository.NotificationSearchHit;
+import com.distrischool.notifications.repository.NotificationSpecifications;
+import com.distrischool.notifications.repository.ScheduledNotificationRepository;
+import com.distrischool.notifications.repository.ScheduledSlot;
 import com.distrischool.template.kafka.DistriSchoolEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.longlong.LongIterator;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Service for managing notifications.
@@ -22,20 +50,53 @@
 @RequiredArgsConstructor
 public class NotificationService {
 
+    static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("id"));
+    private static final Sort LATEST_ID_FIRST = Sort.by(Sort.Order.desc("id"));
+    private static final Comparator<Notification> NEWEST_FIRST_ORDER =
+            Comparator.comparing(Notification::getTimestamp).thenComparing(Notification::getId).reversed();
+
     private final NotificationRepository notificationRepository;
+    private final NotificationEventRepository notificationEventRepository;
+    private final ScheduledNotificationRepository scheduledRepository;
     private final ObjectMapper objectMapper;
     private final NotificationBroadcastService broadcastService;
+    private final NotificationMetrics metrics;
+    private final NotificationSnapshotCache snapshotCache;
+    private final NotificationChangeWatermark changeWatermark;
+    private final NotificationReadStates readStates;
+    private final NotificationIdIndex idIndex;
+    private final NotificationReadStateProperties readStateProperties;
+    private final TenantResolver tenantResolver;
 
     /**
      * Save a notification from a Kafka event.
-     * Converts the event to a notification entity and persists it.
+     * Converts the event to a notification entity of the event's tenant and persists it.
+     * Until the tenant's partition exists the row goes to the default partition, see {@link TenantPartitions}.
      */
     @Transactional
     public Notification saveNotification(DistriSchoolEvent event) {
+        return saveNotification(event, System.nanoTime());
+    }
+
+    /**
+     * Save a notification from a Kafka event received at {@code receivedNanos} ({@link System#nanoTime()}),
+     * so consume-to-persist latency covers the whole listener path.
+     */
+    @Transactional
+    public Notification saveNotification(DistriSchoolEvent event, long receivedNanos) {
         log.info("Processing event: {} with ID: {}", event.getEventType(), event.getEventId());
+        String tenant = tenantResolver.fromEvent(event);
 
         // Check if notification already exists (avoid duplicates)
-        Optional<Notification> existing = notificationRepository.findByEventId(event.getEventId());
+        long start = System.nanoTime();
+        Optional<Notification> existing = notificationRepository.findByTenantIdAndEventId(tenant, event.getEventId());
+        if (existing.isEmpty()) {
+            // The event may have been aggregated into a digest
+            existing = notificationEventRepository.findByTenantIdAndEventId(tenant, event.getEventId())
+                    .flatMap(aggregated ->
+                            notificationRepository.findByTenantIdAndId(tenant, aggregated.getNotificationId()));
+        }
+        metrics.recordDbTime(DbStage.LOOKUP, System.nanoTime() - start);
         if (existing.isPresent()) {
             log.debug("Notification with eventId {} already exists, skipping", event.getEventId());
             return existing.get();
@@ -45,25 +106,295 @@ public Notification saveNotification(DistriSchoolEvent event) {
         Notification notification = convertEventToNotification(event);
 
         // Save to database
+        start = System.nanoTime();
         Notification saved = notificationRepository.save(notification);
+        long persisted = System.nanoTime();
+        metrics.recordDbTime(DbStage.INSERT, persisted - start);
+        metrics.recordConsumeToPersist(persisted - receivedNanos);
         log.info("Saved notification with ID: {} for event: {}", saved.getId(), event.getEventType());
 
-        // Broadcast to WebSocket clients
+        broadcast(saved, receivedNanos, persisted);
+        return saved;
+    }
+
+    /**
+     * Save events of one type as a single digest notification: a count in the message, the data of the first
+     * {@code sampleSize} events as samples, and the newest event timestamp. Each event ID is recorded in
+     * notification_events so a redelivered event is still recognized as a duplicate.
+     * Events that already have a notification are left out; a lone remaining event is saved as a regular notification.
+     * All events belong to the same tenant (the aggregator keys its windows by tenant).
+     *
+     * @return the saved notification, or null when every event was a duplicate
+     */
+    @Transactional
+    public Notification saveDigest(List<DistriSchoolEvent> events, NotificationAggregationProperties.Rule rule,
+                                   int sampleSize, long receivedNanos) {
+        Map<String, DistriSchoolEvent> fresh = new LinkedHashMap<>();
+        for (DistriSchoolEvent event : events) {
+            fresh.putIfAbsent(event.getEventId(), event);
+        }
+
+        String tenant = tenantResolver.fromEvent(events.get(0));
+        long start = System.nanoTime();
+        Set<String> existing = new HashSet<>(notificationRepository.findExistingEventIds(tenant, fresh.keySet()));
+        existing.addAll(notificationEventRepository.findExistingEventIds(tenant, fresh.keySet()));
+        metrics.recordDbTime(DbStage.LOOKUP, System.nanoTime() - start);
+        fresh.keySet().removeAll(existing);
+        if (fresh.isEmpty()) {
+            log.debug("All {} events of the digest already exist, skipping", events.size());
+            return null;
+        }
+        if (fresh.size() == 1) {
+            return saveNotification(fresh.values().iterator().next(), receivedNanos);
+        }
+
+        List<DistriSchoolEvent> digestEvents = new ArrayList<>(fresh.values());
+        DistriSchoolEvent first = digestEvents.get(0);
+        LocalDateTime newest = null;
+        List<Map<String, Object>> samples = new ArrayList<>(Math.min(sampleSize, digestEvents.size()));
+        for (DistriSchoolEvent event : digestEvents) {
+            if (event.getTimestamp() != null && (newest == null || event.getTimestamp().isAfter(newest))) {
+                newest = event.getTimestamp();
+            }
+            if (samples.size() < sampleSize && event.getData() != null) {
+                samples.add(event.getData());
+            }
+        }
+
+        Map<String, Object> digestData = new LinkedHashMap<>();
+        digestData.put("digest", true);
+        digestData.put("count", digestEvents.size());
+        digestData.put("samples", samples);
+        String dataJson = null;
+        try {
+            dataJson = objectMapper.writeValueAsString(digestData);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize digest data to JSON: {}", e.getMessage());
+        }
+
+        Notification digest = Notification.builder()
+                .tenantId(tenant)
+                .eventId("digest:" + first.getEventId())
+                .eventType(first.getEventType())
+                .title(rule.getTitle())
+                .message(String.format(rule.getMessage(), digestEvents.size()))
+                .data(dataJson)
+                .timestamp(newest != null ? newest : LocalDateTime.now())
+                .build();
+
+        start = System.nanoTime();
+        Notification saved = notificationRepository.save(digest);
+        List<NotificationEvent> aggregated = new ArrayList<>(digestEvents.size());
+        for (DistriSchoolEvent event : digestEvents) {
+            aggregated.add(NotificationEvent.builder().eventId(event.getEventId()).tenantId(tenant)
+                    .notificationId(saved.getId()).build());
+        }
+        notificationEventRepository.saveAll(aggregated);
+        long persisted = System.nanoTime();
+        metrics.recordDbTime(DbStage.INSERT, persisted - start);
+        metrics.recordConsumeToPersist(persisted - receivedNanos);
+        metrics.recordDigest(digestEvents.size());
+        log.info("Saved digest notification with ID: {} for {} {} events", saved.getId(), digestEvents.size(),
+                first.getEventType());
+
+        broadcast(saved, receivedNanos, persisted);
+        return saved;
+    }
+
+    /**
+     * Stores a notification to deliver at {@code request.deliverAt} (see {@link NotificationScheduler}).
+     * A pending notification of the tenant with the same event ID is returned as is.
+     */
+    @Transactional
+    public ScheduledNotification schedule(String tenant, ScheduledNotificationRequest request) {
+        String eventId = request.getEventId() != null && !request.getEventId().isBlank()
+                ? request.getEventId() : "scheduled:" + UUID.randomUUID();
+        Optional<ScheduledNotification> existing = scheduledRepository.findByTenantIdAndEventId(tenant, eventId);
+        if (existing.isPresent()) {
+            log.debug("Notification with eventId {} already scheduled, skipping", eventId);
+            return existing.get();
+        }
+
+        String dataJson = null;
         try {
-            broadcastService.broadcastNotificationWithWrapper(saved);
-        } catch (Exception e) {
-            log.warn("Failed to broadcast notification {} via WebSocket: {}", saved.getId(), e.getMessage());
-            // Don't fail the save operation if broadcast fails
+            dataJson = request.getData() != null ? objectMapper.writeValueAsString(request.getData()) : null;
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize scheduled notification data to JSON: {}", e.getMessage());
+        }
+
+        long start = System.nanoTime();
+        ScheduledNotification saved = scheduledRepository.save(ScheduledNotification.builder()
+                .tenantId(tenant)
+                .eventId(eventId)
+                .eventType(request.getType() != null && !request.getType().isBlank() ? request.getType() : "reminder")
+                .title(request.getTitle())
+                .message(request.getMessage())
+                .data(dataJson)
+                .deliverAt(request.getDeliverAt())
+                .build());
+        metrics.recordDbTime(DbStage.INSERT, System.nanoTime() - start);
+        log.info("Scheduled notification {} of tenant {} for {}", saved.getId(), tenant, saved.getDeliverAt());
+        return saved;
+    }
+
+    /**
+     * Pending scheduled notifications of a tenant, soonest first.
+     */
+    @Transactional(readOnly = true)
+    public List<ScheduledNotification> findScheduled(String tenant, int limit) {
+        long start = System.nanoTime();
+        List<ScheduledNotification> scheduled = scheduledRepository.findByTenantIdOrderByDeliverAtAscIdAsc(tenant,
+                Limit.of(limit));
+        metrics.recordDbTime(DbStage.QUERY, System.nanoTime() - start);
+        return scheduled;
+    }
+
+    /**
+     * Cancels a pending scheduled notification of a tenant.
+     *
+     * @return false if it does not exist, belongs to another tenant or was already delivered
+     */
+    @Transactional
+    public boolean cancelScheduled(String tenant, Long id) {
+        long start = System.nanoTime();
+        boolean cancelled = scheduledRepository.deleteByTenantIdAndId(tenant, id) > 0;
+        metrics.recordDbTime(DbStage.UPDATE, System.nanoTime() - start);
+        if (cancelled) {
+            log.info("Cancelled scheduled notification {}", id);
         }
+        return cancelled;
+    }
+
+    /**
+     * Keys of the scheduled notifications due before {@code until} that follow the {@code (at, id)} cursor, in
+     * cursor order. Not read-only on purpose: a replica that has not applied a new row yet would let the cursor
+     * move past it.
+     */
+    @Transactional
+    public List<ScheduledSlot> findScheduledSlots(LocalDateTime at, long id, LocalDateTime until, int limit) {
+        long start = System.nanoTime();
+        List<ScheduledSlot> slots = scheduledRepository.findSlotsAfter(at, id, until, Limit.of(limit));
+        metrics.recordDbTime(DbStage.QUERY, System.nanoTime() - start);
+        return slots;
+    }
 
+    /**
+     * Keys of the scheduled notifications still pending although due before {@code until}, oldest first.
+     * Read on the primary, like {@link #findScheduledSlots}.
+     */
+    @Transactional
+    public List<ScheduledSlot> findOverdueSlots(LocalDateTime until, int limit) {
+        long start = System.nanoTime();
+        List<ScheduledSlot> slots = scheduledRepository.findSlotsBefore(until, Limit.of(limit));
+        metrics.recordDbTime(DbStage.QUERY, System.nanoTime() - start);
+        return slots;
+    }
+
+    /**
+     * Delivers due scheduled notifications in one transaction: locks the rows still pending, saves a notification
+     * for each, deletes the rows and broadcasts. Rows another instance is delivering are skipped, as are cancelled
+     * ones, and a row whose event ID already has a notification is deleted without a second one. Tenants without
+     * a partition yet get their rows in the default partition, see {@link TenantPartitions}.
+     *
+     * @param dueNanos {@link System#nanoTime()} when the scheduler found the notifications due
+     * @return the saved notifications
+     */
+    @Transactional
+    public List<Notification> deliverScheduled(Collection<Long> ids, long dueNanos) {
+        long start = System.nanoTime();
+        List<ScheduledNotification> claimed = scheduledRepository.claim(ids);
+        if (claimed.isEmpty()) {
+            metrics.recordDbTime(DbStage.LOOKUP, System.nanoTime() - start);
+            return List.of();
+        }
+        Map<String, List<ScheduledNotification>> byTenant = new LinkedHashMap<>();
+        for (ScheduledNotification scheduled : claimed) {
+            byTenant.computeIfAbsent(scheduled.getTenantId(), tenant -> new ArrayList<>()).add(scheduled);
+        }
+        List<Notification> notifications = new ArrayList<>(claimed.size());
+        for (Map.Entry<String, List<ScheduledNotification>> tenant : byTenant.entrySet()) {
+            Set<String> eventIds = new HashSet<>();
+            tenant.getValue().forEach(scheduled -> eventIds.add(scheduled.getEventId()));
+            Set<String> existing = new HashSet<>(
+                    notificationRepository.findExistingEventIds(tenant.getKey(), eventIds));
+            for (ScheduledNotification scheduled : tenant.getValue()) {
+                if (existing.add(scheduled.getEventId())) {
+                    notifications.add(Notification.builder()
+                            .tenantId(scheduled.getTenantId())
+                            .eventId(scheduled.getEventId())
+                            .eventType(scheduled.getEventType())
+                            .title(scheduled.getTitle())
+                            .message(scheduled.getMessage())
+                            .data(scheduled.getData())
+                            .timestamp(scheduled.getDeliverAt())
+                            .build());
+                }
+            }
+        }
+        metrics.recordDbTime(DbStage.LOOKUP, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        List<Notification> saved = notificationRepository.saveAll(notifications);
+        scheduledRepository.deleteAllInBatch(claimed);
+        long persisted = System.nanoTime();
+        metrics.recordDbTime(DbStage.INSERT, persisted - start);
+        log.info("Delivered {} scheduled notifications", saved.size());
+
+        for (Notification notification : saved) {
+            metrics.recordScheduledLateness(notification.getTimestamp());
+            broadcast(notification, dueNanos, persisted);
+        }
         return saved;
     }
 
+    /**
+     * Publishes a saved notification once the current transaction (if any) commits, so one that is rolled back
+     * reaches neither the snapshot cache nor any session.
+     */
+    private void broadcast(Notification saved, long receivedNanos, long persistedNanos) {
+        // The cache must see the notification before any session does, see NotificationSnapshot;
+        // synchronizations run in registration order
+        afterCommit(() -> snapshotCache.add(saved));
+        idIndex.added(saved.getTenantId(), saved.getId());
+        changeWatermark.changed(saved.getTenantId(), saved.getId());
+
+        // Queue for the WebSocket and SSE clients, on the dispatch lane of the event type
+        afterCommit(() -> {
+            try {
+                broadcastService.dispatch(saved, receivedNanos, persistedNanos);
+            } catch (Exception e) {
+                log.warn("Failed to broadcast notification {} via WebSocket: {}", saved.getId(), e.getMessage());
+                // Don't fail the save operation if broadcast fails
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Normalizes an event type for comparison, so USER_CREATED and user.created are the same type.
+     */
+    static String normalizeEventType(String eventType) {
+        return eventType != null ? eventType.toLowerCase().replace("_", ".") : "";
+    }
+
     /**
      * Convert Kafka event to Notification entity.
      * Maps event data to title and message based on event type.
+     * Package-private for the JMH benchmarks in src/jmh.
      */
-    private Notification convertEventToNotification(DistriSchoolEvent event) {
+    Notification convertEventToNotification(DistriSchoolEvent event) {
         Map<String, Object> eventData = event.getData();
         String eventType = event.getEventType();
 
@@ -72,7 +403,7 @@ private Notification convertEventToNotification(DistriSchoolEvent event) {
         String message;
         
         // Normalize event type for comparison (handle both USER_CREATED and user.created formats)
-        String normalizedEventType = eventType != null ? eventType.toLowerCase().replace("_", ".") : "";
+        String normalizedEventType = normalizeEventType(eventType);
 
         switch (normalizedEventType) {
             case "user.created":
@@ -122,12 +453,12 @@ private Notification convertEventToNotification(DistriSchoolEvent event) {
 
         // Create notification entity
         return Notification.builder()
+                .tenantId(tenantResolver.fromEvent(event))
                 .eventId(event.getEventId())
                 .eventType(eventType)
                 .title(title)
                 .message(message)
                 .data(dataJson)
-                .read(false)
                 .timestamp(event.getTimestamp() != null ? event.getTimestamp() : java.time.LocalDateTime.now())
                 .build();
     }
@@ -147,40 +478,140 @@ private String getStringFromData(Map<String, Object> data, String key) {
     }
 
     /**
-     * Get all notifications ordered by timestamp descending.
+     * Get all notifications of a tenant ordered by timestamp descending.
      */
-    public List<Notification> getAllNotifications() {
-        return notificationRepository.findAllByOrderByTimestampDesc();
+    @Transactional(readOnly = true)
+    public List<Notification> getAllNotifications(String tenant) {
+        long start = System.nanoTime();
+        List<Notification> notifications = notificationRepository.findByTenantIdOrderByTimestampDesc(tenant);
+        metrics.recordDbTime(DbStage.QUERY, System.nanoTime() - start);
+        return notifications;
     }
 
     /**
-     * Get all unread notifications ordered by timestamp descending.
+     * Get up to {@code limit} notifications of a tenant the user has not read, newest first; see
+     * {@link #findByReadState}.
      */
-    public List<Notification> getUnreadNotifications() {
-        return notificationRepository.findByReadFalseOrderByTimestampDesc();
+    @Transactional(readOnly = true)
+    public List<Notification> getUnreadNotifications(String tenant, ReadState readState, int limit) {
+        long start = System.nanoTime();
+        List<Notification> notifications = findByReadState(tenant, NotificationSpecifications.matching(tenant,
+                null, null, null), false, readState, limit);
+        metrics.recordDbTime(DbStage.QUERY, System.nanoTime() - start);
+        return notifications;
     }
 
     /**
-     * Mark a notification as read.
+     * Get notifications of a tenant matching the given filters, newest first. Null filters are not applied;
+     * {@code to} is exclusive. Without a {@code read} filter this is a single query; with one, see
+     * {@link #findByReadState}.
+     */
+    @Transactional(readOnly = true)
+    public List<Notification> findNotifications(String tenant, Collection<String> eventTypes, LocalDateTime from,
+                                                LocalDateTime to, Boolean read, ReadState readState, int limit) {
+        long start = System.nanoTime();
+        Specification<Notification> filters = NotificationSpecifications.matching(tenant, eventTypes, from, to);
+        List<Notification> notifications = read == null
+                ? notificationRepository.findBy(filters, query -> query.sortBy(NEWEST_FIRST).limit(limit).all())
+                : findByReadState(tenant, filters, read, readState, limit);
+        metrics.recordDbTime(DbStage.QUERY, System.nanoTime() - start);
+        return notifications;
+    }
+
+    /**
+     * The newest {@code limit} notifications matching {@code filters} that the user has ({@code read}) or has not
+     * read. Unread notifications of a user with at most {@code query-batch-size} read are one query excluding those
+     * IDs. Otherwise the wanted IDs, the read bitmap or the tenant's IDs minus it ({@link NotificationIdIndex}),
+     * are walked from the highest down and bound into the query in batches of {@code query-batch-size}, each a
+     * primary key lookup in the tenant's partition, until {@code limit} rows match: IDs come from one sequence, so
+     * these are the most recently persisted matches, returned newest first.
+     */
+    private List<Notification> findByReadState(String tenant, Specification<Notification> filters, boolean read,
+                                               ReadState readState, int limit) {
+        int batchSize = readStateProperties.getQueryBatchSize();
+        if (!read && readState.count() <= batchSize) {
+            // Needs no ID index: notifications it has not seen yet are unread as well
+            List<Long> readIds = new ArrayList<>((int) readState.count());
+            readState.ids().forEach(readIds::add);
+            return notificationRepository.findBy(filters.and(NotificationSpecifications.idNotIn(readIds)),
+                    query -> query.sortBy(NEWEST_FIRST).limit(limit).all());
+        }
+
+        Roaring64NavigableMap wanted;
+        if (read) {
+            wanted = readState.ids();
+        } else {
+            idIndex.refresh(tenant);
+            wanted = idIndex.unread(tenant, readState);
+        }
+        List<Notification> latest = new ArrayList<>(Math.min(limit, batchSize));
+        List<Long> batch = new ArrayList<>(batchSize);
+        LongIterator ids = wanted.getReverseLongIterator();
+        while (ids.hasNext() && latest.size() < limit) {
+            batch.add(ids.next());
+            if (batch.size() == batchSize || !ids.hasNext()) {
+                int remaining = limit - latest.size();
+                latest.addAll(notificationRepository.findBy(filters.and(NotificationSpecifications.idIn(batch)),
+                        query -> query.sortBy(LATEST_ID_FIRST).limit(remaining).all()));
+                batch.clear();
+            }
+        }
+        latest.sort(NEWEST_FIRST_ORDER);
+        return latest;
+    }
+
+    /**
+     * Full-text search over a tenant's titles, messages and user/teacher names and emails, best match first.
+     * One extra row is fetched to tell whether another page follows.
+     *
+     * @param cursor {@code nextCursor} of the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    @Transactional(readOnly = true)
+    public NotificationSearchPage search(String tenant, String query, String cursor, int limit, ReadState readState) {
+        NotificationSearchCursor after = cursor == null || cursor.isBlank() ? null : NotificationSearchCursor.decode(cursor);
+
+        long start = System.nanoTime();
+        List<NotificationSearchHit> hits = notificationRepository.search(tenant, query, after, limit + 1);
+        metrics.recordDbTime(DbStage.QUERY, System.nanoTime() - start);
+
+        boolean hasMore = hits.size() > limit;
+        List<NotificationSearchHit> page = hasMore ? hits.subList(0, limit) : hits;
+        List<NotificationDTO> notifications = new ArrayList<>(page.size());
+        for (NotificationSearchHit hit : page) {
+            NotificationDTO dto = NotificationDTO.fromEntity(hit.notification(), objectMapper);
+            dto.setRead(readState.isRead(hit.notification().getId()));
+            notifications.add(dto);
+        }
+        String nextCursor = hasMore ? page.get(page.size() - 1).cursor().encode() : null;
+        return new NotificationSearchPage(notifications, nextCursor);
+    }
+
+    /**
+     * Mark a notification of a tenant as read for one user. Notifications of other tenants are not found.
      */
     @Transactional
-    public Optional<Notification> markAsRead(Long id) {
-        Optional<Notification> notification = notificationRepository.findById(id);
+    public Optional<Notification> markAsRead(String tenant, String user, Long id) {
+        long start = System.nanoTime();
+        Optional<Notification> notification = notificationRepository.findByTenantIdAndId(tenant, id);
+        metrics.recordDbTime(DbStage.LOOKUP, System.nanoTime() - start);
         if (notification.isPresent()) {
-            Notification n = notification.get();
-            n.setRead(true);
-            Notification saved = notificationRepository.save(n);
-            log.info("Marked notification {} as read", id);
-            return Optional.of(saved);
+            start = System.nanoTime();
+            // Rewrites the user's bitmap; only their own listings change, so the tenant watermark stays
+            boolean wasUnread = readStates.markRead(tenant, user, id);
+            metrics.recordDbTime(DbStage.UPDATE, System.nanoTime() - start);
+            if (wasUnread) {
+                log.info("Marked notification {} as read for user {}", id, user);
+            }
         }
-        return Optional.empty();
+        return notification;
     }
 
     /**
-     * Get notification by ID.
+     * Get notification of a tenant by ID.
      */
-    public Optional<Notification> getNotificationById(Long id) {
-        return notificationRepository.findById(id);
+    @Transactional(readOnly = true)
+    public Optional<Notification> getNotificationById(String tenant, Long id) {
+        return notificationRepository.findByTenantIdAndId(tenant, id);
     }
 }
-
@@ -0,0 +1,191 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.dto.NotificationDTO;
+import com.distrischool.notifications.dto.NotificationSnapshot;
+import com.distrischool.notifications.entity.Notification;
+import com.distrischool.notifications.repository.NotificationRepository;
+import com.distrischool.notifications.repository.NotificationSpecifications;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory state behind the snapshot sent with every WebSocket welcome, one per tenant: a ring of the latest
+ * {@code notifications.snapshot.size} notifications, kept as ready-made DTOs. The unread count and read flags of
+ * each user's snapshot come from their {@link ReadState} and the tenant's {@link NotificationIdIndex}.
+ *
+ * Loaded from the database once at startup, before the Kafka listeners start, for every tenant with notifications;
+ * afterwards it is only updated by this node with new notifications, so connects never query the database for it.
+ * Each tenant has its own lock, so a burst for one school never delays another school's welcomes.
+ * A tenant whose first notification arrives after startup starts out empty.
+ */
+@Slf4j
+@Component
+public class NotificationSnapshotCache {
+
+    private final NotificationRepository notificationRepository;
+    private final NotificationChangeWatermark changeWatermark;
+    private final NotificationIdIndex idIndex;
+    private final NotificationReadStates readStates;
+    private final ObjectMapper objectMapper;
+    private final int capacity;
+    private final ConcurrentHashMap<String, TenantSnapshot> tenants = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public NotificationSnapshotCache(NotificationRepository notificationRepository,
+                                     NotificationChangeWatermark changeWatermark,
+                                     NotificationIdIndex idIndex,
+                                     NotificationReadStates readStates,
+                                     ObjectMapper objectMapper,
+                                     @Value("${notifications.snapshot.size:20}") int capacity) {
+        this.notificationRepository = notificationRepository;
+        this.changeWatermark = changeWatermark;
+        this.idIndex = idIndex;
+        this.readStates = readStates;
+        this.objectMapper = objectMapper;
+        this.capacity = capacity;
+    }
+
+    @PostConstruct
+    public void load() {
+        try {
+            // The watermarks were loaded first (constructor dependency) and name every tenant with notifications
+            for (String tenant : changeWatermark.tenants()) {
+                load(tenant);
+            }
+            loaded = true;
+            log.info("Loaded notification snapshot cache: {} tenants", tenants.size());
+        } catch (Exception e) {
+            // Welcomes are sent without a snapshot; clients fall back to the REST endpoints
+            log.warn("Failed to load notification snapshot cache, snapshots disabled: {}", e.getMessage());
+        }
+    }
+
+    private void load(String tenant) {
+        List<Notification> latest = capacity == 0 ? List.of() : notificationRepository.findBy(
+                NotificationSpecifications.matching(tenant, null, null, null),
+                query -> query.sortBy(NotificationService.NEWEST_FIRST).limit(capacity).all());
+        TenantSnapshot snapshot = new TenantSnapshot(capacity);
+        // Oldest first, so the newest ends up at head
+        for (int i = latest.size() - 1; i >= 0; i--) {
+            snapshot.push(latest.get(i).getId(), NotificationDTO.fromEntity(latest.get(i), objectMapper));
+        }
+        tenants.put(tenant, snapshot);
+    }
+
+    /**
+     * Reloads the tenant from the database, after notifications were written without passing through this node
+     * (the Kafka backfill). A notification this node persists while the reload runs may be left out.
+     */
+    public void reload(String tenant) {
+        if (loaded) {
+            load(tenant);
+        }
+    }
+
+    /**
+     * Records a newly persisted notification. Must be called before it is broadcast.
+     */
+    public void add(Notification notification) {
+        if (!loaded) {
+            return;
+        }
+        NotificationDTO dto = NotificationDTO.fromEntity(notification, objectMapper);
+        TenantSnapshot snapshot = tenants.computeIfAbsent(notification.getTenantId(), tenant -> new TenantSnapshot(capacity));
+        snapshot.lock.lock();
+        try {
+            snapshot.push(notification.getId(), dto);
+        } finally {
+            snapshot.lock.unlock();
+        }
+    }
+
+    /**
+     * The user's read state for {@link #snapshot}, as cached on this node, with the tenant's IDs loaded: everything
+     * a snapshot may read from the database, to fetch before taking a lock that broadcasts wait on.
+     */
+    public ReadState readState(String tenant, String user) {
+        ReadState readState = readStates.getCached(tenant, user);
+        idIndex.load(tenant);
+        return readState;
+    }
+
+    /**
+     * The current snapshot of the tenant as the user sees it, or null if the cache could not be loaded or this node
+     * has not seen the tenant yet.
+     */
+    public NotificationSnapshot snapshot(String tenant, ReadState readState) {
+        TenantSnapshot snapshot = loaded ? tenants.get(tenant) : null;
+        if (snapshot == null) {
+            return null;
+        }
+        List<NotificationDTO> notifications;
+        long lastId = 0;
+        snapshot.lock.lock();
+        try {
+            notifications = new ArrayList<>(snapshot.size);
+            for (int i = 0; i < snapshot.size; i++) {
+                int index = Math.floorMod(snapshot.head - i, snapshot.ring.length);
+                NotificationDTO dto = snapshot.ring[index];
+                // Cached DTOs are shared by snapshots in flight, so the ones the user has read are copied
+                notifications.add(readState.isRead(snapshot.ringIds[index])
+                        ? new NotificationDTO(dto.getId(), dto.getType(), dto.getTitle(), dto.getMessage(),
+                                dto.getTimestamp(), true, dto.getData())
+                        : dto);
+                lastId = Math.max(lastId, snapshot.ringIds[index]);
+            }
+        } finally {
+            snapshot.lock.unlock();
+        }
+        return new NotificationSnapshot(idIndex.unreadCount(tenant, readState), notifications,
+                notifications.isEmpty() ? null : Long.toString(lastId));
+    }
+
+    /**
+     * The IDs of the notifications in a snapshot, sorted for {@link Arrays#binarySearch(long[], long)}.
+     */
+    public static long[] notificationIds(NotificationSnapshot snapshot) {
+        long[] ids = new long[snapshot.getNotifications().size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = Long.parseLong(snapshot.getNotifications().get(i).getId());
+        }
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Snapshot state of one tenant, guarded by its lock (unguarded only while loading, before it is published).
+     */
+    private static final class TenantSnapshot {
+
+        private final NotificationDTO[] ring;
+        private final long[] ringIds;
+        private final ReentrantLock lock = new ReentrantLock();
+        // Index of the newest entry, and number of entries
+        private int head = -1;
+        private int size;
+
+        private TenantSnapshot(int capacity) {
+            this.ring = new NotificationDTO[capacity];
+            this.ringIds = new long[capacity];
+        }
+
+        private void push(long id, NotificationDTO dto) {
+            if (ring.length == 0) {
+                return;
+            }
+            head = (head + 1) % ring.length;
+            ring[head] = dto;
+            ringIds[head] = id;
+            size = Math.min(size + 1, ring.length);
+        }
+    }
+}
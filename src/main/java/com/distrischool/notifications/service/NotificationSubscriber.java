@@ -0,0 +1,25 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.entity.Notification;
+
+/**
+ * A delivery channel fed by {@link NotificationBroadcastService}, e.g. a WebSocket transport.
+ * Every persisted notification is handed to all registered subscribers.
+ */
+public interface NotificationSubscriber {
+
+    /**
+     * Delivers a persisted notification to this channel's clients.
+     */
+    void onNotification(Notification notification);
+
+    /**
+     * Delivers a notification taken from a priority lane. Higher lanes overtake lower ones, so notifications are
+     * no longer handed over in ID order: {@code resumeId} is the highest ID a client that received this
+     * notification can resume from without skipping one still queued in another lane (at most the notification's
+     * own ID). Channels that coalesce or resume by ID override this; the others ignore the extra arguments.
+     */
+    default void onNotification(Notification notification, NotificationPriority priority, long resumeId) {
+        onNotification(notification);
+    }
+}
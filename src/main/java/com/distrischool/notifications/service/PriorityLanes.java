@@ -0,0 +1,183 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.metrics.NotificationMetrics.LaneStage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queues, one per {@link NotificationPriority}, drained by worker threads in smooth weighted round-robin
+ * order: while several lanes hold work each gets a share of the picks proportional to its weight, interleaved
+ * rather than in runs, and no lane with work starves. A full lane blocks its producers and no other lane.
+ *
+ * Items submitted after {@link #shutdown()} are handled on the submitting thread.
+ *
+ * @param <T> queued item
+ */
+@Slf4j
+final class PriorityLanes<T> {
+
+    private final String name;
+    private final LaneStage stage;
+    private final Consumer<T> handler;
+    private final NotificationMetrics metrics;
+    private final List<Lane> lanes = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private boolean stopping;
+
+    PriorityLanes(String name, LaneStage stage, NotificationPriorityProperties properties, int workerCount,
+                  NotificationMetrics metrics, Consumer<T> handler) {
+        this.name = name;
+        this.stage = stage;
+        this.handler = handler;
+        this.metrics = metrics;
+        for (NotificationPriority priority : NotificationPriority.values()) {
+            NotificationPriorityProperties.Lane config = properties.lane(priority);
+            Lane lane = new Lane(priority, Math.max(1, config.getWeight()), Math.max(1, config.getCapacity()));
+            lanes.add(lane);
+            metrics.registerLaneQueue(stage, priority, () -> lane.depth);
+        }
+        for (int i = 0; i < Math.max(1, workerCount); i++) {
+            Thread thread = new Thread(this::work, name + "-" + i);
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Queues the item on its lane, waiting while the lane is full.
+     */
+    void submit(NotificationPriority priority, T item) {
+        Lane lane = lanes.get(priority.ordinal());
+        lock.lock();
+        try {
+            while (!stopping && lane.queue.size() >= lane.capacity) {
+                lane.space.await();
+            }
+            if (!stopping) {
+                lane.queue.add(new Queued<>(item, System.nanoTime()));
+                lane.depth = lane.queue.size();
+                available.signal();
+                return;
+            }
+        } catch (InterruptedException e) {
+            // Stopping listener: keep the item rather than drop it
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+        handle(item);
+    }
+
+    /**
+     * Stops accepting items and waits for the workers to drain what is queued.
+     */
+    void shutdown() {
+        lock.lock();
+        try {
+            stopping = true;
+            available.signalAll();
+            lanes.forEach(lane -> lane.space.signalAll());
+        } finally {
+            lock.unlock();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Lane lane;
+            Queued<T> next;
+            lock.lock();
+            try {
+                while ((lane = pick()) == null) {
+                    if (stopping) {
+                        return;
+                    }
+                    available.awaitUninterruptibly();
+                }
+                next = lane.queue.poll();
+                lane.depth = lane.queue.size();
+                lane.space.signal();
+            } finally {
+                lock.unlock();
+            }
+            metrics.recordLaneWait(stage, lane.priority, System.nanoTime() - next.queuedNanos());
+            handle(next.item());
+        }
+    }
+
+    /**
+     * Smooth weighted round robin over the lanes holding work: each gains its weight in credit, the richest is
+     * picked and pays the total weight. Empty lanes keep no credit, so an idle lane cannot save up a burst.
+     * Called with the lock held.
+     */
+    private Lane pick() {
+        Lane best = null;
+        int total = 0;
+        for (Lane lane : lanes) {
+            if (lane.queue.isEmpty()) {
+                lane.credit = 0;
+                continue;
+            }
+            lane.credit += lane.weight;
+            total += lane.weight;
+            if (best == null || lane.credit > best.credit) {
+                best = lane;
+            }
+        }
+        if (best != null) {
+            best.credit -= total;
+        }
+        return best;
+    }
+
+    private void handle(T item) {
+        try {
+            handler.accept(item);
+        } catch (Exception e) {
+            log.error("{} failed to handle an item: {}", name, e.getMessage(), e);
+        }
+    }
+
+    private record Queued<T>(T item, long queuedNanos) {
+    }
+
+    /**
+     * Queue and scheduling state of one priority; guarded by the lock, except {@code depth} read by the gauge.
+     */
+    private final class Lane {
+
+        private final NotificationPriority priority;
+        private final int weight;
+        private final int capacity;
+        private final ArrayDeque<Queued<T>> queue = new ArrayDeque<>();
+        private final Condition space = lock.newCondition();
+        private int credit;
+        private volatile int depth;
+
+        private Lane(NotificationPriority priority, int weight, int capacity) {
+            this.priority = priority;
+            this.weight = weight;
+            this.capacity = capacity;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.distrischool.notifications.service;
+
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * The notifications one user has read, at one version of their {@code notification_read_state} row.
+ *
+ * Immutable: a mark creates a new state, so a listing keeps a consistent view while the user marks more. The
+ * bitmap never caches cardinalities, which would make reads mutate it, and is safe to read from any thread.
+ */
+public final class ReadState {
+
+    /**
+     * State of a user who has never marked a notification read.
+     */
+    public static final ReadState NONE = new ReadState(newBitmap(), 0, 0);
+
+    private final Roaring64NavigableMap ids;
+    private final long version;
+    private final long lastModified;
+
+    ReadState(Roaring64NavigableMap ids, long version, long lastModified) {
+        this.ids = ids;
+        this.version = version;
+        this.lastModified = lastModified;
+    }
+
+    public boolean isRead(long notificationId) {
+        return ids.contains(notificationId);
+    }
+
+    /**
+     * Number of notifications read.
+     */
+    public long count() {
+        return ids.getLongCardinality();
+    }
+
+    /**
+     * Version of the stored state, 0 if there is none.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Time of the latest mark, epoch milliseconds; 0 if there is none.
+     */
+    public long lastModified() {
+        return lastModified;
+    }
+
+    /**
+     * The read IDs; must not be modified.
+     */
+    Roaring64NavigableMap ids() {
+        return ids;
+    }
+
+    /**
+     * This state plus one read notification, or this state if it was read already. The result still has this
+     * version; it only becomes the user's state once stored.
+     */
+    ReadState with(long notificationId, long version, long lastModified) {
+        Roaring64NavigableMap added = newBitmap();
+        added.or(ids);
+        added.addLong(notificationId);
+        added.runOptimize();
+        return new ReadState(added, version, lastModified);
+    }
+
+    static ReadState deserialize(byte[] bytes, long version, long lastModified) {
+        Roaring64NavigableMap ids = newBitmap();
+        try {
+            ids.deserializePortable(new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed read state bitmap", e);
+        }
+        return new ReadState(ids, version, lastModified);
+    }
+
+    /**
+     * Portable Roaring serialization, readable by the Roaring implementations of other languages.
+     */
+    byte[] serialize() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(ids.serializedSizeInBytes(), 1 << 20));
+            DataOutputStream out = new DataOutputStream(bytes);
+            ids.serializePortable(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Roaring64NavigableMap newBitmap() {
+        // Unsigned order (IDs are positive), no cardinality cache
+        return new Roaring64NavigableMap(false, false);
+    }
+}
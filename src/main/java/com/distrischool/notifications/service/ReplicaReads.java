@@ -0,0 +1,108 @@
+package com.distrischool.notifications.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Replica freshness, as last measured by the replica lag monitor, for read-only transactions and the conditional
+ * GET watermark.
+ *
+ * While the replica is within the staleness bound, read-only transactions are routed to it and listings are tagged
+ * with the tenant's change watermark the replica has caught up to; otherwise they go to the primary's read pool and
+ * are tagged with the current watermark. A request {@linkplain #open(String, NotificationChangeWatermark.Watermark)
+ * opens a view} before checking its ETag, so the watermark it answers with and the database it reads from come from
+ * the same measurement, even if the monitor flips the state in between. Without a configured replica the state is
+ * never fresh.
+ *
+ * Has no dependencies, since the routing DataSource needs it before any repository exists.
+ */
+@Component
+public class ReplicaReads {
+
+    private static final State STALE = new State(false, null);
+
+    private final ThreadLocal<State> pinned = new ThreadLocal<>();
+    private volatile State state = STALE;
+
+    /**
+     * Pins the current state to this thread until the view is closed.
+     *
+     * @param tenant the tenant whose notifications are read
+     * @param latest the tenant's current change watermark, which tags the view when reads go to the primary
+     */
+    public ReadView open(String tenant, NotificationChangeWatermark.Watermark latest) {
+        State current = state;
+        pinned.set(current);
+        return new ReadView(current.fresh() ? current.watermarks().forTenant(tenant) : latest);
+    }
+
+    /**
+     * Runs a read that must see the latest committed state, such as a user's own read marks: read-only transactions
+     * it opens go to the primary's read pool whatever the replica state, and the pinned view, if any, is restored
+     * afterwards.
+     */
+    public <T> T onPrimary(Supplier<T> read) {
+        State previous = pinned.get();
+        pinned.set(STALE);
+        try {
+            return read.get();
+        } finally {
+            if (previous != null) {
+                pinned.set(previous);
+            } else {
+                pinned.remove();
+            }
+        }
+    }
+
+    /**
+     * Whether a read-only transaction on this thread should run on the replica.
+     */
+    public boolean useReplica() {
+        State current = pinned.get();
+        return (current != null ? current : state).fresh();
+    }
+
+    public boolean isFresh() {
+        return state.fresh();
+    }
+
+    /**
+     * The replica is within the staleness bound and has applied every change up to {@code watermarks}.
+     */
+    public void caughtUp(NotificationChangeWatermark.Watermarks watermarks) {
+        state = new State(true, watermarks);
+    }
+
+    /**
+     * The replica is behind the staleness bound or unreachable.
+     */
+    public void stale() {
+        state = STALE;
+    }
+
+    private record State(boolean fresh, NotificationChangeWatermark.Watermarks watermarks) {
+    }
+
+    /**
+     * A read pinned to one replica state; {@link #watermark()} is the ETag source matching the data it reads.
+     */
+    public final class ReadView implements AutoCloseable {
+
+        private final NotificationChangeWatermark.Watermark watermark;
+
+        private ReadView(NotificationChangeWatermark.Watermark watermark) {
+            this.watermark = watermark;
+        }
+
+        public NotificationChangeWatermark.Watermark watermark() {
+            return watermark;
+        }
+
+        @Override
+        public void close() {
+            pinned.remove();
+        }
+    }
+}
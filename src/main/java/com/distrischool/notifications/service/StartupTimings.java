@@ -0,0 +1,56 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.entity.Notification;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Logs how long a cold start takes, from JVM start until the application is ready and until the first
+ * notification is broadcast, along with whether AOT-generated bean definitions and a CDS archive were in use.
+ * The time to the first notification is also exported as {@code notifications.startup.first.notification}.
+ *
+ * Registered as a subscriber so it sees every broadcast; after the first one it is a single flag check.
+ */
+@Slf4j
+@Component
+public class StartupTimings implements NotificationSubscriber {
+
+    private final RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+    private final AtomicBoolean firstNotification = new AtomicBoolean();
+    private volatile long firstNotificationMs = -1;
+
+    public StartupTimings(NotificationMetrics metrics) {
+        metrics.registerFirstNotification(() -> firstNotificationMs);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready() {
+        log.info("Startup: ready {} ms after JVM start (AOT: {}, CDS archive: {})", runtime.getUptime(),
+                AotDetector.useGeneratedArtifacts(), cdsArchive());
+    }
+
+    @Override
+    public void onNotification(Notification notification) {
+        if (!firstNotification.get() && firstNotification.compareAndSet(false, true)) {
+            firstNotificationMs = runtime.getUptime();
+            log.info("Startup: first notification broadcast {} ms after JVM start", firstNotificationMs);
+        }
+    }
+
+    private String cdsArchive() {
+        for (String argument : runtime.getInputArguments()) {
+            if (argument.startsWith("-XX:SharedArchiveFile=")) {
+                return argument.substring("-XX:SharedArchiveFile=".length());
+            }
+        }
+        return "none";
+    }
+}
@@ -0,0 +1,232 @@
+package com.distrischool.notifications.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Tenant partitions of the {@code notifications} table (V6__Partition_notifications_by_tenant.sql).
+ *
+ * Attaching a partition locks the parent table exclusively, so partitions are never created on the ingestion path:
+ * {@link #ensure} only queues the tenant for a single background thread and returns. Until its partition exists a
+ * tenant's rows go to the default partition ({@code notifications_unassigned}), which every query of the tenant
+ * reads as well. The background thread then takes the table lock, waiting at most
+ * {@code notifications.tenancy.partition-lock-timeout-ms} so a long query never stalls reads behind the DDL, and
+ * in one transaction moves the tenant's rows (and their aggregated events) out of the default partition, creates
+ * the partition and inserts them back, keeping their IDs. Any failure, a lock timeout included, is retried after
+ * {@code partition-retry-ms}; no tenant is left in the default partition. Tenants found there at startup, from an
+ * earlier crash or another instance, are queued as well.
+ *
+ * Without a partitioned table (H2 in tests) every call is a no-op.
+ */
+@Slf4j
+@Component
+public class TenantPartitions {
+
+    private static final String PREFIX = "notifications_t_";
+    private static final Pattern PLAIN = Pattern.compile("[a-z0-9_]+");
+    private static final String LOCK_NOT_AVAILABLE = "55P03";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long lockTimeoutMs;
+    private final long retryMs;
+    // Tenants with nothing left to do: partition in place, or no partitioned table
+    private final Set<String> settled = ConcurrentHashMap.newKeySet();
+    // Tenants queued on the creator thread
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService creator;
+    // Creator thread only
+    private Boolean partitioned;
+
+    public TenantPartitions(JdbcTemplate jdbcTemplate,
+                            @Value("${notifications.tenancy.partition-lock-timeout-ms:1000}") long lockTimeoutMs,
+                            @Value("${notifications.tenancy.partition-retry-ms:5000}") long retryMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.retryMs = retryMs;
+        this.creator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "tenant-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues the tenants left in the default partition, so they get their partition even if nothing new of
+     * theirs arrives.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        submit(this::adoptUnassigned);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        creator.shutdownNow();
+    }
+
+    /**
+     * Requests the partition of the tenant; never blocks. Its rows written before the partition exists go to the
+     * default partition and are moved into it once it is created.
+     */
+    public void ensure(String tenant) {
+        if (!settled.contains(tenant) && pending.add(tenant)) {
+            submit(() -> create(tenant));
+        }
+    }
+
+    /**
+     * Table name of a tenant's partition. Tenants that are not lowercase identifiers get a hash suffix, so
+     * sanitizing never maps two tenants to one name.
+     */
+    static String partitionName(String tenant) {
+        if (PLAIN.matcher(tenant).matches()) {
+            return PREFIX + tenant;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(tenant.getBytes(StandardCharsets.UTF_8));
+        return PREFIX + tenant.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]", "_")
+                + "_" + Long.toHexString(crc.getValue());
+    }
+
+    private void create(String tenant) {
+        try {
+            if (isPartitioned()) {
+                String partition = partitionName(tenant);
+                Integer moved = jdbcTemplate.execute((ConnectionCallback<Integer>) connection ->
+                        createPartition(connection, partition, tenant));
+                if (moved != null && moved >= 0) {
+                    log.info("Created notifications partition {} for tenant {}, {} notifications moved into it",
+                            partition, tenant, moved);
+                }
+            }
+            settled.add(tenant);
+            pending.remove(tenant);
+        } catch (DataAccessException e) {
+            if (e.getRootCause() instanceof SQLException sql && LOCK_NOT_AVAILABLE.equals(sql.getSQLState())) {
+                log.warn("Partition of tenant {} not created within {} ms, retrying in {} ms",
+                        tenant, lockTimeoutMs, retryMs);
+            } else {
+                log.error("Partition of tenant {} not created, retrying in {} ms: {}", tenant, retryMs,
+                        e.getMessage(), e);
+            }
+            schedule(() -> create(tenant));
+        }
+    }
+
+    /**
+     * Creates the partition, moving the tenant's rows out of the default partition first.
+     *
+     * @return the rows moved, or -1 if the partition existed already
+     */
+    private int createPartition(Connection connection, String partition, String tenant) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (exists(statement, partition)) {
+                return -1;
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                statement.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+                // Locks every partition too: no row of the tenant can reach the default partition until commit
+                statement.execute("LOCK TABLE notifications IN ACCESS EXCLUSIVE MODE");
+                if (exists(statement, partition)) {
+                    connection.rollback();
+                    return -1;
+                }
+                // Tenant IDs are validated by TenantResolver, so they never contain quotes
+                String ofTenant = " WHERE tenant_id = '" + tenant + "'";
+                statement.execute("CREATE TEMP TABLE moving_notifications ON COMMIT DROP AS"
+                        + " SELECT * FROM notifications_unassigned" + ofTenant);
+                statement.execute("CREATE TEMP TABLE moving_events ON COMMIT DROP AS"
+                        + " SELECT * FROM notification_events" + ofTenant);
+                // Also deletes their notification_events (cascade), inserted back below
+                int moved = statement.executeUpdate("DELETE FROM notifications_unassigned" + ofTenant);
+                statement.execute("CREATE TABLE " + partition
+                        + " PARTITION OF notifications FOR VALUES IN ('" + tenant + "')");
+                statement.execute("INSERT INTO notifications SELECT * FROM moving_notifications");
+                statement.execute("INSERT INTO notification_events SELECT * FROM moving_events");
+                connection.commit();
+                return moved;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void adoptUnassigned() {
+        try {
+            if (isPartitioned()) {
+                jdbcTemplate.queryForList("SELECT DISTINCT tenant_id FROM notifications_unassigned", String.class)
+                        .forEach(this::ensure);
+            }
+        } catch (DataAccessException e) {
+            log.error("Failed to list the tenants in notifications_unassigned, retrying in {} ms: {}",
+                    retryMs, e.getMessage(), e);
+            schedule(this::adoptUnassigned);
+        }
+    }
+
+    private boolean isPartitioned() {
+        if (partitioned == null) {
+            partitioned = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+                if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                    return false;
+                }
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery("SELECT EXISTS (SELECT 1 FROM pg_partitioned_table"
+                             + " WHERE partrelid = to_regclass('notifications'))")) {
+                    return rs.next() && rs.getBoolean(1);
+                }
+            });
+            log.info("Notifications table partitioned by tenant: {}", partitioned);
+        }
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    private static boolean exists(Statement statement, String table) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT to_regclass('" + table + "') IS NOT NULL")) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            creator.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private void schedule(Runnable task) {
+        try {
+            creator.schedule(task, retryMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.distrischool.notifications.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Open connections of one transport, grouped by tenant. A broadcast walks the connections of the notification's
+ * tenant only, so one school's traffic never reaches, or waits on, another school's sockets.
+ *
+ * @param <K> connection key (session or subscriber ID)
+ * @param <V> connection
+ */
+public final class TenantRegistry<K, V> {
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<K, V>> tenants = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public void put(String tenant, K key, V connection) {
+        if (tenants.computeIfAbsent(tenant, t -> new ConcurrentHashMap<>()).put(key, connection) == null) {
+            size.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the removed connection, or null if it was not registered
+     */
+    public V remove(String tenant, K key) {
+        ConcurrentHashMap<K, V> connections = tenants.get(tenant);
+        V removed = connections == null ? null : connections.remove(key);
+        if (removed != null) {
+            size.decrementAndGet();
+        }
+        return removed;
+    }
+
+    public V get(String tenant, K key) {
+        ConcurrentHashMap<K, V> connections = tenants.get(tenant);
+        return connections == null ? null : connections.get(key);
+    }
+
+    public boolean contains(String tenant, K key) {
+        return get(tenant, key) != null;
+    }
+
+    /**
+     * Live view of the tenant's connections.
+     */
+    public Collection<V> of(String tenant) {
+        ConcurrentHashMap<K, V> connections = tenants.get(tenant);
+        return connections == null ? List.of() : connections.values();
+    }
+
+    /**
+     * Every connection, across tenants (keepalives, shutdown).
+     */
+    public Stream<V> all() {
+        return tenants.values().stream().flatMap(connections -> connections.values().stream());
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+}
@@ -0,0 +1,77 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.template.kafka.DistriSchoolEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the tenant (school) of a request or an event.
+ *
+ * Users carry it in the {@code notifications.tenancy.claim} claim of their JWT, events in the
+ * {@code notifications.tenancy.metadata-key} entry of {@link DistriSchoolEvent#getMetadata()}. Tokens and events
+ * without one belong to {@link #DEFAULT_TENANT}, which also holds every notification written before tenancy.
+ * Tenant IDs name a table partition (see {@link TenantPartitions}), so only short alphanumeric IDs are accepted.
+ */
+@Component
+public class TenantResolver {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    /**
+     * Session attribute holding the tenant of a WebSocket connection, set at the handshake.
+     */
+    public static final String ATTRIBUTE = "tenantId";
+
+    private static final Pattern VALID = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_-]{0,31}");
+
+    private final String claim;
+    private final String metadataKey;
+
+    public TenantResolver(@Value("${notifications.tenancy.claim:https://distrischool.com/school_id}") String claim,
+                          @Value("${notifications.tenancy.metadata-key:schoolId}") String metadataKey) {
+        this.claim = claim;
+        this.metadataKey = metadataKey;
+    }
+
+    /**
+     * @throws AccessDeniedException if the token carries a malformed tenant
+     */
+    public String fromJwt(Jwt jwt) {
+        String tenant = jwt == null ? null : normalize(jwt.getClaims().get(claim));
+        if (tenant != null && !VALID.matcher(tenant).matches()) {
+            throw new AccessDeniedException("Invalid tenant claim");
+        }
+        return tenant != null ? tenant : DEFAULT_TENANT;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the event metadata carries a malformed tenant
+     */
+    public String fromEvent(DistriSchoolEvent event) {
+        String tenant = event.getMetadata() == null ? null : normalize(event.getMetadata().get(metadataKey));
+        if (tenant != null && !VALID.matcher(tenant).matches()) {
+            throw new IllegalArgumentException("Invalid tenant in metadata of event " + event.getEventId());
+        }
+        return tenant != null ? tenant : DEFAULT_TENANT;
+    }
+
+    /**
+     * The tenant stored in the attributes of a WebSocket connection.
+     */
+    public static String of(Map<String, Object> attributes) {
+        return attributes.get(ATTRIBUTE) instanceof String tenant ? tenant : DEFAULT_TENANT;
+    }
+
+    private static String normalize(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String tenant = value.toString().trim();
+        return tenant.isEmpty() ? null : tenant;
+    }
+}
@@ -0,0 +1,124 @@
+package com.distrischool.notifications.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: {@code wheelSize} buckets of {@code tickMs} each, with an overflow wheel of
+ * {@code tickMs * wheelSize} ticks for deadlines past its span, created when first needed. Adding is O(1) whatever
+ * the deadline, and advancing by one tick touches one bucket; an overflow bucket is cascaded into the level below
+ * when that level's span reaches it. With 512 buckets of 100 ms the levels span 51 s, 7 h and 155 days.
+ *
+ * An entry fires on the first {@link #advance} at or after its deadline, at most one tick late and never early.
+ * Not thread-safe.
+ *
+ * @param <T> scheduled item
+ */
+final class TimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long intervalMs;
+    private final List<List<Entry<T>>> buckets;
+    // Start of the current tick; every bucket before it has been drained
+    private long currentTimeMs;
+    private TimingWheel<T> overflow;
+
+    TimingWheel(long tickMs, int wheelSize, long startMs) {
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.intervalMs = tickMs * wheelSize;
+        this.currentTimeMs = startMs - Math.floorMod(startMs, tickMs);
+        this.buckets = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Adds an item due at {@code deadlineMs}.
+     *
+     * @return false, adding nothing, if the deadline has already passed: the caller handles the item now
+     */
+    boolean add(long deadlineMs, T item) {
+        if (deadlineMs < currentTimeMs) {
+            return false;
+        }
+        place(new Entry<>(deadlineMs, item));
+        return true;
+    }
+
+    /**
+     * Removes an item added with {@code deadlineMs} that has not fired yet; costs one scan of its bucket per level.
+     *
+     * @return false if the wheel does not hold it
+     */
+    boolean remove(long deadlineMs, T item) {
+        if (deadlineMs < currentTimeMs) {
+            return false;
+        }
+        List<Entry<T>> bucket = buckets.get(index(deadlineMs));
+        if (bucket.removeIf(entry -> entry.deadlineMs() == deadlineMs && entry.item().equals(item))) {
+            return true;
+        }
+        return overflow != null && overflow.remove(deadlineMs, item);
+    }
+
+    /**
+     * Moves the wheel to {@code nowMs}, handing every item whose deadline has passed to {@code expired}.
+     */
+    void advance(long nowMs, Consumer<T> expired) {
+        while (currentTimeMs + tickMs <= nowMs) {
+            List<Entry<T>> bucket = takeBucket(currentTimeMs);
+            for (Entry<T> entry : bucket) {
+                expired.accept(entry.item());
+            }
+            currentTimeMs += tickMs;
+            if (overflow != null && currentTimeMs % intervalMs == 0) {
+                overflow.cascade(currentTimeMs, this);
+            }
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        if (entry.deadlineMs() < currentTimeMs + intervalMs) {
+            buckets.get(index(entry.deadlineMs())).add(entry);
+        } else {
+            if (overflow == null) {
+                overflow = new TimingWheel<>(intervalMs, wheelSize, currentTimeMs);
+            }
+            overflow.place(entry);
+        }
+    }
+
+    /**
+     * Called when the level below starts the span of this level's bucket at {@code timeMs}: moves the bucket's
+     * entries, now within the span of a lower level, back through {@code root}.
+     */
+    private void cascade(long timeMs, TimingWheel<T> root) {
+        currentTimeMs = timeMs;
+        if (overflow != null && timeMs % intervalMs == 0) {
+            overflow.cascade(timeMs, root);
+        }
+        for (Entry<T> entry : takeBucket(timeMs)) {
+            root.place(entry);
+        }
+    }
+
+    private List<Entry<T>> takeBucket(long timeMs) {
+        int index = index(timeMs);
+        List<Entry<T>> bucket = buckets.get(index);
+        if (!bucket.isEmpty()) {
+            buckets.set(index, new ArrayList<>());
+        }
+        return bucket;
+    }
+
+    private int index(long timeMs) {
+        return (int) Math.floorMod(Math.floorDiv(timeMs, tickMs), (long) wheelSize);
+    }
+
+    private record Entry<T>(long deadlineMs, T item) {
+    }
+}
@@ -0,0 +1,275 @@
+package com.distrischool.notifications.sse;
+
+import com.distrischool.notifications.dto.NotificationJsonWriter;
+import com.distrischool.notifications.entity.Notification;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.repository.NotificationRepository;
+import com.distrischool.notifications.service.NotificationPriority;
+import com.distrischool.notifications.service.NotificationSubscriber;
+import com.distrischool.notifications.service.TenantRegistry;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SegmentedStringWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-Sent Events transport for {@code GET /api/v1/notifications/stream}, fed by the same
+ * {@link com.distrischool.notifications.service.NotificationBroadcastService} as the WebSocket transports.
+ *
+ * Each broadcast is encoded once into an {@code id:/event:notification/data:} frame, with the data in the
+ * {@link com.distrischool.notifications.dto.NotificationDTO} shape, and queued on every subscriber. Queues are
+ * bounded by {@code notifications.sse.buffer-size}; a subscriber whose queue fills up is closed and resumes with
+ * {@code Last-Event-ID} when it reconnects, so the broadcast thread never waits on a slow client.
+ *
+ * Emitters are asynchronous requests, so an open stream holds no servlet thread. Queues are written out by a small
+ * pool of platform writer threads ({@code SseEmitter} sends under a monitor, which would pin virtual threads), one
+ * subscriber at a time per thread, in order.
+ *
+ * A subscriber connecting with {@code Last-Event-ID} first gets the notifications persisted after that ID, read
+ * from the database by its writer; live frames queued meanwhile are sent afterwards, minus the ones already
+ * replayed. A replay of {@code replay-limit} rows ends the stream, and the client resumes from its last row.
+ *
+ * Priority lanes let a notification overtake lower-lane ones with smaller IDs, so a live frame's {@code id:} is
+ * the resume ID of the dispatch rather than the notification's own: a client resuming from it may receive a
+ * notification again, but never skips one that was still queued when its stream dropped.
+ *
+ * Streams belong to the tenant of their token: broadcasts only reach the streams of the notification's tenant, and
+ * replays only read that tenant's partition.
+ */
+@Slf4j
+@Component
+public class NotificationSseHub implements NotificationSubscriber {
+
+    private static final MediaType TEXT_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+    // ID of frames that are not notifications (keepalives), never matched against replayed IDs
+    private static final long NO_NOTIFICATION = 0;
+    private static final Frame KEEPALIVE = new Frame(NO_NOTIFICATION, Set.of(new DataWithMediaType(":\n\n", TEXT_UTF8)));
+
+    private final TenantRegistry<Long, Subscriber> subscribers = new TenantRegistry<>();
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final NotificationRepository repository;
+    private final NotificationMetrics metrics;
+    private final JsonFactory jsonFactory;
+    private final NotificationJsonWriter.Inclusion inclusion;
+    private final long timeoutMs;
+    private final int bufferSize;
+    private final int replayLimit;
+    private final ExecutorService writers;
+    private final ScheduledExecutorService keepalive;
+
+    public NotificationSseHub(NotificationRepository repository,
+                              NotificationMetrics metrics,
+                              ObjectMapper objectMapper,
+                              @Value("${notifications.sse.timeout-ms:1800000}") long timeoutMs,
+                              @Value("${notifications.sse.buffer-size:256}") int bufferSize,
+                              @Value("${notifications.sse.replay-limit:500}") int replayLimit,
+                              @Value("${notifications.sse.keepalive-ms:15000}") long keepaliveMs,
+                              @Value("${notifications.sse.writer-threads:4}") int writerThreads) {
+        this.repository = repository;
+        this.metrics = metrics;
+        this.jsonFactory = objectMapper.getFactory();
+        this.inclusion = NotificationJsonWriter.Inclusion.of(objectMapper.getSerializationConfig());
+        this.timeoutMs = timeoutMs;
+        this.bufferSize = bufferSize;
+        this.replayLimit = replayLimit;
+        AtomicInteger writerIds = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "sse-writer-" + writerIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.keepalive = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-keepalive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Comment frames keep proxies from timing out idle streams and surface dead connections as write errors
+        keepalive.scheduleAtFixedRate(() -> subscribers.all().forEach(subscriber -> subscriber.offer(KEEPALIVE)),
+                keepaliveMs, keepaliveMs, TimeUnit.MILLISECONDS);
+        metrics.registerSseSubscribers(subscribers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        keepalive.shutdown();
+        subscribers.all().forEach(Subscriber::close);
+        writers.shutdown();
+    }
+
+    /**
+     * Opens a stream of the tenant's notifications; with {@code lastEventId} it starts with the ones persisted
+     * after that ID.
+     */
+    public SseEmitter subscribe(String tenant, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(subscriberIds.incrementAndGet(), tenant, emitter, lastEventId);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(error -> remove(subscriber));
+        subscribers.put(tenant, subscriber.id, subscriber);
+        log.info("SSE stream {} opened (Last-Event-ID: {}, total streams: {})", subscriber.id, lastEventId,
+                subscribers.size());
+        if (lastEventId != null) {
+            subscriber.schedule();
+        }
+        return emitter;
+    }
+
+    @Override
+    public void onNotification(Notification notification) {
+        onNotification(notification, NotificationPriority.NORMAL, notification.getId());
+    }
+
+    @Override
+    public void onNotification(Notification notification, NotificationPriority priority, long resumeId) {
+        Collection<Subscriber> tenantSubscribers = subscribers.of(notification.getTenantId());
+        if (tenantSubscribers.isEmpty()) {
+            return;
+        }
+        Frame frame;
+        try {
+            frame = new Frame(notification.getId(),
+                    Set.of(new DataWithMediaType(encode(notification, resumeId), TEXT_UTF8)));
+        } catch (IOException e) {
+            log.error("Failed to serialize notification {} for SSE: {}", notification.getId(), e.getMessage());
+            return;
+        }
+        for (Subscriber subscriber : tenantSubscribers) {
+            subscriber.offer(frame);
+        }
+    }
+
+    private String encode(Notification notification, long eventId) throws IOException {
+        SegmentedStringWriter data = new SegmentedStringWriter(jsonFactory._getBufferRecycler());
+        try (JsonGenerator generator = jsonFactory.createGenerator(data)) {
+            NotificationJsonWriter.write(generator, notification, inclusion);
+        }
+        // The generator escapes control characters, so the data fits on one line
+        return "id:" + eventId + "\nevent:notification\ndata:" + data.getAndClear() + "\n\n";
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        if (subscribers.remove(subscriber.tenant, subscriber.id) != null) {
+            log.info("SSE stream {} closed (total streams: {})", subscriber.id, subscribers.size());
+        }
+    }
+
+    private record Frame(long notificationId, Set<DataWithMediaType> payload) {
+    }
+
+    /**
+     * One open stream. Frames are queued by the broadcast and keepalive threads and written by at most one
+     * writer thread at a time; the emitter is only touched by that writer.
+     */
+    private final class Subscriber {
+
+        private final long id;
+        private final String tenant;
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<Frame> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+        // Writer thread only
+        private Long replayAfter;
+        private long replayedThrough;
+
+        private Subscriber(long id, String tenant, SseEmitter emitter, Long replayAfter) {
+            this.id = id;
+            this.tenant = tenant;
+            this.emitter = emitter;
+            this.replayAfter = replayAfter;
+        }
+
+        void offer(Frame frame) {
+            if (closed) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                log.warn("SSE stream {} closed: {} frames pending", id, bufferSize);
+                metrics.sseOverflow();
+                closed = true;
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        /**
+         * Closes the stream from its writer, so the broadcast thread never waits on the emitter.
+         */
+        void close() {
+            closed = true;
+            schedule();
+        }
+
+        private void drain() {
+            try {
+                if (replayAfter != null) {
+                    replay();
+                }
+                do {
+                    if (closed) {
+                        remove(this);
+                        emitter.complete();
+                        return;
+                    }
+                    Frame frame;
+                    while (!closed && (frame = queue.poll()) != null) {
+                        // Live frames arrive out of ID order across lanes; only the replayed ones are skipped
+                        if (frame.notificationId() != NO_NOTIFICATION && frame.notificationId() <= replayedThrough) {
+                            continue;
+                        }
+                        emitter.send(frame.payload());
+                    }
+                    draining.set(false);
+                } while ((closed || !queue.isEmpty()) && draining.compareAndSet(false, true));
+            } catch (Exception e) {
+                // Client gone or emitter already completed; keeps draining set so nothing is scheduled again
+                log.debug("SSE stream {} write failed: {}", id, e.getMessage());
+                remove(this);
+            }
+        }
+
+        private void replay() throws IOException {
+            List<Notification> missed = repository.findByTenantIdAndIdGreaterThanOrderByIdAsc(tenant, replayAfter,
+                    Limit.of(replayLimit));
+            replayedThrough = replayAfter;
+            replayAfter = null;
+            for (Notification notification : missed) {
+                emitter.send(Set.of(new DataWithMediaType(encode(notification, notification.getId()), TEXT_UTF8)));
+                replayedThrough = notification.getId();
+            }
+            if (missed.size() == replayLimit) {
+                // More may be missing: end the stream so the client resumes from the last replayed ID
+                closed = true;
+            }
+        }
+    }
+}
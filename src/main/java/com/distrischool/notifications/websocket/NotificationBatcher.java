@@ -0,0 +1,108 @@
+package com.distrischool.notifications.websocket;
+
+import com.distrischool.notifications.entity.Notification;
+import com.distrischool.notifications.service.NotificationBackpressure;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces broadcast notifications into batches for sessions that opted in with
+ * {@code {"type":"subscribe","batch":true}}.
+ *
+ * A batch is closed {@code windowMs} after its first notification or as soon as it holds {@code maxSize}
+ * notifications, whichever comes first. Batches are always delivered on the single flush thread, so they
+ * reach every session in order. Notifications count as in flight for {@link NotificationBackpressure} until
+ * their batch is delivered, so a flush thread that falls behind pauses Kafka consumption.
+ */
+@Slf4j
+final class NotificationBatcher {
+
+    private final long windowMs;
+    private final int maxSize;
+    private final Consumer<List<Notification>> delivery;
+    private final NotificationBackpressure backpressure;
+    private final ScheduledExecutorService flushThread;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private List<Notification> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    NotificationBatcher(String name, long windowMs, int maxSize, NotificationBackpressure backpressure,
+                        Consumer<List<Notification>> delivery) {
+        this.windowMs = windowMs;
+        this.maxSize = maxSize;
+        this.backpressure = backpressure;
+        this.delivery = delivery;
+        this.flushThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void add(Notification notification) {
+        backpressure.acquire();
+        lock.lock();
+        try {
+            pending.add(notification);
+            if (pending.size() >= maxSize) {
+                List<Notification> batch = drain();
+                flushThread.execute(() -> deliver(batch));
+            } else if (pending.size() == 1) {
+                scheduledFlush = flushThread.schedule(this::flush, windowMs, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Delivers whatever is pending, then stops the flush thread.
+     */
+    void shutdown() {
+        flush();
+        flushThread.shutdown();
+    }
+
+    private void flush() {
+        List<Notification> batch;
+        lock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = drain();
+        } finally {
+            lock.unlock();
+        }
+        deliver(batch);
+    }
+
+    private List<Notification> drain() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        List<Notification> batch = pending;
+        pending = new ArrayList<>(Math.min(maxSize, 64));
+        return batch;
+    }
+
+    private void deliver(List<Notification> batch) {
+        try {
+            delivery.accept(batch);
+        } catch (Exception e) {
+            log.error("Failed to deliver batch of {} notifications: {}", batch.size(), e.getMessage(), e);
+        } finally {
+            backpressure.release(batch.size());
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.distrischool.notifications.websocket;
+
+import com.distrischool.notifications.dto.NotificationDTO;
+import com.distrischool.notifications.dto.NotificationJsonWriter;
+import com.distrischool.notifications.dto.NotificationSnapshot;
+import com.distrischool.notifications.entity.Notification;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The /ws/notifications wire protocol, shared by every WebSocket transport.
+ *
+ * Outbound frames: welcome, pong, subscribed, notification and notifications (batch) envelopes.
+ * The welcome carries a {@link NotificationSnapshot} unless the client connected with {@code ?snapshot=false}.
+ * Inbound frames: objects with a {@code type} of ping or subscribe; subscribe may carry
+ * {@code "batch":true} to receive coalesced {@code notifications} frames instead of one frame per notification.
+ *
+ * The encoding is chosen per connection through the WebSocket subprotocol (see {@link Encoding}): JSON text
+ * frames by default, or CBOR binary frames. Broadcast frames are encoded once per encoding in use, then
+ * written to every session of that encoding as-is; they are streamed from the entities by
+ * {@link NotificationJsonWriter} into a recycled buffer, without building DTOs. Pong and subscribed replies carry
+ * no per-session data and are pre-encoded, with their timestamp refreshed at most once per second.
+ *
+ * The envelopes are serialized by Jackson through reflection; {@link BindingHints} keeps their accessors in a
+ * native image.
+ */
+@Component
+@ImportRuntimeHints(NotificationProtocol.BindingHints.class)
+public class NotificationProtocol {
+
+    /**
+     * Frame encodings, negotiated with the {@code Sec-WebSocket-Protocol} handshake header.
+     */
+    public enum Encoding {
+        JSON("notifications.json"),
+        CBOR("notifications.cbor");
+
+        private final String subprotocol;
+
+        Encoding(String subprotocol) {
+            this.subprotocol = subprotocol;
+        }
+
+        public String subprotocol() {
+            return subprotocol;
+        }
+
+        /**
+         * The encoding for an accepted subprotocol; JSON when none was negotiated.
+         */
+        public static Encoding forSubprotocol(String subprotocol) {
+            return CBOR.subprotocol.equals(subprotocol) ? CBOR : JSON;
+        }
+
+        public static String[] subprotocols() {
+            return new String[] {CBOR.subprotocol, JSON.subprotocol};
+        }
+    }
+
+    /**
+     * Encodes one broadcast frame for the given encoding.
+     */
+    @FunctionalInterface
+    public interface FrameEncoder {
+        byte[] encode(Encoding encoding) throws IOException;
+    }
+
+    private static final byte[] PING_BYTES = "ping".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SUBSCRIBE_BYTES = "subscribe".getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+    private final NotificationJsonWriter.Inclusion inclusion;
+    private volatile StaticFrames staticFrames;
+
+    public NotificationProtocol(ObjectMapper objectMapper) {
+        this.jsonMapper = objectMapper;
+        // Same modules and inclusion settings as the JSON mapper
+        this.cborMapper = objectMapper.copyWith(new CBORFactory());
+        this.inclusion = NotificationJsonWriter.Inclusion.of(objectMapper.getSerializationConfig());
+    }
+
+    /**
+     * Builds the {@code {"type":"notification","data":{...}}} envelope.
+     */
+    public Object notificationEnvelope(Notification notification) {
+        return new Envelope("notification", NotificationDTO.fromEntity(notification, jsonMapper));
+    }
+
+    /**
+     * Builds the {@code {"type":"notifications","data":[{...}, ...]}} batch envelope.
+     */
+    public Object notificationsEnvelope(List<Notification> notifications) {
+        List<NotificationDTO> dtos = new ArrayList<>(notifications.size());
+        for (Notification notification : notifications) {
+            dtos.add(NotificationDTO.fromEntity(notification, jsonMapper));
+        }
+        return new Envelope("notifications", dtos);
+    }
+
+    /**
+     * Builds the welcome envelope; {@code snapshot} is left out when null.
+     */
+    public Object welcomeEnvelope(String userId, String email, NotificationSnapshot snapshot) {
+        return new Welcome("welcome", "Connected to notifications service", true, userId, email,
+                LocalDateTime.now().toString(), snapshot);
+    }
+
+    /**
+     * Whether the {@code snapshot} handshake query parameter asks for a snapshot; only {@code false} opts out.
+     */
+    public static boolean snapshotRequested(String parameter) {
+        return !"false".equalsIgnoreCase(parameter);
+    }
+
+    private Object pongEnvelope() {
+        return new Reply("pong", null, null, LocalDateTime.now().toString());
+    }
+
+    private Object subscribedEnvelope(boolean batch) {
+        return new Reply("subscribed", "You are now subscribed to notifications", batch, LocalDateTime.now().toString());
+    }
+
+    /**
+     * The pre-encoded pong reply.
+     */
+    public byte[] pongFrame(Encoding encoding) throws JsonProcessingException {
+        return staticFrames().pong[encoding.ordinal()];
+    }
+
+    /**
+     * The pre-encoded subscribed reply.
+     */
+    public byte[] subscribedFrame(boolean batch, Encoding encoding) throws JsonProcessingException {
+        StaticFrames frames = staticFrames();
+        return (batch ? frames.subscribedBatch : frames.subscribed)[encoding.ordinal()];
+    }
+
+    private StaticFrames staticFrames() throws JsonProcessingException {
+        long second = System.currentTimeMillis() / 1000;
+        StaticFrames frames = staticFrames;
+        if (frames == null || frames.second != second) {
+            // Concurrent refreshes within the same second build identical frames; last write wins
+            Encoding[] encodings = Encoding.values();
+            frames = new StaticFrames(second, new byte[encodings.length][], new byte[encodings.length][],
+                    new byte[encodings.length][]);
+            for (Encoding encoding : encodings) {
+                frames.pong[encoding.ordinal()] = encode(pongEnvelope(), encoding);
+                frames.subscribed[encoding.ordinal()] = encode(subscribedEnvelope(false), encoding);
+                frames.subscribedBatch[encoding.ordinal()] = encode(subscribedEnvelope(true), encoding);
+            }
+            staticFrames = frames;
+        }
+        return frames;
+    }
+
+    public byte[] encode(Object envelope, Encoding encoding) throws JsonProcessingException {
+        return mapper(encoding).writeValueAsBytes(envelope);
+    }
+
+    /**
+     * Encodes the JSON notification envelope.
+     */
+    public byte[] notificationFrame(Notification notification) throws IOException {
+        return notificationFrame(notification, Encoding.JSON);
+    }
+
+    /**
+     * Encodes the notification envelope; same bytes as {@code encode(notificationEnvelope(notification), encoding)}.
+     */
+    public byte[] notificationFrame(Notification notification, Encoding encoding) throws IOException {
+        JsonFactory factory = mapper(encoding).getFactory();
+        ByteArrayBuilder buffer = new ByteArrayBuilder(factory._getBufferRecycler());
+        try (JsonGenerator generator = factory.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "notification");
+            generator.writeFieldName("data");
+            NotificationJsonWriter.write(generator, notification, inclusion);
+            generator.writeEndObject();
+        }
+        return toByteArray(buffer);
+    }
+
+    /**
+     * Encodes the batch envelope; same bytes as {@code encode(notificationsEnvelope(notifications), encoding)}.
+     */
+    public byte[] notificationsFrame(List<Notification> notifications, Encoding encoding) throws IOException {
+        JsonFactory factory = mapper(encoding).getFactory();
+        ByteArrayBuilder buffer = new ByteArrayBuilder(factory._getBufferRecycler());
+        try (JsonGenerator generator = factory.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", "notifications");
+            generator.writeFieldName("data");
+            NotificationJsonWriter.write(generator, notifications, inclusion);
+            generator.writeEndObject();
+        }
+        return toByteArray(buffer);
+    }
+
+    private static byte[] toByteArray(ByteArrayBuilder buffer) {
+        byte[] frame = buffer.toByteArray();
+        // Hands the first block back to the factory's recycler for the next frame on this thread
+        buffer.release();
+        return frame;
+    }
+
+    /**
+     * Reads an inbound client message, sent as a JSON text frame or, on CBOR connections, as a binary frame.
+     */
+    public ClientMessage readClientMessage(String payload) throws JsonProcessingException {
+        return toClientMessage(jsonMapper.readValue(payload, Map.class));
+    }
+
+    public ClientMessage readClientMessage(byte[] payload, Encoding encoding) throws IOException {
+        return toClientMessage(mapper(encoding).readValue(payload, Map.class));
+    }
+
+    /**
+     * Pre-parse check that a JSON text frame can be a ping or subscribe message: it must mention one of the
+     * type names. Lets rate limiting drop garbage without running the parser.
+     */
+    public static boolean isClientMessage(String payload) {
+        return payload.contains("\"ping\"") || payload.contains("\"subscribe\"");
+    }
+
+    /**
+     * Binary (CBOR) counterpart of {@link #isClientMessage(String)}; CBOR text strings are stored as raw UTF-8.
+     * Reads the buffer with absolute gets, leaving its position untouched.
+     */
+    public static boolean isClientMessage(ByteBuffer payload) {
+        return contains(payload, PING_BYTES) || contains(payload, SUBSCRIBE_BYTES);
+    }
+
+    private static boolean contains(ByteBuffer haystack, byte[] needle) {
+        int start = haystack.position();
+        outer:
+        for (int i = start; i <= haystack.limit() - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack.get(i + j) != needle[j]) {
+                    continue outer;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static ClientMessage toClientMessage(Map<?, ?> message) {
+        return new ClientMessage((String) message.get("type"), Boolean.TRUE.equals(message.get("batch")));
+    }
+
+    private ObjectMapper mapper(Encoding encoding) {
+        return encoding == Encoding.CBOR ? cborMapper : jsonMapper;
+    }
+
+    /**
+     * An inbound client message: its {@code type} and, for subscribe, whether batching was requested.
+     */
+    public record ClientMessage(String type, boolean batch) {
+    }
+
+    private record Envelope(String type, Object data) {
+    }
+
+    private record StaticFrames(long second, byte[][] pong, byte[][] subscribed, byte[][] subscribedBatch) {
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record Welcome(String type, String message, boolean authenticated, String userId, String email,
+                           String timestamp, NotificationSnapshot snapshot) {
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record Reply(String type, String message, Boolean batch, String timestamp) {
+    }
+
+    /**
+     * Reflection for the Jackson-serialized frame types: the private envelope records, the DTO carried by
+     * notification frames and the snapshot carried by the welcome frame.
+     */
+    static class BindingHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                    Envelope.class, Welcome.class, Reply.class, NotificationDTO.class, NotificationSnapshot.class);
+        }
+    }
+}
@@ -1,151 +1,575 @@
 package com.distrischool.notifications.websocket;
 
-import com.distrischool.notifications.dto.NotificationDTO;
+import com.distrischool.notifications.dto.NotificationSnapshot;
 import com.distrischool.notifications.entity.Notification;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.service.NotificationBackpressure;
+import com.distrischool.notifications.service.NotificationPriority;
+import com.distrischool.notifications.service.NotificationSnapshotCache;
+import com.distrischool.notifications.service.ReadState;
+import com.distrischool.notifications.service.NotificationSubscriber;
+import com.distrischool.notifications.service.TenantRegistry;
+import com.distrischool.notifications.service.TenantResolver;
+import com.distrischool.notifications.websocket.NotificationProtocol.Encoding;
+import com.distrischool.notifications.websocket.NotificationProtocol.FrameEncoder;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.PingMessage;
+import org.springframework.web.socket.PongMessage;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
-import java.util.concurrent.ConcurrentHashMap;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
 
 /**
  * WebSocket handler for real-time notifications.
  * Handles plain WebSocket connections (not STOMP).
+ *
+ * Sessions are wrapped in {@link ConcurrentWebSocketSessionDecorator}, which serializes sends with a
+ * {@code ReentrantLock} (no {@code synchronized}, so virtual threads do not pin) and buffers frames while
+ * another thread is writing. With {@code spring.threads.virtual.enabled=true} each session send of a
+ * broadcast runs on its own virtual thread, so one slow socket no longer delays the others.
+ *
+ * Sessions that subscribe with {@code "batch":true} receive one {@code notifications} frame per
+ * {@link NotificationBatcher} window instead of one frame per notification; notifications of the urgent lane skip
+ * the window and reach them as single frames.
+ *
+ * Frames are JSON text by default, or CBOR binary for sessions that negotiated the
+ * {@code notifications.cbor} subprotocol; each broadcast is encoded once per encoding in use.
+ *
+ * Liveness is server-driven: every session is watched by {@link WebSocketHeartbeat}, which pings it and reaps it
+ * once it has been silent for the idle timeout.
+ *
+ * The welcome carries a snapshot from {@link NotificationSnapshotCache}. A session joins the fan-out before the
+ * snapshot is taken, and broadcasts to it wait until its welcome is written and skip notifications already in the
+ * snapshot, so the live stream continues the snapshot without gaps or repeats.
+ *
+ * Inbound frames go through {@link WebSocketRateLimiter} before they are parsed, and connections beyond the
+ * node cap of {@link WebSocketAdmission} are refused (see WebSocketAdmissionInterceptor for the handshake side).
+ *
+ * Sessions are registered under the tenant resolved at the handshake ({@link TenantResolver#ATTRIBUTE}), and a
+ * notification is only sent to the sessions of its own tenant.
+ *
+ * Active unless {@code websocket.transport=reactive} selects {@link ReactiveNotificationWebSocketServer}.
  */
 @Slf4j
 @Component
-public class NotificationWebSocketHandler extends TextWebSocketHandler {
+@ConditionalOnProperty(name = "websocket.transport", havingValue = "servlet", matchIfMissing = true)
+public class NotificationWebSocketHandler extends AbstractWebSocketHandler implements NotificationSubscriber {
 
-    private final ConcurrentHashMap<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
-    private final ObjectMapper objectMapper;
+    private static final String BATCH_ATTRIBUTE = "batch";
+    private static final String ENCODING_ATTRIBUTE = "encoding";
+    private static final String HEARTBEAT_ATTRIBUTE = "heartbeat";
+    private static final String LIMIT_ATTRIBUTE = "inboundLimit";
+    // Notification ID of batch frames, which are not matched against snapshots
+    private static final long NO_NOTIFICATION = -1;
+    private static final PingMessage PING = new PingMessage();
+    private static final CloseStatus IDLE_TIMEOUT = CloseStatus.GOING_AWAY.withReason("Idle timeout");
+    private static final CloseStatus SATURATED = CloseStatus.SERVICE_OVERLOAD.withReason("Server saturated");
+    private static final CloseStatus RATE_LIMITED = CloseStatus.POLICY_VIOLATION.withReason("Inbound rate limit exceeded");
 
-    public NotificationWebSocketHandler(ObjectMapper objectMapper) {
-        this.objectMapper = objectMapper;
+    private final TenantRegistry<String, WebSocketSession> sessions = new TenantRegistry<>();
+    private final NotificationProtocol protocol;
+    private final NotificationMetrics metrics;
+    private final ExecutorService sendExecutor;
+    private final int sendTimeLimit;
+    private final int sendBufferSizeLimit;
+    private final NotificationBatcher batcher;
+    private final WebSocketHeartbeat heartbeat;
+    private final WebSocketAdmission admission;
+    private final WebSocketRateLimiter rateLimiter;
+    private final NotificationSnapshotCache snapshotCache;
+    // Pings and reaps may block on a dead socket, so they leave the heartbeat's timer thread. Platform threads:
+    // sends go through ConcurrentWebSocketSessionDecorator, which holds a monitor and would pin virtual threads
+    private final ExecutorService heartbeatExecutor;
+
+    public NotificationWebSocketHandler(NotificationProtocol protocol,
+                                        NotificationMetrics metrics,
+                                        WebSocketHeartbeat heartbeat,
+                                        NotificationBackpressure backpressure,
+                                        WebSocketAdmission admission,
+                                        WebSocketRateLimiter rateLimiter,
+                                        NotificationSnapshotCache snapshotCache,
+                                        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                                        @Value("${websocket.send-time-limit-ms:10000}") int sendTimeLimit,
+                                        @Value("${websocket.send-buffer-size-limit:524288}") int sendBufferSizeLimit,
+                                        @Value("${websocket.batch.window-ms:50}") long batchWindowMs,
+                                        @Value("${websocket.batch.max-size:100}") int batchMaxSize,
+                                        @Value("${websocket.heartbeat.threads:4}") int heartbeatThreads) {
+        this.protocol = protocol;
+        this.metrics = metrics;
+        this.heartbeat = heartbeat;
+        this.admission = admission;
+        this.rateLimiter = rateLimiter;
+        this.snapshotCache = snapshotCache;
+        this.sendExecutor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        AtomicInteger heartbeatIds = new AtomicInteger();
+        this.heartbeatExecutor = Executors.newFixedThreadPool(Math.max(1, heartbeatThreads), runnable -> {
+            Thread thread = new Thread(runnable, "ws-heartbeat-" + heartbeatIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sendTimeLimit = sendTimeLimit;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+        this.batcher = new NotificationBatcher("ws-batch-flush", batchWindowMs, batchMaxSize, backpressure,
+                this::broadcastBatch);
+        metrics.registerActiveSessions("servlet", sessions);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batcher.shutdown();
+        heartbeatExecutor.shutdown();
+        if (sendExecutor != null) {
+            sendExecutor.shutdown();
+        }
     }
 
     @Override
-    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessions.put(session.getId(), session);
+    public void afterConnectionEstablished(WebSocketSession rawSession) throws Exception {
+        if (!admission.admit()) {
+            log.warn("WebSocket connection {} refused: node at its connection cap", rawSession.getId());
+            rawSession.close(SATURATED);
+            return;
+        }
+        rawSession.getAttributes().put(LIMIT_ATTRIBUTE, rateLimiter.open((String) rawSession.getAttributes().get("userId")));
+        WebSocketSession session = new ConcurrentWebSocketSessionDecorator(rawSession, sendTimeLimit, sendBufferSizeLimit);
+        session.getAttributes().put(ENCODING_ATTRIBUTE, Encoding.forSubprotocol(rawSession.getAcceptedProtocol()));
+        ServletConnection connection = new ServletConnection(session);
+        session.getAttributes().put(HEARTBEAT_ATTRIBUTE, connection);
         
         // Get authenticated user info from session attributes (set by WebSocketAuthInterceptor)
         String userId = (String) session.getAttributes().get("userId");
         String email = (String) session.getAttributes().get("email");
-        
-        log.info("WebSocket connection established: {} for user: {} ({}) (Total connections: {})", 
-                session.getId(), email, userId, sessions.size());
-        
-        // Send welcome message with user info
-        sendMessage(session, createWelcomeMessage(userId, email));
+        boolean snapshotRequested = NotificationProtocol.snapshotRequested(queryParameter(rawSession.getUri(), "snapshot"));
+        ReadState readState = snapshotRequested ? snapshotReadState(tenantOf(session), userId) : null;
+
+        connection.welcome.lock();
+        try {
+            // Join the fan-out first: a notification missing from the snapshot is then always broadcast to this session
+            sessions.put(tenantOf(session), session.getId(), session);
+            heartbeat.watch(connection);
+            NotificationSnapshot snapshot = readState != null
+                    ? snapshotCache.snapshot(tenantOf(session), readState)
+                    : null;
+            if (snapshot != null) {
+                connection.snapshotIds = NotificationSnapshotCache.notificationIds(snapshot);
+            }
+
+            log.info("WebSocket connection established: {} for user: {} ({}) (Total connections: {})",
+                    session.getId(), email, userId, sessions.size());
+
+            // Send welcome message with user info and the snapshot
+            sendMessage(session, protocol.welcomeEnvelope(userId, email, snapshot));
+        } finally {
+            connection.welcomed = true;
+            connection.welcome.unlock();
+        }
+    }
+
+    /**
+     * The user's read state for the welcome snapshot, fetched before the session takes its welcome lock, which
+     * broadcasts wait on; null, and a welcome without a snapshot, if it cannot be read.
+     */
+    private ReadState snapshotReadState(String tenant, String userId) {
+        try {
+            return snapshotCache.readState(tenant, userId);
+        } catch (Exception e) {
+            log.warn("Sending welcome without snapshot, read state of user {} unavailable: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String queryParameter(URI uri, String name) {
+        return uri == null ? null : UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst(name);
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        sessions.remove(session.getId());
+        sessions.remove(tenantOf(session), session.getId());
+        // Only admitted connections carry a limit
+        if (session.getAttributes().remove(LIMIT_ATTRIBUTE) instanceof WebSocketRateLimiter.ConnectionLimit limit) {
+            limit.close();
+            admission.release();
+        }
         log.info("WebSocket connection closed: {} (Reason: {}, Total connections: {})", 
                 session.getId(), status, sessions.size());
     }
 
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
-        log.debug("Received message from {}: {}", session.getId(), message.getPayload());
-        
-        // Handle incoming messages (e.g., subscribe/unsubscribe, ping/pong)
+        touch(session);
         String payload = message.getPayload();
+        // Characters, not bytes: a cheap bound that avoids encoding the payload
+        if (!admitInbound(session, payload.length(), () -> NotificationProtocol.isClientMessage(payload))) {
+            return;
+        }
+
+        // Handle incoming messages (e.g., subscribe/unsubscribe, ping/pong)
         try {
-            var messageObj = objectMapper.readValue(payload, java.util.Map.class);
-            String type = (String) messageObj.get("type");
-            
-            if ("ping".equals(type)) {
-                sendMessage(session, createPongMessage());
-            } else if ("subscribe".equals(type)) {
-                sendMessage(session, createSubscribeAckMessage());
+            handleClientMessage(session, protocol.readClientMessage(payload));
+        } catch (Exception e) {
+            log.warn("Failed to parse incoming message: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        // Clients on the CBOR subprotocol send their messages as binary frames
+        touch(session);
+        try {
+            ByteBuffer buffer = message.getPayload();
+            if (!admitInbound(session, buffer.remaining(), () -> NotificationProtocol.isClientMessage(buffer))) {
+                return;
             }
+            byte[] payload = new byte[buffer.remaining()];
+            buffer.get(payload);
+            handleClientMessage(session, protocol.readClientMessage(payload, encodingOf(session)));
         } catch (Exception e) {
             log.warn("Failed to parse incoming message: {}", e.getMessage());
         }
     }
 
+    @Override
+    protected void handlePongMessage(WebSocketSession session, PongMessage message) {
+        touch(session);
+    }
+
+    /**
+     * Applies the inbound limits; closes the session once it keeps exceeding them.
+     */
+    private boolean admitInbound(WebSocketSession session, int frameSize, BooleanSupplier knownType)
+            throws IOException {
+        if (!(session.getAttributes().get(LIMIT_ATTRIBUTE) instanceof WebSocketRateLimiter.ConnectionLimit limit)
+                || limit.admit(frameSize, knownType)) {
+            return true;
+        }
+        if (limit.isAbusive()) {
+            log.warn("Closing WebSocket session {}: inbound limits exceeded repeatedly", session.getId());
+            metrics.sessionClosedForPolicy();
+            sessions.remove(tenantOf(session), session.getId());
+            session.close(RATE_LIMITED);
+        }
+        return false;
+    }
+
+    private void touch(WebSocketSession session) {
+        if (session.getAttributes().get(HEARTBEAT_ATTRIBUTE) instanceof ServletConnection connection) {
+            connection.lastActivity = System.currentTimeMillis();
+        }
+    }
+
+    private void handleClientMessage(WebSocketSession session, NotificationProtocol.ClientMessage clientMessage) {
+        String type = clientMessage.type();
+
+        // Reply through the decorated session so replies never race with broadcasts
+        WebSocketSession registered = sessions.get(tenantOf(session), session.getId());
+        WebSocketSession outbound = registered != null ? registered : session;
+        Encoding encoding = encodingOf(outbound);
+        try {
+            if ("ping".equals(type)) {
+                sendToSession(outbound, toMessage(protocol.pongFrame(encoding), encoding));
+            } else if ("subscribe".equals(type)) {
+                session.getAttributes().put(BATCH_ATTRIBUTE, clientMessage.batch());
+                sendToSession(outbound, toMessage(protocol.subscribedFrame(clientMessage.batch(), encoding), encoding));
+            }
+        } catch (IOException e) {
+            log.error("Failed to encode reply for session {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
     @Override
     public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
         log.error("WebSocket transport error for session {}: {}", session.getId(), exception.getMessage(), exception);
-        sessions.remove(session.getId());
+        sessions.remove(tenantOf(session), session.getId());
+    }
+
+    @Override
+    public void onNotification(Notification notification) {
+        broadcastNotification(notification);
+    }
+
+    @Override
+    public void onNotification(Notification notification, NotificationPriority priority, long resumeId) {
+        broadcastNotification(notification, priority == NotificationPriority.URGENT);
     }
 
     /**
-     * Broadcasts a notification to all connected WebSocket clients.
+     * Broadcasts a notification to the connected WebSocket clients of its tenant.
+     * Sessions that opted into batching get it with the next {@code notifications} frame instead.
      */
     public void broadcastNotification(Notification notification) {
-        NotificationDTO dto = NotificationDTO.fromEntity(notification, objectMapper);
+        broadcastNotification(notification, false);
+    }
+
+    /**
+     * @param immediate send a single frame to batching sessions too, instead of holding it for the batch window
+     */
+    private void broadcastNotification(Notification notification, boolean immediate) {
+        Collection<WebSocketSession> tenantSessions = sessions.of(notification.getTenantId());
+        List<WebSocketSession> targets = new ArrayList<>(tenantSessions.size());
+        boolean batchSubscribers = false;
+        for (WebSocketSession session : tenantSessions) {
+            if (!immediate && isBatching(session)) {
+                batchSubscribers = true;
+            } else {
+                targets.add(session);
+            }
+        }
+        if (batchSubscribers) {
+            batcher.add(notification);
+        }
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        WebSocketMessage<?>[] frames = encodeFor(targets, encoding -> protocol.notificationFrame(notification, encoding));
+        if (frames == null) {
+            return;
+        }
         
-        var message = new java.util.HashMap<String, Object>();
-        message.put("type", "notification");
-        message.put("data", dto);
+        long start = System.nanoTime();
+        send(targets, frames, notification.getId());
+        metrics.recordFanOut(System.nanoTime() - start);
+        metrics.recordDeliveryLag(notification.getTimestamp());
         
-        String jsonMessage;
+        log.info("Broadcasted notification {} to {} WebSocket clients", notification.getId(), targets.size());
+    }
+
+    /**
+     * Sends one {@code notifications} frame per tenant for a closed batch window to every batching session of that
+     * tenant.
+     */
+    void broadcastBatch(List<Notification> batch) {
+        Map<String, List<Notification>> byTenant = batch.stream()
+                .collect(Collectors.groupingBy(Notification::getTenantId, LinkedHashMap::new, Collectors.toList()));
+        byTenant.forEach(this::broadcastBatch);
+    }
+
+    private void broadcastBatch(String tenant, List<Notification> batch) {
+        List<WebSocketSession> targets = sessions.of(tenant).stream().filter(this::isBatching).toList();
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        WebSocketMessage<?>[] frames = encodeFor(targets, encoding -> protocol.notificationsFrame(batch, encoding));
+        if (frames == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        send(targets, frames, NO_NOTIFICATION);
+        metrics.recordFanOut(System.nanoTime() - start);
+        metrics.recordBatch(batch.size());
+        for (Notification notification : batch) {
+            metrics.recordDeliveryLag(notification.getTimestamp());
+        }
+
+        log.info("Broadcasted batch of {} notifications to {} WebSocket clients", batch.size(), targets.size());
+    }
+
+    private static String tenantOf(WebSocketSession session) {
+        return TenantResolver.of(session.getAttributes());
+    }
+
+    private boolean isBatching(WebSocketSession session) {
+        return Boolean.TRUE.equals(session.getAttributes().get(BATCH_ATTRIBUTE));
+    }
+
+    private Encoding encodingOf(WebSocketSession session) {
+        Object encoding = session.getAttributes().get(ENCODING_ATTRIBUTE);
+        return encoding instanceof Encoding e ? e : Encoding.JSON;
+    }
+
+    /**
+     * Encodes the frame once for every encoding used by the targets.
+     *
+     * @return frames indexed by {@link Encoding#ordinal()}, or null if serialization failed
+     */
+    private WebSocketMessage<?>[] encodeFor(List<WebSocketSession> targets, FrameEncoder encoder) {
+        WebSocketMessage<?>[] frames = new WebSocketMessage<?>[Encoding.values().length];
         try {
-            jsonMessage = objectMapper.writeValueAsString(message);
+            for (WebSocketSession session : targets) {
+                Encoding encoding = encodingOf(session);
+                if (frames[encoding.ordinal()] == null) {
+                    frames[encoding.ordinal()] = toMessage(encoder.encode(encoding), encoding);
+                }
+            }
+            return frames;
         } catch (Exception e) {
             log.error("Failed to serialize notification: {}", e.getMessage());
-            return;
+            return null;
         }
-        
-        TextMessage textMessage = new TextMessage(jsonMessage);
-        sessions.values().forEach(session -> {
-            try {
-                if (session.isOpen()) {
-                    session.sendMessage(textMessage);
-                }
-            } catch (IOException e) {
-                log.warn("Failed to send message to session {}: {}", session.getId(), e.getMessage());
-                sessions.remove(session.getId());
+    }
+
+    private static WebSocketMessage<?> toMessage(byte[] frame, Encoding encoding) {
+        // Text frames are built from bytes so getPayloadLength() (called per session by the decorator) does not re-encode
+        return encoding == Encoding.CBOR ? new BinaryMessage(frame) : new TextMessage(frame);
+    }
+
+    private void send(List<WebSocketSession> targets, WebSocketMessage<?>[] frames, long notificationId) {
+        if (sendExecutor == null) {
+            for (WebSocketSession session : targets) {
+                deliver(session, frames[encodingOf(session).ordinal()], notificationId);
             }
-        });
-        
-        log.info("Broadcasted notification {} to {} WebSocket clients", notification.getId(), sessions.size());
+        } else {
+            fanOutOnVirtualThreads(targets, frames, notificationId);
+        }
     }
 
-    private void sendMessage(WebSocketSession session, java.util.Map<String, Object> message) {
+    /**
+     * Sends a broadcast frame once the session's welcome is out, unless the notification was in its snapshot.
+     */
+    private void deliver(WebSocketSession session, WebSocketMessage<?> message, long notificationId) {
+        if (session.getAttributes().get(HEARTBEAT_ATTRIBUTE) instanceof ServletConnection connection) {
+            if (!connection.welcomed) {
+                connection.welcome.lock();
+                connection.welcome.unlock();
+            }
+            long[] snapshotIds = connection.snapshotIds;
+            if (snapshotIds != null && Arrays.binarySearch(snapshotIds, notificationId) >= 0) {
+                return;
+            }
+        }
+        sendToSession(session, message);
+    }
+
+    /**
+     * Sends the frame to every session on its own virtual thread and waits (bounded by the send time limit)
+     * for the sends to be written or buffered, which keeps per-session frame order across broadcasts.
+     */
+    private void fanOutOnVirtualThreads(List<WebSocketSession> targets, WebSocketMessage<?>[] frames,
+                                        long notificationId) {
+        CountDownLatch done = new CountDownLatch(targets.size());
+        for (WebSocketSession session : targets) {
+            WebSocketMessage<?> message = frames[encodingOf(session).ordinal()];
+            sendExecutor.execute(() -> {
+                try {
+                    deliver(session, message, notificationId);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
         try {
-            String json = objectMapper.writeValueAsString(message);
-            session.sendMessage(new TextMessage(json));
-        } catch (IOException e) {
-            log.error("Failed to send message to session {}: {}", session.getId(), e.getMessage());
+            if (!done.await(sendTimeLimit, TimeUnit.MILLISECONDS)) {
+                log.warn("Fan-out still writing to {} sessions after {} ms", done.getCount(), sendTimeLimit);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    private java.util.Map<String, Object> createWelcomeMessage(String userId, String email) {
-        var message = new java.util.HashMap<String, Object>();
-        message.put("type", "welcome");
-        message.put("message", "Connected to notifications service");
-        message.put("authenticated", true);
-        if (userId != null) {
-            message.put("userId", userId);
+    private void sendToSession(WebSocketSession session, WebSocketMessage<?> message) {
+        try {
+            if (session.isOpen()) {
+                session.sendMessage(message);
+            }
+        } catch (IOException | SessionLimitExceededException e) {
+            log.warn("Failed to send message to session {}: {}", session.getId(), e.getMessage());
+            metrics.sendFailed();
+            sessions.remove(tenantOf(session), session.getId());
         }
-        if (email != null) {
-            message.put("email", email);
+    }
+
+    /**
+     * Serializes the notification envelope sent to every session of the given encoding.
+     * Package-private for the JMH benchmarks in src/jmh.
+     *
+     * @return the frame, or null if serialization failed
+     */
+    WebSocketMessage<?> encodeNotification(Notification notification, Encoding encoding) {
+        try {
+            return toMessage(protocol.notificationFrame(notification, encoding), encoding);
+        } catch (Exception e) {
+            log.error("Failed to serialize notification: {}", e.getMessage());
+            return null;
         }
-        message.put("timestamp", java.time.LocalDateTime.now().toString());
-        return message;
     }
 
-    private java.util.Map<String, Object> createPongMessage() {
-        var message = new java.util.HashMap<String, Object>();
-        message.put("type", "pong");
-        message.put("timestamp", java.time.LocalDateTime.now().toString());
-        return message;
+    private void sendMessage(WebSocketSession session, Object envelope) {
+        try {
+            Encoding encoding = encodingOf(session);
+            session.sendMessage(toMessage(protocol.encode(envelope, encoding), encoding));
+        } catch (IOException | SessionLimitExceededException e) {
+            log.error("Failed to send message to session {}: {}", session.getId(), e.getMessage());
+        }
     }
 
-    private java.util.Map<String, Object> createSubscribeAckMessage() {
-        var message = new java.util.HashMap<String, Object>();
-        message.put("type", "subscribed");
-        message.put("message", "You are now subscribed to notifications");
-        message.put("timestamp", java.time.LocalDateTime.now().toString());
-        return message;
+    /**
+     * Heartbeat view of a session; {@code lastActivity} is refreshed by every inbound frame.
+     * Also gates broadcasts until the session's welcome is sent.
+     */
+    private final class ServletConnection implements WebSocketHeartbeat.Connection {
+
+        private final WebSocketSession session;
+        // Held while the welcome is sent
+        private final ReentrantLock welcome = new ReentrantLock();
+        private volatile boolean welcomed;
+        // Sorted IDs of the notifications in the welcome snapshot, or null
+        private volatile long[] snapshotIds;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        private ServletConnection(WebSocketSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public String id() {
+            return session.getId();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return session.isOpen() && sessions.contains(tenantOf(session), session.getId());
+        }
+
+        @Override
+        public long lastActivityMillis() {
+            return lastActivity;
+        }
+
+        @Override
+        public void ping() {
+            heartbeatExecutor.execute(() -> sendToSession(session, PING));
+        }
+
+        @Override
+        public void reap() {
+            sessions.remove(tenantOf(session), session.getId());
+            heartbeatExecutor.execute(() -> {
+                try {
+                    session.close(IDLE_TIMEOUT);
+                } catch (IOException e) {
+                    log.debug("Failed to close reaped session {}: {}", session.getId(), e.getMessage());
+                }
+            });
+        }
     }
 }
-
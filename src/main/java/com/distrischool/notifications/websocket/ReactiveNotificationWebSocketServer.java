@@ -0,0 +1,530 @@
+package com.distrischool.notifications.websocket;
+
+import com.distrischool.notifications.config.WebSocketAuthInterceptor;
+import com.distrischool.notifications.dto.NotificationSnapshot;
+import com.distrischool.notifications.entity.Notification;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.service.NotificationBackpressure;
+import com.distrischool.notifications.service.NotificationPriority;
+import com.distrischool.notifications.service.NotificationSnapshotCache;
+import com.distrischool.notifications.service.NotificationSubscriber;
+import com.distrischool.notifications.service.ReadState;
+import com.distrischool.notifications.service.TenantRegistry;
+import com.distrischool.notifications.service.TenantResolver;
+import com.distrischool.notifications.websocket.NotificationProtocol.Encoding;
+import com.distrischool.notifications.websocket.NotificationProtocol.FrameEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketCloseStatus;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.http.server.WebsocketServerSpec;
+import reactor.netty.http.websocket.WebsocketInbound;
+import reactor.netty.http.websocket.WebsocketOutbound;
+import reactor.util.concurrent.Queues;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking WebSocket transport for /ws/notifications on Reactor Netty.
+ *
+ * Speaks the same protocol as {@link NotificationWebSocketHandler} (welcome, ping/pong, subscribe, notification
+ * frames via {@link NotificationProtocol}) and authenticates the handshake with {@link WebSocketAuthInterceptor}.
+ * A connection holds no servlet request or thread: outbound frames go through a small per-connection queue that
+ * Netty drains on its event loop, so a broadcast never blocks on a socket. Connections whose queue overflows
+ * are closed as slow consumers. Sessions that subscribe with {@code "batch":true} receive coalesced
+ * {@code notifications} frames from a {@link NotificationBatcher}, except for urgent notifications, which are queued
+ * on them as single frames right away.
+ *
+ * Sessions are watched by {@link WebSocketHeartbeat}: pings are queued like any other frame, and a session
+ * silent for the idle timeout is closed.
+ *
+ * The encoding is negotiated through the subprotocol as on the servlet transport, and permessage-deflate is
+ * accepted when websocket.compression.enabled is true.
+ *
+ * The welcome carries a snapshot from {@link NotificationSnapshotCache}; it is queued before any broadcast frame,
+ * and broadcast frames of notifications already in the snapshot are dropped, as on the servlet transport.
+ *
+ * Handshakes beyond the node cap of {@link WebSocketAdmission} get 503 with Retry-After before the token is
+ * decoded, and inbound frames go through {@link WebSocketRateLimiter} before they are parsed.
+ *
+ * As on the servlet transport, sessions are registered under their tenant and only receive its notifications.
+ *
+ * Enabled with websocket.transport=reactive (profile reactive-ws); listens on its own port, websocket.reactive.port.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "websocket.transport", havingValue = "reactive")
+public class ReactiveNotificationWebSocketServer implements NotificationSubscriber {
+
+    private static final String PATH = "/ws/notifications";
+    // Queue marker for a ping control frame, compared by identity
+    private static final byte[] PING = new byte[0];
+    // Notification ID of frames that are not a single notification broadcast
+    private static final long NO_NOTIFICATION = -1;
+
+    private final TenantRegistry<String, ReactiveSession> sessions = new TenantRegistry<>();
+    private final NotificationProtocol protocol;
+    private final WebSocketAuthInterceptor authInterceptor;
+    private final WebSocketHeartbeat heartbeat;
+    private final NotificationMetrics metrics;
+    private final WebSocketAdmission admission;
+    private final WebSocketRateLimiter rateLimiter;
+    private final NotificationSnapshotCache snapshotCache;
+    private final int port;
+    private final int sendQueueLimit;
+    private final int maxFramePayloadLength;
+    private final Set<String> allowedOrigins;
+    private final NotificationBatcher batcher;
+    private final WebsocketServerSpec websocketSpec;
+    private final WebsocketServerSpec[] subprotocolSpecs;
+
+    private DisposableServer server;
+
+    public ReactiveNotificationWebSocketServer(NotificationProtocol protocol,
+                                               WebSocketAuthInterceptor authInterceptor,
+                                               WebSocketHeartbeat heartbeat,
+                                               NotificationBackpressure backpressure,
+                                               NotificationMetrics metrics,
+                                               WebSocketAdmission admission,
+                                               WebSocketRateLimiter rateLimiter,
+                                               NotificationSnapshotCache snapshotCache,
+                                               @Value("${websocket.reactive.port:8081}") int port,
+                                               @Value("${websocket.reactive.send-queue-limit:256}") int sendQueueLimit,
+                                               @Value("${websocket.reactive.max-frame-payload-length:65536}") int maxFramePayloadLength,
+                                               @Value("${websocket.allowed-origins:*}") String allowedOrigins,
+                                               @Value("${websocket.batch.window-ms:50}") long batchWindowMs,
+                                               @Value("${websocket.batch.max-size:100}") int batchMaxSize,
+                                               @Value("${websocket.compression.enabled:true}") boolean compression) {
+        this.protocol = protocol;
+        this.authInterceptor = authInterceptor;
+        this.heartbeat = heartbeat;
+        this.metrics = metrics;
+        this.admission = admission;
+        this.rateLimiter = rateLimiter;
+        this.snapshotCache = snapshotCache;
+        this.port = port;
+        this.sendQueueLimit = sendQueueLimit;
+        this.maxFramePayloadLength = maxFramePayloadLength;
+        this.allowedOrigins = Set.of(allowedOrigins.split(","));
+        this.batcher = new NotificationBatcher("ws-reactive-batch-flush", batchWindowMs, batchMaxSize,
+                backpressure, this::broadcastBatch);
+        this.websocketSpec = websocketSpec(null, compression);
+        Encoding[] encodings = Encoding.values();
+        this.subprotocolSpecs = new WebsocketServerSpec[encodings.length];
+        for (Encoding encoding : encodings) {
+            subprotocolSpecs[encoding.ordinal()] = websocketSpec(encoding.subprotocol(), compression);
+        }
+        metrics.registerActiveSessions("reactive", sessions);
+    }
+
+    private WebsocketServerSpec websocketSpec(String subprotocol, boolean compression) {
+        WebsocketServerSpec.Builder builder = WebsocketServerSpec.builder()
+                .maxFramePayloadLength(maxFramePayloadLength)
+                .compress(compression);
+        return subprotocol == null ? builder.build() : builder.protocols(subprotocol).build();
+    }
+
+    @PostConstruct
+    public void start() {
+        server = HttpServer.create()
+                .port(port)
+                .route(routes -> routes.get(PATH, this::handshake))
+                .bindNow();
+        log.info("Reactive WebSocket transport listening on port {}{}", server.port(), PATH);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batcher.shutdown();
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    /**
+     * The bound port (differs from websocket.reactive.port when that is 0).
+     */
+    public int getPort() {
+        return server.port();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    private Mono<Void> handshake(HttpServerRequest request, HttpServerResponse response) {
+        if (admission.shouldShed()) {
+            log.warn("WebSocket handshake shed: node at its connection cap ({} connections)", admission.getConnections());
+            return response.status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                    .header(HttpHeaders.RETRY_AFTER, admission.retryAfter())
+                    .send();
+        }
+
+        String origin = request.requestHeaders().get(HttpHeaderNames.ORIGIN);
+        if (origin != null && !allowedOrigins.contains("*") && !allowedOrigins.contains(origin)) {
+            log.warn("WebSocket handshake rejected: origin {} not allowed", origin);
+            return response.status(HttpStatus.FORBIDDEN.value()).send();
+        }
+
+        Map<String, List<String>> parameters = new QueryStringDecoder(request.uri()).parameters();
+        List<String> tokens = parameters.get("token");
+        List<String> snapshot = parameters.get("snapshot");
+        boolean snapshotRequested = NotificationProtocol.snapshotRequested(snapshot == null ? null : snapshot.get(0));
+        HttpHeaders headers = new HttpHeaders();
+        request.requestHeaders().forEach(header -> headers.add(header.getKey(), header.getValue()));
+
+        Map<String, Object> attributes = new HashMap<>();
+        HttpStatus status = authInterceptor.authenticate(
+                WebSocketAuthInterceptor.resolveToken(tokens == null ? null : tokens.get(0), headers), attributes);
+        if (status != HttpStatus.OK) {
+            return response.status(status.value()).send();
+        }
+
+        return response.sendWebsocket((in, out) -> session(in, out, attributes, snapshotRequested), specFor(headers));
+    }
+
+    /**
+     * Picks the spec for the first requested subprotocol the server supports. Reactor Netty fails the upgrade
+     * when a subprotocol is configured but the client requested none, so that case gets a spec without one.
+     */
+    private WebsocketServerSpec specFor(HttpHeaders headers) {
+        List<String> requested = headers.get(WebSocketHttpHeaders.SEC_WEBSOCKET_PROTOCOL);
+        if (requested != null) {
+            for (String value : requested) {
+                for (String subprotocol : value.split(",")) {
+                    Encoding encoding = Encoding.forSubprotocol(subprotocol.trim());
+                    if (encoding.subprotocol().equals(subprotocol.trim())) {
+                        return subprotocolSpecs[encoding.ordinal()];
+                    }
+                }
+            }
+        }
+        return websocketSpec;
+    }
+
+    private Mono<Void> session(WebsocketInbound in, WebsocketOutbound out, Map<String, Object> attributes,
+                               boolean snapshotRequested) {
+        if (!snapshotRequested) {
+            return open(in, out, attributes, null);
+        }
+        // The user's read state may have to be read from the database, which must not block the event loop
+        String tenant = TenantResolver.of(attributes);
+        String userId = (String) attributes.get("userId");
+        return Mono.fromCallable(() -> Optional.ofNullable(snapshotReadState(tenant, userId)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(readState -> open(in, out, attributes, readState.orElse(null)));
+    }
+
+    /**
+     * @param readState the user's read state for the welcome snapshot, or null to send none
+     */
+    private Mono<Void> open(WebsocketInbound in, WebsocketOutbound out, Map<String, Object> attributes,
+                            ReadState readState) {
+        String userId = (String) attributes.get("userId");
+        String email = (String) attributes.get("email");
+        if (!admission.admit()) {
+            log.warn("WebSocket connection refused: node at its connection cap");
+            return out.sendClose(WebSocketCloseStatus.TRY_AGAIN_LATER.code(), "Server saturated");
+        }
+        ReactiveSession session = new ReactiveSession(UUID.randomUUID().toString(), TenantResolver.of(attributes),
+                Encoding.forSubprotocol(out.selectedSubprotocol()), rateLimiter.open(userId));
+
+        // Broadcasts queue on the session under its lock, so none can get ahead of the welcome
+        session.lock.lock();
+        try {
+            // Join the fan-out first: a notification missing from the snapshot is then always broadcast to this session
+            sessions.put(session.tenant, session.id, session);
+            NotificationSnapshot snapshot = readState != null
+                    ? snapshotCache.snapshot(session.tenant, readState)
+                    : null;
+            if (snapshot != null) {
+                session.snapshotIds = NotificationSnapshotCache.notificationIds(snapshot);
+            }
+
+            log.info("WebSocket connection established: {} for user: {} ({}) (Total connections: {})",
+                    session.id, email, userId, sessions.size());
+
+            // Send welcome message with user info and the snapshot
+            session.offer(protocol.encode(protocol.welcomeEnvelope(userId, email, snapshot), session.encoding));
+        } catch (Exception e) {
+            log.error("Failed to send welcome message to session {}: {}", session.id, e.getMessage());
+        } finally {
+            session.lock.unlock();
+        }
+
+        Mono<Void> inbound = in.aggregateFrames(maxFramePayloadLength)
+                .receiveFrames()
+                .doOnNext(frame -> handleFrame(session, frame))
+                .then();
+        Mono<Void> outbound = out.sendObject(session.frames.asFlux()
+                        .doOnNext(frame -> session.queued.decrementAndGet())
+                        .map(frame -> frame == PING
+                                ? new PingWebSocketFrame()
+                                : session.encoding == Encoding.CBOR
+                                        ? new BinaryWebSocketFrame(Unpooled.wrappedBuffer(frame))
+                                        : new TextWebSocketFrame(Unpooled.wrappedBuffer(frame))))
+                .then();
+        heartbeat.watch(session);
+
+        // Whichever side ends first (client close, slow-consumer eviction, reaping) ends the connection
+        return Mono.firstWithSignal(inbound, outbound)
+                .doFinally(signal -> {
+                    sessions.remove(session.tenant, session.id);
+                    session.frames.tryEmitComplete();
+                    session.limit.close();
+                    admission.release();
+                    log.info("WebSocket connection closed: {} ({}, Total connections: {})",
+                            session.id, signal, sessions.size());
+                });
+    }
+
+    /**
+     * The user's read state for the welcome snapshot; null, and a welcome without a snapshot, if it cannot be read.
+     */
+    private ReadState snapshotReadState(String tenant, String userId) {
+        try {
+            return snapshotCache.readState(tenant, userId);
+        } catch (Exception e) {
+            log.warn("Sending welcome without snapshot, read state of user {} unavailable: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void handleFrame(ReactiveSession session, WebSocketFrame frame) {
+        // Any inbound frame, pongs included, counts as activity
+        session.lastActivity = System.currentTimeMillis();
+        if (!(frame instanceof TextWebSocketFrame) && !(frame instanceof BinaryWebSocketFrame)) {
+            return;
+        }
+        ByteBuf content = frame.content();
+        if (!session.limit.admit(content.readableBytes(),
+                () -> NotificationProtocol.isClientMessage(content.nioBuffer()))) {
+            if (session.limit.isAbusive()) {
+                log.warn("Closing WebSocket session {}: inbound limits exceeded repeatedly", session.id);
+                metrics.sessionClosedForPolicy();
+                session.reap();
+            }
+            return;
+        }
+        try {
+            NotificationProtocol.ClientMessage clientMessage;
+            if (frame instanceof TextWebSocketFrame text) {
+                clientMessage = protocol.readClientMessage(text.text());
+            } else {
+                // Clients on the CBOR subprotocol send their messages as binary frames
+                clientMessage = protocol.readClientMessage(ByteBufUtil.getBytes(content), session.encoding);
+            }
+
+            String type = clientMessage.type();
+            if ("ping".equals(type)) {
+                session.offer(protocol.pongFrame(session.encoding));
+            } else if ("subscribe".equals(type)) {
+                session.batch = clientMessage.batch();
+                session.offer(protocol.subscribedFrame(clientMessage.batch(), session.encoding));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to parse incoming message: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onNotification(Notification notification) {
+        broadcastNotification(notification, false);
+    }
+
+    @Override
+    public void onNotification(Notification notification, NotificationPriority priority, long resumeId) {
+        broadcastNotification(notification, priority == NotificationPriority.URGENT);
+    }
+
+    /**
+     * @param immediate queue a single frame on batching sessions too, instead of holding it for the batch window
+     */
+    private void broadcastNotification(Notification notification, boolean immediate) {
+        long start = System.nanoTime();
+        int delivered = deliver(notification.getTenantId(), immediate ? session -> true : session -> !session.batch,
+                notification.getId(), encoding -> protocol.notificationFrame(notification, encoding));
+        if (!immediate && sessions.of(notification.getTenantId()).stream().anyMatch(session -> session.batch)) {
+            batcher.add(notification);
+        }
+        if (delivered == 0) {
+            return;
+        }
+        metrics.recordFanOut(System.nanoTime() - start);
+        metrics.recordDeliveryLag(notification.getTimestamp());
+
+        log.info("Broadcasted notification {} to {} WebSocket clients", notification.getId(), delivered);
+    }
+
+    /**
+     * Queues one {@code notifications} frame per tenant for a closed batch window on every batching session of that
+     * tenant.
+     */
+    private void broadcastBatch(List<Notification> batch) {
+        Map<String, List<Notification>> byTenant = batch.stream()
+                .collect(Collectors.groupingBy(Notification::getTenantId, LinkedHashMap::new, Collectors.toList()));
+        byTenant.forEach(this::broadcastBatch);
+    }
+
+    private void broadcastBatch(String tenant, List<Notification> batch) {
+        long start = System.nanoTime();
+        int delivered = deliver(tenant, session -> session.batch, NO_NOTIFICATION,
+                encoding -> protocol.notificationsFrame(batch, encoding));
+        metrics.recordFanOut(System.nanoTime() - start);
+        metrics.recordBatch(batch.size());
+        for (Notification notification : batch) {
+            metrics.recordDeliveryLag(notification.getTimestamp());
+        }
+
+        log.info("Broadcasted batch of {} notifications to {} WebSocket clients", batch.size(), delivered);
+    }
+
+    /**
+     * Queues the frame on every session of the tenant accepted by {@code target}. The frame is encoded on first
+     * use, once per encoding in use.
+     *
+     * @return the number of sessions the frame was queued on
+     */
+    private int deliver(String tenant, Predicate<ReactiveSession> target, long notificationId, FrameEncoder encoder) {
+        byte[][] frames = new byte[Encoding.values().length][];
+        int delivered = 0;
+        try {
+            for (ReactiveSession session : sessions.of(tenant)) {
+                if (!target.test(session)) {
+                    continue;
+                }
+                int encoding = session.encoding.ordinal();
+                if (frames[encoding] == null) {
+                    frames[encoding] = encoder.encode(session.encoding);
+                }
+                session.offer(frames[encoding], notificationId);
+                delivered++;
+            }
+        } catch (Exception e) {
+            log.error("Failed to serialize notification: {}", e.getMessage());
+        }
+        return delivered;
+    }
+
+    /**
+     * Outbound side of one connection. Frames are queued in a growable unicast sink (a few hundred bytes while
+     * idle) and bounded by {@code sendQueueLimit}; the lock serializes the broadcast thread and the event loop
+     * replying to pings, since a sink accepts one producer at a time.
+     */
+    private final class ReactiveSession implements WebSocketHeartbeat.Connection {
+
+        private final String id;
+        private final String tenant;
+        private final Encoding encoding;
+        // Used on the connection's event loop only
+        private final WebSocketRateLimiter.ConnectionLimit limit;
+        private final Sinks.Many<byte[]> frames = Sinks.many().unicast().onBackpressureBuffer(Queues.<byte[]>unbounded(16).get());
+        private final AtomicInteger queued = new AtomicInteger();
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile boolean batch;
+        // Sorted IDs of the notifications in the welcome snapshot, or null; guarded by the lock
+        private long[] snapshotIds;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        private ReactiveSession(String id, String tenant, Encoding encoding, WebSocketRateLimiter.ConnectionLimit limit) {
+            this.id = id;
+            this.tenant = tenant;
+            this.encoding = encoding;
+            this.limit = limit;
+        }
+
+        void offer(byte[] frame) {
+            offer(frame, NO_NOTIFICATION);
+        }
+
+        /**
+         * Queues a frame; the broadcast frame of a notification that was in the welcome snapshot is dropped.
+         */
+        void offer(byte[] frame, long notificationId) {
+            lock.lock();
+            try {
+                if (snapshotIds != null && Arrays.binarySearch(snapshotIds, notificationId) >= 0) {
+                    return;
+                }
+                if (queued.incrementAndGet() > sendQueueLimit) {
+                    log.warn("Closing slow WebSocket session {}: {} frames queued", id, sendQueueLimit);
+                    metrics.sendFailed();
+                    reap();
+                    return;
+                }
+                if (frames.tryEmitNext(frame).isFailure()) {
+                    queued.decrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public String id() {
+            return id;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return sessions.contains(tenant, id);
+        }
+
+        @Override
+        public long lastActivityMillis() {
+            return lastActivity;
+        }
+
+        @Override
+        public void ping() {
+            offer(PING);
+        }
+
+        /**
+         * Ends the outbound stream, which closes the connection.
+         */
+        @Override
+        public void reap() {
+            sessions.remove(tenant, id);
+            lock.lock();
+            try {
+                frames.tryEmitComplete();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.distrischool.notifications.websocket;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket: holds up to {@code capacity} tokens, refilled continuously at {@code ratePerSecond}.
+ * Refill is computed lazily on each call, so an idle bucket costs nothing.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private double tokens;
+    private long refilledAt;
+
+    TokenBucket(double ratePerSecond, double capacity) {
+        this(ratePerSecond, capacity, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock monotonic time in nanoseconds, {@link System#nanoTime()} outside tests
+     */
+    TokenBucket(double ratePerSecond, double capacity, LongSupplier nanoClock) {
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.refilledAt = nanoClock.getAsLong();
+    }
+
+    boolean tryConsume() {
+        lock.lock();
+        try {
+            long now = nanoClock.getAsLong();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.distrischool.notifications.websocket;
+
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Node-wide cap on open /ws/notifications connections, shared by both transports.
+ *
+ * Handshakes are refused with 503 and a Retry-After hint once the node holds {@code max-connections}
+ * connections, before the token is decoded. Handshakes that raced past the check are closed right after the
+ * upgrade with 1013 (try again later) by {@link #admit()}. The Retry-After value is jittered so shed clients
+ * do not come back all at once.
+ */
+@Component
+public class WebSocketAdmission {
+
+    private final NotificationMetrics metrics;
+    private final int maxConnections;
+    private final int retryAfterSeconds;
+    private final AtomicInteger connections = new AtomicInteger();
+
+    public WebSocketAdmission(NotificationMetrics metrics,
+                              @Value("${websocket.admission.max-connections:10000}") int maxConnections,
+                              @Value("${websocket.admission.retry-after-seconds:10}") int retryAfterSeconds) {
+        this.metrics = metrics;
+        this.maxConnections = maxConnections;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Handshake check: true if the node is at its cap and the handshake should be refused.
+     */
+    public boolean shouldShed() {
+        if (connections.get() < maxConnections) {
+            return false;
+        }
+        metrics.connectionShed();
+        return true;
+    }
+
+    /**
+     * Seconds for the Retry-After header of a shed handshake, between the configured value and twice that.
+     */
+    public String retryAfter() {
+        return Integer.toString(retryAfterSeconds + ThreadLocalRandom.current().nextInt(retryAfterSeconds + 1));
+    }
+
+    /**
+     * Counts an established connection.
+     *
+     * @return false if the cap was reached in the meantime; the connection must then be closed and not released
+     */
+    public boolean admit() {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            metrics.connectionShed();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases a connection counted by {@link #admit()}.
+     */
+    public void release() {
+        connections.decrementAndGet();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+}
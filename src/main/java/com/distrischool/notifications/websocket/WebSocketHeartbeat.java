@@ -0,0 +1,98 @@
+package com.distrischool.notifications.websocket;
+
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import io.netty.util.HashedWheelTimer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-driven liveness for WebSocket sessions of every transport.
+ *
+ * Each watched connection gets one timeout on a hashed timer wheel, so scheduling is O(1) per session and a
+ * single thread serves all of them. When it fires, a connection that has been silent (no inbound frame, pong
+ * included) for websocket.heartbeat.idle-timeout-ms is reaped; otherwise it is sent a WebSocket ping control
+ * frame and rescheduled websocket.heartbeat.interval-ms later. Browsers answer pings automatically, so live
+ * clients never need to send application-level pings.
+ */
+@Slf4j
+@Component
+public class WebSocketHeartbeat {
+
+    /**
+     * A connection watched by the heartbeat.
+     * {@link #ping()} and {@link #reap()} run on the timer thread and must not block.
+     */
+    public interface Connection {
+
+        String id();
+
+        boolean isOpen();
+
+        long lastActivityMillis();
+
+        void ping();
+
+        /**
+         * Closes the connection and drops it from the transport's session registry.
+         */
+        void reap();
+    }
+
+    private final HashedWheelTimer timer;
+    private final NotificationMetrics metrics;
+    private final long intervalMs;
+    private final long idleTimeoutMs;
+
+    public WebSocketHeartbeat(NotificationMetrics metrics,
+                              @Value("${websocket.heartbeat.interval-ms:25000}") long intervalMs,
+                              @Value("${websocket.heartbeat.idle-timeout-ms:60000}") long idleTimeoutMs) {
+        this.metrics = metrics;
+        this.intervalMs = intervalMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        // 512 ticks of 100 ms: a 51 s wheel revolution covers the default interval without extra rounds
+        this.timer = new HashedWheelTimer(runnable -> {
+            Thread thread = new Thread(runnable, "ws-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        }, 100, TimeUnit.MILLISECONDS, 512);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.stop();
+    }
+
+    /**
+     * Starts watching a newly opened connection.
+     */
+    public void watch(Connection connection) {
+        schedule(connection);
+    }
+
+    private void schedule(Connection connection) {
+        try {
+            timer.newTimeout(timeout -> check(connection), intervalMs, TimeUnit.MILLISECONDS);
+        } catch (IllegalStateException e) {
+            // Timer stopped during shutdown
+        }
+    }
+
+    private void check(Connection connection) {
+        if (!connection.isOpen()) {
+            return;
+        }
+        long idle = System.currentTimeMillis() - connection.lastActivityMillis();
+        if (idle >= idleTimeoutMs) {
+            log.info("Reaping WebSocket session {}: no activity for {} ms", connection.id(), idle);
+            metrics.sessionReaped();
+            connection.reap();
+            return;
+        }
+        connection.ping();
+        schedule(connection);
+    }
+}
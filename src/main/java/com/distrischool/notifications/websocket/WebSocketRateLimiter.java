@@ -0,0 +1,130 @@
+package com.distrischool.notifications.websocket;
+
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.metrics.NotificationMetrics.InboundDrop;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Inbound limits for /ws/notifications client frames, shared by both transports.
+ *
+ * Each frame must pass, in order of cost: a token bucket per connection and one per user (shared by all of the
+ * user's connections), a size check, and a cheap pre-parse check that it looks like a known message type.
+ * Frames that fail are dropped without parsing. A connection that keeps failing ({@code max-violations} drops
+ * with no accepted frame in between) should be closed by the transport.
+ */
+@Component
+public class WebSocketRateLimiter {
+
+    private final NotificationMetrics metrics;
+    private final double sessionRate;
+    private final double sessionBurst;
+    private final double userRate;
+    private final double userBurst;
+    private final int maxFrameBytes;
+    private final int maxViolations;
+    private final ConcurrentHashMap<String, UserBucket> users = new ConcurrentHashMap<>();
+
+    public WebSocketRateLimiter(NotificationMetrics metrics,
+                                @Value("${websocket.inbound.session-rate:5}") double sessionRate,
+                                @Value("${websocket.inbound.session-burst:10}") double sessionBurst,
+                                @Value("${websocket.inbound.user-rate:20}") double userRate,
+                                @Value("${websocket.inbound.user-burst:40}") double userBurst,
+                                @Value("${websocket.inbound.max-frame-bytes:1024}") int maxFrameBytes,
+                                @Value("${websocket.inbound.max-violations:100}") int maxViolations) {
+        this.metrics = metrics;
+        this.sessionRate = sessionRate;
+        this.sessionBurst = sessionBurst;
+        this.userRate = userRate;
+        this.userBurst = userBurst;
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxViolations = maxViolations;
+    }
+
+    /**
+     * Creates the limits of a new connection; {@link ConnectionLimit#close()} must be called when it ends.
+     */
+    public ConnectionLimit open(String userId) {
+        UserBucket user = null;
+        if (userId != null) {
+            user = users.compute(userId, (id, existing) -> {
+                UserBucket bucket = existing != null ? existing : new UserBucket(new TokenBucket(userRate, userBurst));
+                bucket.connections++;
+                return bucket;
+            });
+        }
+        return new ConnectionLimit(userId, user);
+    }
+
+    /**
+     * Limits of one connection. Inbound frames of a connection are handled one at a time by both transports.
+     */
+    public final class ConnectionLimit {
+
+        private final String userId;
+        private final UserBucket user;
+        private final TokenBucket bucket = new TokenBucket(sessionRate, sessionBurst);
+        private int violations;
+        private boolean closed;
+
+        private ConnectionLimit(String userId, UserBucket user) {
+            this.userId = userId;
+            this.user = user;
+        }
+
+        /**
+         * @param frameBytes payload length of the frame
+         * @param knownType  pre-parse check of the payload, only evaluated if the frame passed the other limits
+         * @return true if the frame may be parsed and handled
+         */
+        public boolean admit(int frameBytes, BooleanSupplier knownType) {
+            InboundDrop drop = null;
+            if (!bucket.tryConsume() || (user != null && !user.bucket.tryConsume())) {
+                drop = InboundDrop.RATE;
+            } else if (frameBytes > maxFrameBytes) {
+                drop = InboundDrop.SIZE;
+            } else if (!knownType.getAsBoolean()) {
+                drop = InboundDrop.TYPE;
+            }
+            if (drop == null) {
+                violations = 0;
+                return true;
+            }
+            violations++;
+            metrics.inboundDropped(drop);
+            return false;
+        }
+
+        /**
+         * Whether the connection exceeded the limits often enough in a row to be closed.
+         */
+        public boolean isAbusive() {
+            return violations >= maxViolations;
+        }
+
+        /**
+         * Releases the user's shared bucket once their last connection closes. Idempotent.
+         */
+        public void close() {
+            if (closed || user == null) {
+                return;
+            }
+            closed = true;
+            users.computeIfPresent(userId, (id, bucket) -> --bucket.connections == 0 ? null : bucket);
+        }
+    }
+
+    private static final class UserBucket {
+
+        private final TokenBucket bucket;
+        // Guarded by the map's compute operations
+        private int connections;
+
+        private UserBucket(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
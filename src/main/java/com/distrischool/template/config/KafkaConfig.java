@@ -1,11 +1,18 @@
 package com.distrischool.template.config;
 
+import com.distrischool.template.kafka.EventOffsetTracker;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
@@ -24,6 +31,7 @@
  */
 @Slf4j
 @Configuration
+@ImportRuntimeHints(KafkaConfig.SnappyHints.class)
 public class KafkaConfig {
 
     @Value("${spring.kafka.bootstrap-servers}")
@@ -32,6 +40,9 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id}")
     private String groupId;
 
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
     @PostConstruct
     public void init() {
         log.info("KafkaConfig initialized with bootstrap-servers: {}, group-id: {}", bootstrapServers, groupId);
@@ -48,8 +59,8 @@ public ConsumerFactory<String, Map<String, Object>> consumerFactory() {
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
         props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
-        // Use 'latest' to skip old compressed messages and only consume new ones
-        // Change to 'earliest' if you need to process historical messages (after fixing Snappy support)
+        // Use 'latest' to skip old compressed messages and only consume new ones; historical messages are
+        // loaded by the backfill (EventBackfill, notifications.backfill.enabled), which also sets this group's offsets
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
         
         // JsonDeserializer configuration
@@ -69,7 +80,8 @@ public ConsumerFactory<String, Map<String, Object>> consumerFactory() {
      * Configured with error handling to ensure consumers don't fail silently.
      */
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, Map<String, Object>> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, Map<String, Object>> kafkaListenerContainerFactory(
+            EventOffsetTracker offsetTracker) {
         ConcurrentKafkaListenerContainerFactory<String, Map<String, Object>> factory =
             new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
@@ -84,13 +96,40 @@ public ConcurrentKafkaListenerContainerFactory<String, Map<String, Object>> kafk
         
         factory.setCommonErrorHandler(errorHandler);
         
-        // Enable auto-commit to ensure offsets are committed
-        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.RECORD);
+        // Records are handed to the priority lanes (NotificationIngestion) and persisted asynchronously, so
+        // offsets are acknowledged by EventOffsetTracker once persisted, up to the highest offset of each partition
+        // below which every record is done, and committed after the next poll; a commit per record would only cap
+        // consumption at one broker round trip per event, leaving bulk backlogs in Kafka where urgent events cannot
+        // overtake them
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        factory.getContainerProperties().setConsumerRebalanceListener(offsetTracker);
         
         // Log consumer lifecycle events
         factory.setConcurrency(1); // Start with 1 consumer, can be increased if needed
+
+        // Opt-in: run the consumer loop (and therefore record processing, JDBC and broadcast) on virtual threads.
+        // Spring Boot only applies spring.threads.virtual.enabled to its own auto-configured factory.
+        if (virtualThreads) {
+            factory.getContainerProperties().setListenerTaskExecutor(new VirtualThreadTaskExecutor("kafka-listener-"));
+        }
         
         return factory;
     }
-}
 
+    /**
+     * Snappy-compressed batches are decompressed by snappy-java through JNI: in a native image its bundled
+     * library must be kept as a resource (it is extracted and loaded at first use) and the native code calls
+     * back into {@code SnappyNative} to raise errors. lz4-java falls back to its pure Java codec; zstd is not
+     * covered.
+     */
+    static class SnappyHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.resources().registerPattern("org/xerial/snappy/VERSION");
+            hints.resources().registerPattern("org/xerial/snappy/native/Linux/*/libsnappyjava.so");
+            hints.jni().registerType(TypeReference.of("org.xerial.snappy.SnappyNative"),
+                    MemberCategory.INVOKE_DECLARED_METHODS);
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.distrischool.template.kafka;
+
+import com.distrischool.notifications.entity.Notification;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.metrics.NotificationMetrics.BackfillOutcome;
+import com.distrischool.notifications.service.NotificationBackfillProperties;
+import com.distrischool.notifications.service.NotificationBackpressure;
+import com.distrischool.notifications.service.NotificationBulkLoader;
+import com.distrischool.notifications.service.NotificationSnapshotCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds notifications from the event topics, for a new environment or after data loss
+ * ({@code notifications.backfill.enabled}).
+ *
+ * Runs at startup, before the live listener of {@link EventConsumer}, which does not start on its own while the
+ * backfill is enabled. A consumer of its own group reads the listener's topics from the earliest offsets up to
+ * the end offsets taken when it starts. Each poll is decoded and templated by {@code decode-threads} threads into
+ * the notifications the live consumer would save, without aggregation or broadcast, and loaded by
+ * {@link NotificationBulkLoader} with {@code COPY} while the next poll is decoded. The backfill group's offsets
+ * are committed once a batch is loaded. Progress and the rebuild rate are logged every {@code report-interval-ms}.
+ *
+ * Handoff: once every partition has reached its end offset, those offsets are committed for the live group
+ * where it has none or lower ones, then the snapshot cache is reloaded and the live listener started. It
+ * continues with the events produced during the backfill and none are missed or, since both paths skip events
+ * that already have a notification, saved twice. If the live group is consuming on another instance the commit
+ * is refused and it keeps its own offsets. When the backfill fails the live listener starts all the same, from
+ * its own offsets; a new run resumes from the backfill group's offsets.
+ */
+@Slf4j
+@Component
+public class EventBackfill {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {
+    };
+
+    private final NotificationBackfillProperties properties;
+    private final NotificationBulkLoader loader;
+    private final NotificationSnapshotCache snapshotCache;
+    private final ConsumerFactory<String, Map<String, Object>> consumerFactory;
+    private final ObjectProvider<KafkaListenerEndpointRegistry> registry;
+    private final EventConsumer eventConsumer;
+    private final ObjectMapper objectMapper;
+    private final NotificationMetrics metrics;
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long remaining;
+    private volatile boolean stopping;
+    private volatile Thread thread;
+
+    public EventBackfill(NotificationBackfillProperties properties,
+                         NotificationBulkLoader loader,
+                         NotificationSnapshotCache snapshotCache,
+                         ConsumerFactory<String, Map<String, Object>> consumerFactory,
+                         ObjectProvider<KafkaListenerEndpointRegistry> registry,
+                         EventConsumer eventConsumer,
+                         ObjectMapper objectMapper,
+                         NotificationMetrics metrics) {
+        this.properties = properties;
+        this.loader = loader;
+        this.snapshotCache = snapshotCache;
+        this.consumerFactory = consumerFactory;
+        this.registry = registry;
+        this.eventConsumer = eventConsumer;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        metrics.registerBackfillRemaining(() -> remaining);
+    }
+
+    /**
+     * Starts the backfill once the application is ready, if enabled.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Thread backfill = new Thread(this::run, "notification-backfill");
+        backfill.setDaemon(true);
+        thread = backfill;
+        backfill.start();
+    }
+
+    /**
+     * Stops after the batch being loaded, without handing off: the next start resumes from the backfill's offsets.
+     */
+    @PreDestroy
+    public void shutdown() {
+        stopping = true;
+        Thread backfill = thread;
+        if (backfill != null) {
+            try {
+                backfill.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        MessageListenerContainer live = liveContainer();
+        if (live == null) {
+            log.error("Backfill disabled: listener {} not found", NotificationBackpressure.LISTENER_ID);
+            return;
+        }
+        int threads = properties.getDecodeThreads() > 0
+                ? properties.getDecodeThreads() : Runtime.getRuntime().availableProcessors();
+        ExecutorService decoders = Executors.newFixedThreadPool(threads, daemonThreads("notification-backfill-decode"));
+        ExecutorService writer = Executors.newSingleThreadExecutor(daemonThreads("notification-backfill-writer"));
+        Set<String> tenants = ConcurrentHashMap.newKeySet();
+        try (KafkaConsumer<String, byte[]> consumer = consumer(properties.getGroupId())) {
+            List<TopicPartition> partitions = partitionsOf(consumer, live.getContainerProperties().getTopics());
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+            remaining = remaining(consumer, end);
+            log.info("Backfill from group {} started: {} records on {} partitions up to the current end offsets",
+                    properties.getGroupId(), remaining, partitions.size());
+
+            long startNanos = System.nanoTime();
+            long reportedNanos = startNanos;
+            Future<?> loading = null;
+            Map<TopicPartition, OffsetAndMetadata> loadingOffsets = Map.of();
+            while (!stopping && !pauseCaughtUp(consumer, end)) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(POLL_TIMEOUT);
+                List<ConsumerRecord<String, byte[]>> batch = new ArrayList<>(records.count());
+                Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    // Records past the end offsets are the live listener's
+                    if (record.offset() < end.get(partition)) {
+                        batch.add(record);
+                        offsets.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                    }
+                }
+                read.addAndGet(batch.size());
+                List<Notification> rows = decode(batch, decoders, threads);
+
+                // One batch is loaded while the next one is polled and decoded
+                awaitLoaded(consumer, loading, loadingOffsets);
+                loading = writer.submit(() -> load(rows, tenants));
+                loadingOffsets = offsets;
+
+                remaining = remaining(consumer, end);
+                long reportInterval = TimeUnit.MILLISECONDS.toNanos(properties.getReportIntervalMs());
+                if (System.nanoTime() - reportedNanos >= reportInterval) {
+                    reportedNanos = System.nanoTime();
+                    report("running", startNanos);
+                }
+            }
+            awaitLoaded(consumer, loading, loadingOffsets);
+            if (stopping) {
+                log.info("Backfill stopped; the next start resumes from the offsets of group {}",
+                        properties.getGroupId());
+                return;
+            }
+            remaining = 0;
+            report("done", startNanos);
+            handOff(live.getGroupId(), end);
+        } catch (Exception e) {
+            log.error("Backfill failed, the live listener starts from its own offsets: {}", e.getMessage(), e);
+        } finally {
+            decoders.shutdownNow();
+            writer.shutdownNow();
+            if (!stopping) {
+                for (String tenant : tenants) {
+                    try {
+                        snapshotCache.reload(tenant);
+                    } catch (Exception e) {
+                        log.warn("Failed to reload the snapshot of tenant {}: {}", tenant, e.getMessage());
+                    }
+                }
+                live.start();
+                log.info("Live listener {} started", NotificationBackpressure.LISTENER_ID);
+            }
+        }
+    }
+
+    /**
+     * Pauses the partitions that reached their end offset.
+     *
+     * @return true once every partition has
+     */
+    private static boolean pauseCaughtUp(KafkaConsumer<String, byte[]> consumer, Map<TopicPartition, Long> end) {
+        List<TopicPartition> caughtUp = new ArrayList<>();
+        for (TopicPartition partition : consumer.assignment()) {
+            if (!consumer.paused().contains(partition) && consumer.position(partition) >= end.get(partition)) {
+                caughtUp.add(partition);
+            }
+        }
+        consumer.pause(caughtUp);
+        return consumer.paused().size() == consumer.assignment().size();
+    }
+
+    private static long remaining(KafkaConsumer<String, byte[]> consumer, Map<TopicPartition, Long> end) {
+        long remaining = 0;
+        for (Map.Entry<TopicPartition, Long> partition : end.entrySet()) {
+            remaining += Math.max(0, partition.getValue() - consumer.position(partition.getKey()));
+        }
+        return remaining;
+    }
+
+    /**
+     * Decodes the records in {@code threads} slices in parallel, keeping their order.
+     */
+    private List<Notification> decode(List<ConsumerRecord<String, byte[]>> records, ExecutorService decoders,
+                                      int threads) throws InterruptedException, ExecutionException {
+        int slice = Math.max(1, (records.size() + threads - 1) / threads);
+        List<Future<List<Notification>>> slices = new ArrayList<>();
+        for (int from = 0; from < records.size(); from += slice) {
+            List<ConsumerRecord<String, byte[]>> part = records.subList(from, Math.min(records.size(), from + slice));
+            slices.add(decoders.submit(() -> decode(part)));
+        }
+        List<Notification> rows = new ArrayList<>(records.size());
+        for (Future<List<Notification>> part : slices) {
+            rows.addAll(part.get());
+        }
+        return rows;
+    }
+
+    private List<Notification> decode(List<ConsumerRecord<String, byte[]>> records) {
+        List<Notification> rows = new ArrayList<>(records.size());
+        int ignored = 0;
+        int invalid = 0;
+        for (ConsumerRecord<String, byte[]> record : records) {
+            try {
+                DistriSchoolEvent event = record.value() != null ? toEvent(record.value()) : null;
+                if (event == null || !EventConsumer.shouldCreateNotification(event.getEventType())) {
+                    ignored++;
+                } else {
+                    rows.add(loader.toNotification(event));
+                }
+            } catch (Exception e) {
+                invalid++;
+                log.warn("Backfill skipped record {}-{} at offset {}: {}", record.topic(), record.partition(),
+                        record.offset(), e.getMessage());
+            }
+        }
+        skipped.addAndGet(ignored);
+        failed.addAndGet(invalid);
+        metrics.backfilled(BackfillOutcome.SKIPPED, ignored);
+        metrics.backfilled(BackfillOutcome.FAILED, invalid);
+        return rows;
+    }
+
+    /**
+     * The event as the live listener reads it (JSON map, then {@link EventConsumer#convertMapToEvent}), bound
+     * directly where the JSON allows it. An event without ID is rejected rather than given a random one, which
+     * would defeat deduplication on the next run.
+     */
+    private DistriSchoolEvent toEvent(byte[] value) throws IOException {
+        try {
+            return objectMapper.readValue(value, DistriSchoolEvent.class);
+        } catch (JsonProcessingException e) {
+            Map<String, Object> map = objectMapper.readValue(value, MAP);
+            if (!(map.get("eventId") instanceof String)) {
+                throw new IllegalArgumentException("Event without eventId");
+            }
+            return eventConsumer.convertMapToEvent(map);
+        }
+    }
+
+    private void load(List<Notification> rows, Set<String> tenants) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> byTenant = loader.load(rows);
+        int count = byTenant.values().stream().mapToInt(Integer::intValue).sum();
+        inserted.addAndGet(count);
+        duplicates.addAndGet(rows.size() - count);
+        metrics.backfilled(BackfillOutcome.INSERTED, count);
+        metrics.backfilled(BackfillOutcome.DUPLICATE, rows.size() - count);
+        tenants.addAll(byTenant.keySet());
+    }
+
+    /**
+     * Waits for the batch being loaded, then commits its offsets for the backfill group.
+     */
+    private static void awaitLoaded(KafkaConsumer<String, byte[]> consumer, Future<?> loading,
+                                    Map<TopicPartition, OffsetAndMetadata> offsets)
+            throws InterruptedException, ExecutionException {
+        if (loading == null) {
+            return;
+        }
+        loading.get();
+        if (!offsets.isEmpty()) {
+            consumer.commitSync(offsets);
+        }
+    }
+
+    /**
+     * Moves the live group to the end offsets of the backfill on the partitions where it is behind them.
+     */
+    private void handOff(String liveGroup, Map<TopicPartition, Long> end) {
+        try (KafkaConsumer<String, byte[]> consumer = consumer(liveGroup)) {
+            Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(end.keySet());
+            Map<TopicPartition, OffsetAndMetadata> handOff = new HashMap<>();
+            end.forEach((partition, offset) -> {
+                OffsetAndMetadata current = committed.get(partition);
+                if (current == null || current.offset() < offset) {
+                    handOff.put(partition, new OffsetAndMetadata(offset));
+                }
+            });
+            if (!handOff.isEmpty()) {
+                consumer.commitSync(handOff);
+            }
+            log.info("Backfill handed off to group {}: moved to the backfill's end offsets on {} of {} partitions",
+                    liveGroup, handOff.size(), end.size());
+        } catch (KafkaException e) {
+            log.warn("Offsets of group {} not moved ({}): it continues from its own, events loaded already are "
+                    + "skipped as duplicates", liveGroup, e.getMessage());
+        }
+    }
+
+    private void report(String state, long startNanos) {
+        double seconds = Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+        log.info("Backfill {} after {} s: {} records read ({} records/s), {} notifications inserted ({}/s), "
+                        + "{} duplicates, {} skipped, {} failed, {} remaining", state, Math.round(seconds),
+                read.get(), Math.round(read.get() / seconds), inserted.get(), Math.round(inserted.get() / seconds),
+                duplicates.get(), skipped.get(), failed.get(), remaining);
+    }
+
+    private KafkaConsumer<String, byte[]> consumer(String groupId) {
+        Map<String, Object> config = new HashMap<>(consumerFactory.getConfigurationProperties());
+        config.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, properties.getBatchSize());
+        // Values stay raw, to be decoded by the decode threads rather than the polling one
+        return new KafkaConsumer<>(config, new StringDeserializer(), new ByteArrayDeserializer());
+    }
+
+    private List<TopicPartition> partitionsOf(KafkaConsumer<String, byte[]> consumer, String[] topics) {
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (String topic : topics) {
+            List<PartitionInfo> infos = consumer.partitionsFor(topic);
+            if (infos == null || infos.isEmpty()) {
+                log.warn("Backfill skips topic {}: it has no partitions", topic);
+                continue;
+            }
+            for (PartitionInfo partition : infos) {
+                partitions.add(new TopicPartition(partition.topic(), partition.partition()));
+            }
+        }
+        return partitions;
+    }
+
+    private MessageListenerContainer liveContainer() {
+        KafkaListenerEndpointRegistry endpoints = registry.getIfAvailable();
+        return endpoints == null ? null : endpoints.getListenerContainer(NotificationBackpressure.LISTENER_ID);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread worker = new Thread(runnable, name + "-" + count.getAndIncrement());
+            worker.setDaemon(true);
+            return worker;
+        };
+    }
+}
@@ -1,11 +1,16 @@
 package com.distrischool.template.kafka;
 
-import com.distrischool.notifications.service.NotificationService;
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.service.NotificationAggregator;
+import com.distrischool.notifications.service.NotificationBackpressure;
+import com.distrischool.notifications.service.NotificationIngestion;
 import com.distrischool.template.kafka.DistriSchoolEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
@@ -16,15 +21,22 @@
 
 /**
  * Kafka Consumer for receiving events from other DistriSchool microservices.
- * Processes events and saves them as notifications.
+ * Processes events and saves them as notifications, through the priority lanes of {@link NotificationIngestion}
+ * and then {@link NotificationAggregator} so bursts of same-type events can become one digest notification.
+ * {@link DistriSchoolEvent} is bound by Jackson through reflection (here and in {@link EventProducer}), so it is
+ * registered for binding for the native image.
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
+@RegisterReflectionForBinding(DistriSchoolEvent.class)
 public class EventConsumer {
 
-    private final NotificationService notificationService;
+    private final NotificationIngestion ingestion;
     private final ObjectMapper objectMapper;
+    private final NotificationMetrics metrics;
+    private final NotificationBackpressure backpressure;
+    private final EventOffsetTracker offsetTracker;
 
     @PostConstruct
     public void init() {
@@ -36,8 +48,14 @@ public void init() {
      * Listens to multiple topics: user events, teacher events, and generic events.
      * Accepts events as Map to handle different event types from different services.
      * Note: groupId is set in the ConsumerFactory, so we don't need to specify it here.
+     * The id lets {@link NotificationBackpressure} pause and resume the container; idIsGroup keeps the group id.
+     * With the backfill enabled the container is started by {@link EventBackfill} once it has handed off.
+     * The record's offset is committed through {@link EventOffsetTracker} once its notification is persisted.
      */
     @KafkaListener(
+            id = NotificationBackpressure.LISTENER_ID,
+            idIsGroup = false,
+            autoStartup = "#{!${notifications.backfill.enabled:false}}",
             topics = {
                 "distrischool.auth.user.created",
                 "teacher-events",
@@ -49,8 +67,13 @@ public void consumeEvent(
             @Payload Map<String, Object> eventMap,
             @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
             @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
-            @Header(KafkaHeaders.OFFSET) long offset) {
+            @Header(KafkaHeaders.OFFSET) long offset,
+            Acknowledgment acknowledgment) {
         
+        long receivedNanos = System.nanoTime();
+        Runnable persisted = offsetTracker.track(topic, partition, acknowledgment);
+        backpressure.acquire();
+        boolean queued = false;
         log.info("Event received from topic '{}' [partition: {}, offset: {}]", topic, partition, offset);
         log.debug("Event details: {}", eventMap);
         
@@ -60,23 +83,32 @@ public void consumeEvent(
             
             // Process events that should become notifications
             String eventType = event.getEventType();
+            metrics.eventConsumed(eventType);
             if (shouldCreateNotification(eventType)) {
-                notificationService.saveNotification(event);
-                log.info("Notification created successfully for event: {}", event.getEventId());
+                ingestion.submit(event, receivedNanos, persisted);
+                queued = true;
+                log.info("Notification submitted for event: {}", event.getEventId());
             } else {
                 log.debug("Event type {} does not require a notification, skipping", eventType);
             }
         } catch (Exception e) {
             log.error("Error processing event: {}", e.getMessage(), e);
             // TODO: Implement retry logic or DLQ (Dead Letter Queue) if needed
+        } finally {
+            // A queued event is released, and its offset committed, by its lane once persisted
+            if (!queued) {
+                backpressure.release(1);
+                persisted.run();
+            }
         }
     }
     
     /**
      * Converts a Map event to DistriSchoolEvent.
      * Handles different event formats from different services.
+     * Package-private for {@link EventBackfill} and the JMH benchmarks in src/jmh.
      */
-    private DistriSchoolEvent convertMapToEvent(Map<String, Object> eventMap) {
+    DistriSchoolEvent convertMapToEvent(Map<String, Object> eventMap) {
         try {
             // Convert Map to JSON string and then to DistriSchoolEvent
             String json = objectMapper.writeValueAsString(eventMap);
@@ -113,8 +145,9 @@ private DistriSchoolEvent convertMapToEvent(Map<String, Object> eventMap) {
     /**
      * Determines if an event type should create a notification.
      * Processes: user.created, USER_CREATED, user.disabled, USER_DISABLED, teacher.created
+     * Package-private for {@link EventBackfill}.
      */
-    private boolean shouldCreateNotification(String eventType) {
+    static boolean shouldCreateNotification(String eventType) {
         if (eventType == null) {
             return false;
         }
@@ -0,0 +1,118 @@
+package com.distrischool.template.kafka;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Offset commits of the event listener ({@code AckMode.MANUAL}) once records are persisted.
+ *
+ * Records are persisted asynchronously and out of order (priority lanes, aggregation windows), so each partition
+ * keeps its records in delivery order and acknowledges only the highest offset below which every record is done:
+ * a crash or rebalance redelivers everything not yet persisted, never skips it. Redelivered events are recognized
+ * by their event ID and not saved twice.
+ *
+ * A revoked partition is forgotten, so records still in flight for it are not acknowledged on behalf of its new
+ * owner; they are persisted, and the new owner redelivers them.
+ */
+@Component
+public class EventOffsetTracker implements ConsumerAwareRebalanceListener {
+
+    private final ConcurrentHashMap<TopicPartition, Partition> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a record in delivery order. Must be called on the listener thread.
+     *
+     * @return marks the record done; its offset is committed once every earlier record of the partition is done.
+     *         Idempotent and thread-safe.
+     */
+    public Runnable track(String topic, int partition, Acknowledgment acknowledgment) {
+        Partition state = partitions.computeIfAbsent(new TopicPartition(topic, partition), key -> new Partition());
+        Pending pending = new Pending(acknowledgment);
+        state.add(pending);
+        return () -> state.done(pending);
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        revoked.forEach(this::forget);
+    }
+
+    @Override
+    public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> lost) {
+        lost.forEach(this::forget);
+    }
+
+    private void forget(TopicPartition topicPartition) {
+        Partition state = partitions.remove(topicPartition);
+        if (state != null) {
+            state.revoke();
+        }
+    }
+
+    /**
+     * Records of one partition in delivery order, up to the first one not done. Guarded by the lock.
+     */
+    private static final class Partition {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayDeque<Pending> records = new ArrayDeque<>();
+        private boolean revoked;
+
+        private void add(Pending pending) {
+            lock.lock();
+            try {
+                records.add(pending);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void done(Pending pending) {
+            lock.lock();
+            try {
+                pending.done = true;
+                Pending committable = null;
+                while (!records.isEmpty() && records.peek().done) {
+                    committable = records.poll();
+                }
+                if (committable != null && !revoked) {
+                    // Queued for the consumer thread, which commits the offset after its next poll
+                    committable.acknowledgment.acknowledge();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void revoke() {
+            lock.lock();
+            try {
+                revoked = true;
+                records.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * A delivered record; {@code done} is guarded by its partition's lock.
+     */
+    private static final class Pending {
+
+        private final Acknowledgment acknowledgment;
+        private boolean done;
+
+        private Pending(Acknowledgment acknowledgment) {
+            this.acknowledgment = acknowledgment;
+        }
+    }
+}
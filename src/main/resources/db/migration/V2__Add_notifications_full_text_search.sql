@@ -0,0 +1,60 @@
+-- Migration to add full-text search over notifications
+-- Created: 2026-10-19
+-- Description: Adds a tsvector column (Portuguese text search configuration) over title, message and the
+--              user/teacher name and email fields of data, kept up to date by a trigger and indexed with GIN
+
+-- Search document column
+ALTER TABLE notifications ADD COLUMN search_vector tsvector;
+
+-- Builds the search document: title (weight A), message (weight B), selected data fields (weight C).
+-- data holds the event payload as JSON text; rows whose data is not a JSON object only index title and message.
+CREATE OR REPLACE FUNCTION notifications_search_vector(p_title TEXT, p_message TEXT, p_data TEXT)
+RETURNS tsvector AS $$
+DECLARE
+    fields JSONB;
+    data_text TEXT := '';
+BEGIN
+    IF p_data IS NOT NULL AND p_data <> '' THEN
+        BEGIN
+            fields := p_data::jsonb;
+            IF jsonb_typeof(fields) = 'object' THEN
+                data_text := concat_ws(' ',
+                    fields ->> 'userName', fields ->> 'firstName', fields ->> 'lastName',
+                    fields ->> 'userEmail', fields ->> 'email',
+                    fields ->> 'teacherName', fields ->> 'teacherEmail');
+            END IF;
+        EXCEPTION WHEN invalid_text_representation THEN
+            data_text := '';
+        END;
+    END IF;
+
+    RETURN setweight(to_tsvector('portuguese', coalesce(p_title, '')), 'A')
+        || setweight(to_tsvector('portuguese', coalesce(p_message, '')), 'B')
+        || setweight(to_tsvector('portuguese', data_text), 'C');
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+-- Keep the search document up to date on insert and when the indexed columns change
+CREATE OR REPLACE FUNCTION update_notifications_search_vector()
+RETURNS TRIGGER AS $$
+BEGIN
+    NEW.search_vector = notifications_search_vector(NEW.title, NEW.message, NEW.data);
+    RETURN NEW;
+END;
+$$ language 'plpgsql';
+
+DROP TRIGGER IF EXISTS update_notifications_search_vector ON notifications;
+CREATE TRIGGER update_notifications_search_vector
+    BEFORE INSERT OR UPDATE OF title, message, data ON notifications
+    FOR EACH ROW
+    EXECUTE FUNCTION update_notifications_search_vector();
+
+-- Backfill existing rows without touching updated_at
+ALTER TABLE notifications DISABLE TRIGGER update_notifications_updated_at;
+UPDATE notifications SET search_vector = notifications_search_vector(title, message, data);
+ALTER TABLE notifications ENABLE TRIGGER update_notifications_updated_at;
+
+-- GIN index for @@ matches
+CREATE INDEX idx_notifications_search_vector ON notifications USING GIN (search_vector);
+
+COMMENT ON COLUMN notifications.search_vector IS 'Full-text search document (portuguese): title, message and user/teacher names and emails from data';
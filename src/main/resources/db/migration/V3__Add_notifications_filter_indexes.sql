@@ -0,0 +1,22 @@
+-- Migration to tune indexes for the filtered notifications query
+-- Created: 2026-10-19
+-- Description: Replaces the single-column and read-prefixed indexes with composite indexes matching
+--              GET /api/v1/notifications/filter (event types, time range, read state, newest first)
+
+-- read has two values, so idx_notifications_read is never selective enough to be used, and
+-- idx_notifications_read_timestamp duplicates the timestamp index for read = true rows that are not queried
+DROP INDEX IF EXISTS idx_notifications_read;
+DROP INDEX IF EXISTS idx_notifications_read_timestamp;
+-- Covered by the leading column of idx_notifications_type_timestamp
+DROP INDEX IF EXISTS idx_notifications_event_type;
+-- Replaced by idx_notifications_timestamp_id, which also covers the id tie-breaker of the sort
+DROP INDEX IF EXISTS idx_notifications_timestamp;
+
+-- Newest first, optionally bounded by a time range: ordered scan that stops at the LIMIT
+CREATE INDEX idx_notifications_timestamp_id ON notifications(timestamp DESC, id DESC);
+
+-- Event type filter (one or more types) with time range, newest first
+CREATE INDEX idx_notifications_type_timestamp ON notifications(event_type, timestamp DESC, id DESC);
+
+-- Unread notifications, newest first; only unread rows are indexed, so it stays small as notifications are read
+CREATE INDEX idx_notifications_unread_timestamp ON notifications(timestamp DESC, id DESC) WHERE read = false;
@@ -0,0 +1,18 @@
+-- Migration to create the notification_events table
+-- Created: 2026-10-19
+-- Description: Records the Kafka event IDs aggregated into digest notifications, so redelivered events
+--              are recognized as duplicates even though the digest has its own event_id
+
+CREATE TABLE notification_events (
+    event_id VARCHAR(255) PRIMARY KEY,
+    notification_id BIGINT NOT NULL REFERENCES notifications(id) ON DELETE CASCADE,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Lookup of the events behind a digest, and cascade deletes
+CREATE INDEX idx_notification_events_notification_id ON notification_events(notification_id);
+
+COMMENT ON TABLE notification_events IS 'Kafka events aggregated into digest notifications';
+COMMENT ON COLUMN notification_events.event_id IS 'Unique identifier from the Kafka event';
+COMMENT ON COLUMN notification_events.notification_id IS 'Digest notification the event was aggregated into';
+COMMENT ON COLUMN notification_events.created_at IS 'When the event was recorded';
@@ -0,0 +1,14 @@
+-- Migration to create the replication_heartbeat table
+-- Created: 2026-10-19
+-- Description: Single-row heartbeat written to the primary and read back from the read replica, to measure
+--              how far behind the replica is before routing read-only queries to it
+
+CREATE TABLE replication_heartbeat (
+    id SMALLINT PRIMARY KEY,
+    beat_at_ms BIGINT NOT NULL
+);
+
+INSERT INTO replication_heartbeat (id, beat_at_ms) VALUES (1, 0);
+
+COMMENT ON TABLE replication_heartbeat IS 'Replication lag probe for read-replica routing';
+COMMENT ON COLUMN replication_heartbeat.beat_at_ms IS 'Epoch milliseconds of the latest heartbeat written to the primary';
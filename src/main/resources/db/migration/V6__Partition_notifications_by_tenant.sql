@@ -0,0 +1,87 @@
+-- Migration to partition notifications by tenant (school)
+-- Created: 2026-10-19
+-- Description: Adds tenant_id to notifications and notification_events and rebuilds notifications as a table
+--              list-partitioned on tenant_id, one partition per school. Existing rows belong to the 'default'
+--              tenant. Partitions of new tenants are created by the service (TenantPartitions) before their
+--              first notification is written; rows of a tenant without a partition go to notifications_unassigned.
+
+-- The foreign key is recreated against the composite key of the partitioned table
+ALTER TABLE notification_events DROP CONSTRAINT notification_events_notification_id_fkey;
+
+-- The id sequence outlives the old table, so ids keep increasing across the migration
+ALTER SEQUENCE notifications_id_seq OWNED BY NONE;
+
+CREATE TABLE notifications_partitioned (
+    id BIGINT NOT NULL DEFAULT nextval('notifications_id_seq'),
+    tenant_id VARCHAR(32) NOT NULL,
+    event_id VARCHAR(255) NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    message TEXT NOT NULL,
+    data TEXT,
+    read BOOLEAN NOT NULL DEFAULT false,
+    timestamp TIMESTAMP WITH TIME ZONE NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    search_vector tsvector
+) PARTITION BY LIST (tenant_id);
+
+CREATE TABLE notifications_t_default PARTITION OF notifications_partitioned FOR VALUES IN ('default');
+CREATE TABLE notifications_unassigned PARTITION OF notifications_partitioned DEFAULT;
+
+-- Copied before any trigger exists, so search_vector and updated_at are kept as they are
+INSERT INTO notifications_partitioned (id, tenant_id, event_id, event_type, title, message, data, read, timestamp,
+                                       created_at, updated_at, search_vector)
+SELECT id, 'default', event_id, event_type, title, message, data, read, timestamp, created_at, updated_at, search_vector
+FROM notifications;
+
+DROP TABLE notifications;
+ALTER TABLE notifications_partitioned RENAME TO notifications;
+ALTER SEQUENCE notifications_id_seq OWNED BY notifications.id;
+
+-- Keys of a partitioned table must include the partition column. ids stay unique through the sequence;
+-- id leads, so a lookup by id alone still uses the index of every partition
+ALTER TABLE notifications ADD CONSTRAINT notifications_pkey PRIMARY KEY (id, tenant_id);
+ALTER TABLE notifications ADD CONSTRAINT notifications_event_id_key UNIQUE (event_id, tenant_id);
+
+-- Same indexes as before (V2, V3), created on every partition; queries filter on tenant_id, so the planner
+-- prunes to one partition and scans its index
+CREATE INDEX idx_notifications_timestamp_id ON notifications(timestamp DESC, id DESC);
+CREATE INDEX idx_notifications_type_timestamp ON notifications(event_type, timestamp DESC, id DESC);
+CREATE INDEX idx_notifications_unread_timestamp ON notifications(timestamp DESC, id DESC) WHERE read = false;
+CREATE INDEX idx_notifications_search_vector ON notifications USING GIN (search_vector);
+
+-- Triggers on the partitioned table are cloned to every partition, including the ones created later
+CREATE TRIGGER update_notifications_updated_at
+    BEFORE UPDATE ON notifications
+    FOR EACH ROW
+    EXECUTE FUNCTION update_updated_at_column();
+
+CREATE TRIGGER update_notifications_search_vector
+    BEFORE INSERT OR UPDATE OF title, message, data ON notifications
+    FOR EACH ROW
+    EXECUTE FUNCTION update_notifications_search_vector();
+
+-- Aggregated events belong to the tenant of their digest
+ALTER TABLE notification_events ADD COLUMN tenant_id VARCHAR(32) NOT NULL DEFAULT 'default';
+ALTER TABLE notification_events ALTER COLUMN tenant_id DROP DEFAULT;
+ALTER TABLE notification_events DROP CONSTRAINT notification_events_pkey;
+ALTER TABLE notification_events ADD CONSTRAINT notification_events_pkey PRIMARY KEY (event_id, tenant_id);
+ALTER TABLE notification_events ADD CONSTRAINT notification_events_notification_fkey
+    FOREIGN KEY (notification_id, tenant_id) REFERENCES notifications (id, tenant_id) ON DELETE CASCADE;
+
+-- Comments on table and columns
+COMMENT ON TABLE notifications IS 'Stores notifications from Kafka events for display in the frontend, list-partitioned by tenant';
+COMMENT ON COLUMN notifications.tenant_id IS 'Tenant (school) the notification belongs to';
+COMMENT ON COLUMN notifications.event_id IS 'Identifier from the Kafka event, unique per tenant';
+COMMENT ON COLUMN notifications.event_type IS 'Type of event (e.g., user.created, user.disabled, teacher.created)';
+COMMENT ON COLUMN notifications.title IS 'Notification title';
+COMMENT ON COLUMN notifications.message IS 'Notification message';
+COMMENT ON COLUMN notifications.data IS 'JSON string containing event data';
+COMMENT ON COLUMN notifications.read IS 'Whether the notification has been read';
+COMMENT ON COLUMN notifications.timestamp IS 'Timestamp from the original event';
+COMMENT ON COLUMN notifications.created_at IS 'When the notification was created in the database';
+COMMENT ON COLUMN notifications.updated_at IS 'When the notification was last updated';
+COMMENT ON COLUMN notifications.search_vector IS 'Full-text search document (portuguese): title, message and user/teacher names and emails from data';
+COMMENT ON TABLE notifications_unassigned IS 'Default partition: notifications of tenants without a partition of their own';
+COMMENT ON COLUMN notification_events.tenant_id IS 'Tenant (school) of the digest notification';
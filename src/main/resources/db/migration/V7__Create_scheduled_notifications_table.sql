@@ -0,0 +1,39 @@
+-- Migration to create the scheduled_notifications table
+-- Created: 2026-10-19
+-- Description: Notifications to publish at a future time (enrollment deadlines, class starts). A row is pending
+--              until its delivery: the transaction that saves the notification deletes it, so the table only
+--              ever holds what is still due and the scheduler (NotificationScheduler) loads it by deliver_at
+--              range, never with a full scan.
+
+CREATE TABLE scheduled_notifications (
+    id BIGSERIAL PRIMARY KEY,
+    tenant_id VARCHAR(32) NOT NULL,
+    event_id VARCHAR(255) NOT NULL,
+    event_type VARCHAR(100) NOT NULL,
+    title VARCHAR(255) NOT NULL,
+    message TEXT NOT NULL,
+    data TEXT,
+    deliver_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT scheduled_notifications_event_id_key UNIQUE (event_id, tenant_id)
+);
+
+-- Horizon loads walk this index from a (deliver_at, id) cursor
+CREATE INDEX idx_scheduled_notifications_deliver_at ON scheduled_notifications(deliver_at, id);
+
+-- Pending deliveries of one tenant, soonest first (GET /api/v1/notifications/scheduled)
+CREATE INDEX idx_scheduled_notifications_tenant_deliver_at ON scheduled_notifications(tenant_id, deliver_at, id);
+
+-- Queue table: rows are deleted from the low end of deliver_at as they are delivered, so vacuum early rather than
+-- let every load step over the dead index entries
+ALTER TABLE scheduled_notifications SET (autovacuum_vacuum_scale_factor = 0.01, autovacuum_vacuum_threshold = 1000);
+
+COMMENT ON TABLE scheduled_notifications IS 'Notifications pending delivery at a future time; deleted once delivered';
+COMMENT ON COLUMN scheduled_notifications.tenant_id IS 'Tenant (school) the notification belongs to';
+COMMENT ON COLUMN scheduled_notifications.event_id IS 'Event ID of the notification to create, unique per tenant';
+COMMENT ON COLUMN scheduled_notifications.event_type IS 'Type of the notification (e.g., reminder)';
+COMMENT ON COLUMN scheduled_notifications.title IS 'Notification title';
+COMMENT ON COLUMN scheduled_notifications.message IS 'Notification message';
+COMMENT ON COLUMN scheduled_notifications.data IS 'JSON string containing notification data';
+COMMENT ON COLUMN scheduled_notifications.deliver_at IS 'When the notification is due; it becomes its timestamp';
+COMMENT ON COLUMN scheduled_notifications.created_at IS 'When the notification was scheduled';
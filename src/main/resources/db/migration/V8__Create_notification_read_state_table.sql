@@ -0,0 +1,27 @@
+-- Migration to track read state per user
+-- Created: 2026-10-19
+-- Description: Replaces the global notifications.read flag, which marked a broadcast notification read for every
+--              user of the school as soon as one of them opened it. Each user's read notifications are stored as
+--              one compressed bitmap of notification IDs (Roaring, portable serialization) per tenant and user:
+--              a few bytes per read notification instead of one row each. Unread listings and counts are computed
+--              in the service from the bitmap and the tenant's IDs (NotificationReadStates, NotificationIdIndex).
+--              Existing read flags cannot be attributed to a user and are dropped.
+
+CREATE TABLE notification_read_state (
+    tenant_id VARCHAR(32) NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    read_ids BYTEA NOT NULL,
+    version BIGINT NOT NULL,
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (tenant_id, user_id)
+);
+
+-- Also drops idx_notifications_unread_timestamp, the partial index on read = false, from every partition
+ALTER TABLE notifications DROP COLUMN read;
+
+COMMENT ON TABLE notification_read_state IS 'Read notifications of each user, as a compressed bitmap of notification IDs';
+COMMENT ON COLUMN notification_read_state.tenant_id IS 'Tenant (school) of the notifications';
+COMMENT ON COLUMN notification_read_state.user_id IS 'Subject (sub claim) of the user';
+COMMENT ON COLUMN notification_read_state.read_ids IS 'Roaring64NavigableMap in portable serialization: IDs of the notifications the user has read';
+COMMENT ON COLUMN notification_read_state.version IS 'Incremented on every change; cached bitmaps are revalidated against it';
+COMMENT ON COLUMN notification_read_state.updated_at IS 'When the user last marked a notification read';
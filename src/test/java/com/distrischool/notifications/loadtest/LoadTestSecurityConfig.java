@@ -0,0 +1,85 @@
+package com.distrischool.notifications.loadtest;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Replaces the Auth0 issuer-based decoder with one backed by a local HMAC key,
+ * so the load harness can mint valid tokens without any network access.
+ * The decoder is {@link Primary}, so the WebSocket handshake interceptor picks it over the Auth0 one.
+ */
+@TestConfiguration
+public class LoadTestSecurityConfig {
+
+    static final String AUDIENCE = "https://api.distrischool.com";
+
+    private final SecretKey signingKey;
+
+    public LoadTestSecurityConfig() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.signingKey = new SecretKeySpec(secret, "HmacSHA256");
+    }
+
+    @Bean
+    @Primary
+    public JwtDecoder loadTestJwtDecoder() {
+        return NimbusJwtDecoder.withSecretKey(signingKey).macAlgorithm(MacAlgorithm.HS256).build();
+    }
+
+    @Bean
+    public TokenFactory loadTestTokenFactory() {
+        return new TokenFactory(signingKey);
+    }
+
+    /**
+     * Mints HS256 tokens with the same claims the Auth0 tokens carry (sub, email, name, aud).
+     */
+    public static class TokenFactory {
+
+        private final MACSigner signer;
+
+        TokenFactory(SecretKey key) {
+            try {
+                this.signer = new MACSigner(key);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public String token(int userIndex) {
+            Instant now = Instant.now();
+            JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                    .subject("auth0|loadtest-" + userIndex)
+                    .claim("email", "aluno" + userIndex + "@loadtest.distrischool.com")
+                    .claim("name", "Aluno " + userIndex)
+                    .audience(List.of(AUDIENCE))
+                    .issueTime(Date.from(now))
+                    .expirationTime(Date.from(now.plusSeconds(3600)))
+                    .build();
+            try {
+                SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+                jwt.sign(signer);
+                return jwt.serialize();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
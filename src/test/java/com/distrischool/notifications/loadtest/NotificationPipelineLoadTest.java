@@ -0,0 +1,370 @@
+package com.distrischool.notifications.loadtest;
+
+import com.distrischool.notifications.NotificationsApplication;
+import com.distrischool.notifications.websocket.NotificationProtocol.Encoding;
+import com.distrischool.notifications.websocket.ReactiveNotificationWebSocketServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end load harness: embedded Kafka -> real EventConsumer -> H2 -> WebSocket fan-out
+ * to simulated, JWT-authenticated clients. Runs on a single machine without network access.
+ *
+ * Excluded from the default build; run with:
+ * <pre>
+ * ./mvnw -Pload-test test -Dloadtest.clients=2000 -Dloadtest.events-per-second=200 -Dloadtest.duration-seconds=30
+ * </pre>
+ * Add {@code -Dspring.threads.virtual.enabled=true} to measure the virtual-thread execution mode,
+ * or {@code -Dwebsocket.transport=reactive} to connect the clients to the Reactor Netty transport.
+ * With {@code -Dloadtest.batch=true} the clients subscribe with {@code "batch":true} and receive coalesced frames;
+ * {@code -Dloadtest.encoding=cbor} negotiates the notifications.cbor subprotocol (binary frames).
+ * {@code -Dloadtest.urgent-every=50} makes every 50th event a {@code user.disabled} (urgent lane) and reports its
+ * latency apart from the rest of the load.
+ * Client and server share the JVM, so heap figures include both ends of every connection.
+ */
+@Tag("load")
+@SpringBootTest(classes = NotificationsApplication.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Import(LoadTestSecurityConfig.class)
+@ActiveProfiles("loadtest")
+@EmbeddedKafka(partitions = 1, topics = {"distrischool.auth.user.created", "teacher-events", "distrischool.events"})
+class NotificationPipelineLoadTest {
+
+    private static final int CLIENTS = Integer.getInteger("loadtest.clients", 1000);
+    private static final int EVENTS_PER_SECOND = Integer.getInteger("loadtest.events-per-second", 50);
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 20);
+    private static final int CONNECT_BATCH = Integer.getInteger("loadtest.connect-batch", 200);
+    private static final long DRAIN_TIMEOUT_SECONDS = Long.getLong("loadtest.drain-timeout-seconds", 120);
+    private static final String REPORT = System.getProperty("loadtest.report", "target/loadtest-report.txt");
+
+    private static final int URGENT_EVERY = Integer.getInteger("loadtest.urgent-every", 0);
+    private static final boolean BATCH = Boolean.getBoolean("loadtest.batch");
+    private static final boolean CBOR = "cbor".equalsIgnoreCase(System.getProperty("loadtest.encoding"));
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory());
+    private static final String SEQ_MARKER = "\"loadTestSeq\":";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectProvider<ReactiveNotificationWebSocketServer> reactiveServer;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private LoadTestSecurityConfig.TokenFactory tokens;
+
+    private final Recorder latencyRecorder = new Recorder(3);
+    private final Recorder urgentLatencyRecorder = new Recorder(3);
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final AtomicInteger welcomed = new AtomicInteger();
+    private volatile long[] sentAt;
+    private volatile long lastDeliveryNanos;
+
+    @Test
+    void pumpEventsToConnectedClients() throws Exception {
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            ContainerTestUtils.waitForAssignment(container, 3);
+        }
+
+        long heapBaseline = usedHeapAfterGc();
+        List<WebSocketSession> sessions = connectClients();
+        awaitCondition(() -> welcomed.get() >= CLIENTS, 60);
+        long heapConnected = usedHeapAfterGc();
+
+        int totalEvents = EVENTS_PER_SECOND * DURATION_SECONDS;
+        sentAt = new long[totalEvents];
+        KafkaTemplate<String, Map<String, Object>> template = kafkaTemplate();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTimeMillis();
+
+        long start = System.nanoTime();
+        long interval = TimeUnit.SECONDS.toNanos(1) / EVENTS_PER_SECOND;
+        for (int seq = 0; seq < totalEvents; seq++) {
+            long target = start + seq * interval;
+            long wait;
+            while ((wait = target - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Map<String, Object> event = event(seq);
+            sentAt[seq] = System.nanoTime();
+            template.send(topicFor(seq), (String) event.get("eventId"), event);
+        }
+        long produceEnd = System.nanoTime();
+
+        long expected = (long) totalEvents * sessions.size();
+        awaitCondition(() -> deliveries.sum() >= expected, DRAIN_TIMEOUT_SECONDS);
+        long end = lastDeliveryNanos;
+
+        String report = report(totalEvents, sessions.size(), start, produceEnd, end,
+                heapBaseline, heapConnected, gcCount() - gcCountBefore, gcTimeMillis() - gcTimeBefore);
+        System.out.println(report);
+        Path reportPath = Path.of(REPORT);
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        Files.writeString(reportPath, report);
+
+        for (WebSocketSession session : sessions) {
+            session.close(CloseStatus.GOING_AWAY);
+        }
+        template.destroy();
+
+        assertThat(sessions).hasSize(CLIENTS);
+        assertThat(deliveries.sum()).isEqualTo(expected);
+    }
+
+    private List<WebSocketSession> connectClients() throws Exception {
+        StandardWebSocketClient client = new StandardWebSocketClient();
+        List<WebSocketSession> sessions = new ArrayList<>(CLIENTS);
+        for (int batchStart = 0; batchStart < CLIENTS; batchStart += CONNECT_BATCH) {
+            List<CompletableFuture<WebSocketSession>> batch = new ArrayList<>();
+            for (int i = batchStart; i < Math.min(CLIENTS, batchStart + CONNECT_BATCH); i++) {
+                URI uri = URI.create("ws://localhost:" + webSocketPort() + "/ws/notifications?token=" + tokens.token(i));
+                WebSocketHttpHeaders headers = new WebSocketHttpHeaders();
+                if (CBOR) {
+                    headers.setSecWebSocketProtocol(Encoding.CBOR.subprotocol());
+                }
+                batch.add(client.execute(new LoadTestClient(), headers, uri));
+            }
+            for (CompletableFuture<WebSocketSession> future : batch) {
+                sessions.add(future.get(30, TimeUnit.SECONDS));
+            }
+        }
+        return sessions;
+    }
+
+    private KafkaTemplate<String, Map<String, Object>> kafkaTemplate() {
+        Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 0);
+        props.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props));
+    }
+
+    private static boolean urgent(int seq) {
+        return URGENT_EVERY > 0 && seq % URGENT_EVERY == URGENT_EVERY - 1;
+    }
+
+    private static String topicFor(int seq) {
+        return seq % 5 == 4 && !urgent(seq) ? "teacher-events" : "distrischool.auth.user.created";
+    }
+
+    private static Map<String, Object> event(int seq) {
+        boolean teacher = seq % 5 == 4 && !urgent(seq);
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("loadTestSeq", seq);
+        if (teacher) {
+            data.put("teacherName", "Professor " + seq);
+            data.put("teacherEmail", "professor" + seq + "@loadtest.distrischool.com");
+        } else {
+            data.put("userName", "Aluno " + seq);
+            data.put("userEmail", "aluno" + seq + "@loadtest.distrischool.com");
+            data.put("role", "STUDENT");
+        }
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("eventId", UUID.randomUUID().toString());
+        event.put("eventType", teacher ? "teacher.created" : urgent(seq) ? "user.disabled" : "user.created");
+        event.put("source", "loadtest");
+        event.put("version", "1.0");
+        event.put("timestamp", LocalDateTime.now(ZoneOffset.UTC).toString());
+        event.put("data", data);
+        return event;
+    }
+
+    private int webSocketPort() {
+        ReactiveNotificationWebSocketServer server = reactiveServer.getIfAvailable();
+        return server != null ? server.getPort() : port;
+    }
+
+    private String report(int events, int clients, long start, long produceEnd, long end,
+                          long heapBaseline, long heapConnected, long gcCount, long gcTimeMillis) {
+        Histogram histogram = latencyRecorder.getIntervalHistogram();
+        double produceSeconds = (produceEnd - start) / 1e9;
+        double deliverySeconds = (end - start) / 1e9;
+        Runtime runtime = Runtime.getRuntime();
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== Notifications load test ===\n");
+        sb.append(String.format("websocket transport    : %s%n",
+                reactiveServer.getIfAvailable() != null ? "reactive" : "servlet"));
+        sb.append(String.format("batching               : %s%n", BATCH ? "subscribe batch=true" : "off"));
+        sb.append(String.format("encoding               : %s%n", CBOR ? "cbor" : "json"));
+        sb.append(String.format("thread model           : %s%n",
+                Boolean.getBoolean("spring.threads.virtual.enabled") ? "virtual" : "platform"));
+        sb.append(String.format("clients                : %d%n", clients));
+        sb.append(String.format("events                 : %d (target %d/s for %ds)%n", events, EVENTS_PER_SECOND, DURATION_SECONDS));
+        sb.append(String.format("produce rate           : %.1f events/s%n", events / produceSeconds));
+        sb.append(String.format("deliveries             : %d%n", deliveries.sum()));
+        sb.append(String.format("delivery throughput    : %.1f notifications/s, %.1f frames/s, %.1f events/s%n",
+                deliveries.sum() / deliverySeconds, frames.sum() / deliverySeconds, events / deliverySeconds));
+        sb.append(URGENT_EVERY > 0 ? "non-urgent latency (ms): " : "delivery latency (ms)  : ");
+        sb.append(String.format("p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0));
+        if (URGENT_EVERY > 0) {
+            Histogram urgent = urgentLatencyRecorder.getIntervalHistogram();
+            sb.append(String.format("urgent events          : every %dth (user.disabled), %d deliveries%n",
+                    URGENT_EVERY, urgent.getTotalCount()));
+            sb.append(String.format("urgent latency (ms)    : p50=%.2f p90=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+                    urgent.getValueAtPercentile(50) / 1000.0,
+                    urgent.getValueAtPercentile(90) / 1000.0,
+                    urgent.getValueAtPercentile(99) / 1000.0,
+                    urgent.getValueAtPercentile(99.9) / 1000.0,
+                    urgent.getMaxValue() / 1000.0));
+        }
+        sb.append(String.format("heap baseline          : %.1f MB%n", heapBaseline / 1048576.0));
+        sb.append(String.format("heap with clients      : %.1f MB (%.1f KB per connection, client+server)%n",
+                heapConnected / 1048576.0, (heapConnected - heapBaseline) / 1024.0 / Math.max(1, clients)));
+        sb.append(String.format("heap after run         : %.1f MB used / %.1f MB committed / %.1f MB max%n",
+                (runtime.totalMemory() - runtime.freeMemory()) / 1048576.0,
+                runtime.totalMemory() / 1048576.0, runtime.maxMemory() / 1048576.0));
+        sb.append(String.format("gc during run          : %d collections, %d ms%n", gcCount, gcTimeMillis));
+        sb.append(String.format("platform threads       : %d live, %d peak%n",
+                ManagementFactory.getThreadMXBean().getThreadCount(),
+                ManagementFactory.getThreadMXBean().getPeakThreadCount()));
+        return sb.toString();
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        System.gc();
+        Thread.sleep(500);
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTimeMillis() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    private static void awaitCondition(java.util.function.BooleanSupplier condition, long timeoutSeconds)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    /**
+     * Simulated student client: records end-to-end latency for every notification frame.
+     */
+    private class LoadTestClient extends AbstractWebSocketHandler {
+
+        @Override
+        protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws IOException {
+            // CBOR frames are re-encoded as JSON so the same marker scan applies
+            byte[] payload = new byte[message.getPayloadLength()];
+            message.getPayload().get(payload);
+            handleTextMessage(session, new TextMessage(JSON_MAPPER.writeValueAsString(CBOR_MAPPER.readTree(payload))));
+        }
+
+        @Override
+        protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+            long now = System.nanoTime();
+            String payload = message.getPayload();
+            int marker = payload.indexOf(SEQ_MARKER);
+            if (marker < 0) {
+                if (payload.contains("\"welcome\"")) {
+                    if (BATCH) {
+                        byte[] subscribe = "{\"type\":\"subscribe\",\"batch\":true}".getBytes(StandardCharsets.UTF_8);
+                        session.sendMessage(CBOR
+                                ? new BinaryMessage(CBOR_MAPPER.writeValueAsBytes(JSON_MAPPER.readTree(subscribe)))
+                                : new TextMessage(subscribe));
+                    }
+                    welcomed.incrementAndGet();
+                }
+                return;
+            }
+            frames.increment();
+            // A batched notifications frame carries several sequence markers
+            while (marker >= 0) {
+                int seq = 0;
+                int i = marker + SEQ_MARKER.length();
+                for (; i < payload.length(); i++) {
+                    char c = payload.charAt(i);
+                    if (c < '0' || c > '9') {
+                        break;
+                    }
+                    seq = seq * 10 + (c - '0');
+                }
+                (urgent(seq) ? urgentLatencyRecorder : latencyRecorder)
+                        .recordValue(TimeUnit.NANOSECONDS.toMicros(now - sentAt[seq]));
+                deliveries.increment();
+                marker = payload.indexOf(SEQ_MARKER, i);
+            }
+            lastDeliveryNanos = now;
+        }
+
+        @Override
+        public void handleTransportError(WebSocketSession session, Throwable exception) throws IOException {
+            session.close(CloseStatus.SERVER_ERROR);
+        }
+    }
+}
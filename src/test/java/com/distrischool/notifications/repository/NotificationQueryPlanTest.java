@@ -0,0 +1,209 @@
+package com.distrischool.notifications.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * EXPLAIN checks for the filtered notifications query (see {@link NotificationSpecifications}).
+ *
+ * Runs the Flyway migrations against PostgreSQL, loads enough rows for the planner to prefer indexes, and
+ * asserts that every filter combination is served by an ordered index scan of the tenant's partition: no
+ * sequential scan, no sort before the LIMIT and no other partition. The statements have the shape Hibernate
+ * generates for the specification. Partition indexes are reported by the name of their parent index.
+ * Skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class NotificationQueryPlanTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final String SELECT = "SELECT * FROM notifications n WHERE n.tenant_id = 'default' ";
+    private static final String NEWEST_FIRST = " ORDER BY n.timestamp DESC, n.id DESC FETCH FIRST 50 ROWS ONLY";
+    // A user's read notifications, as the read state filters pass them: every 10th of the latest 10 000
+    private static final String READ_IDS = LongStream.rangeClosed(19_001, 20_000)
+            .map(i -> i * 10).mapToObj(Long::toString).collect(Collectors.joining(", "));
+    private static final String RANGE = "n.timestamp >= TIMESTAMPTZ '2026-02-01' AND n.timestamp < TIMESTAMPTZ '2026-02-08'";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @BeforeAll
+    static void migrateAndLoad() throws SQLException {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration")
+                .load()
+                .migrate();
+
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            // A second school with its own partition, as TenantPartitions creates it
+            statement.execute("CREATE TABLE notifications_t_escola_norte PARTITION OF notifications"
+                    + " FOR VALUES IN ('escola_norte')");
+            // 200k notifications of the default tenant and 50k of the other school over 8 event types,
+            // one per minute
+            statement.execute("""
+                    INSERT INTO notifications (tenant_id, event_id, event_type, title, message, data, timestamp)
+                    SELECT CASE WHEN g <= 200000 THEN 'default' ELSE 'escola_norte' END, 'evt-' || g,
+                           (ARRAY['user.created', 'user.disabled', 'teacher.created', 'student.created',
+                                  'course.updated', 'class.created', 'grade.posted', 'attendance.marked'])[1 + g % 8],
+                           'Título ' || g, 'Mensagem ' || g, '{"userName":"Aluno ' || g || '"}',
+                           TIMESTAMPTZ '2026-01-01' + g * INTERVAL '1 minute'
+                    FROM generate_series(1, 250000) g
+                    """);
+            statement.execute("ANALYZE notifications");
+        }
+    }
+
+    @Test
+    void unfilteredScansTimestampIndex() throws Exception {
+        Plan plan = explain(SELECT + NEWEST_FIRST);
+
+        assertOrderedIndexScan(plan);
+        assertThat(plan.indexes()).containsExactly("idx_notifications_timestamp_id");
+    }
+
+    @Test
+    void timeRangeScansTimestampIndex() throws Exception {
+        Plan plan = explain(SELECT + "AND " + RANGE + NEWEST_FIRST);
+
+        assertOrderedIndexScan(plan);
+        assertThat(plan.indexes()).containsExactly("idx_notifications_timestamp_id");
+    }
+
+    @Test
+    void unreadExcludesReadIdsFromTimestampIndex() throws Exception {
+        Plan plan = explain(SELECT + "AND n.id NOT IN (" + READ_IDS + ")" + NEWEST_FIRST);
+
+        assertOrderedIndexScan(plan);
+        assertThat(plan.indexes()).containsExactly("idx_notifications_timestamp_id");
+    }
+
+    @Test
+    void idBatchAvoidsSeqScan() throws Exception {
+        // Read (or unread) notifications beyond one query batch are fetched by ID, a batch at a time
+        Plan plan = explain(SELECT + "AND n.id IN (" + READ_IDS + ")" + NEWEST_FIRST);
+
+        assertThat(plan.nodeTypes()).as(plan.json()).doesNotContain("Seq Scan");
+        assertThat(plan.nodeTypes()).as(plan.json()).containsAnyOf("Index Scan", "Bitmap Index Scan");
+        assertThat(plan.relations()).as(plan.json()).containsOnly("notifications_t_default");
+    }
+
+    @Test
+    void eventTypeAndTimeRangeScanTypeIndex() throws Exception {
+        Plan plan = explain(SELECT + "AND n.event_type IN ('user.created') AND " + RANGE + NEWEST_FIRST);
+
+        assertOrderedIndexScan(plan);
+        assertThat(plan.indexes()).containsExactly("idx_notifications_type_timestamp");
+    }
+
+    @Test
+    void severalEventTypesAvoidSeqScanAndSort() throws Exception {
+        assertOrderedIndexScan(explain(SELECT + "AND n.event_type IN ('user.created', 'teacher.created')" + NEWEST_FIRST));
+        assertOrderedIndexScan(explain(SELECT + "AND n.event_type IN ('user.created', 'teacher.created') AND "
+                + RANGE + NEWEST_FIRST));
+    }
+
+    @Test
+    void allFiltersAvoidSeqScanAndSort() throws Exception {
+        assertOrderedIndexScan(explain(SELECT + "AND n.event_type IN ('user.created', 'teacher.created') AND "
+                + RANGE + " AND n.id NOT IN (" + READ_IDS + ")" + NEWEST_FIRST));
+    }
+
+    @Test
+    void otherTenantScansItsOwnPartition() throws Exception {
+        Plan plan = explain("SELECT * FROM notifications n WHERE n.tenant_id = 'escola_norte'" + NEWEST_FIRST);
+
+        assertThat(plan.nodeTypes()).as(plan.json()).doesNotContain("Seq Scan", "Sort", "Incremental Sort");
+        assertThat(plan.relations()).as(plan.json()).containsOnly("notifications_t_escola_norte");
+        assertThat(plan.indexes()).containsExactly("idx_notifications_timestamp_id");
+    }
+
+    @Test
+    void replacedIndexesAreGone() throws Exception {
+        try (Connection connection = connect(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT indexname FROM pg_indexes WHERE tablename = 'notifications'")) {
+            List<String> indexes = new ArrayList<>();
+            while (rs.next()) {
+                indexes.add(rs.getString(1));
+            }
+            assertThat(indexes).doesNotContain("idx_notifications_read", "idx_notifications_read_timestamp",
+                    "idx_notifications_unread_timestamp", "idx_notifications_event_type",
+                    "idx_notifications_timestamp");
+        }
+    }
+
+    private static void assertOrderedIndexScan(Plan plan) {
+        assertThat(plan.nodeTypes()).as(plan.json()).doesNotContain("Seq Scan", "Sort", "Incremental Sort");
+        assertThat(plan.nodeTypes()).as(plan.json()).containsAnyOf("Index Scan", "Index Only Scan");
+        assertThat(plan.relations()).as(plan.json()).containsOnly("notifications_t_default");
+    }
+
+    private static Plan explain(String sql) throws Exception {
+        try (Connection connection = connect(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("EXPLAIN (FORMAT JSON) " + sql)) {
+            rs.next();
+            String json = rs.getString(1);
+            Plan plan = new Plan(json, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+            collect(MAPPER.readTree(json).get(0).get("Plan"), plan);
+            plan.indexes().replaceAll(index -> parentIndex(connection, index));
+            return plan;
+        }
+    }
+
+    /**
+     * The partitioned index a partition's index belongs to, or the index itself.
+     */
+    private static String parentIndex(Connection connection, String index) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT p.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid"
+                        + " JOIN pg_class p ON p.oid = i.inhparent WHERE c.relname = ?")) {
+            statement.setString(1, index);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getString(1) : index;
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void collect(JsonNode node, Plan plan) {
+        plan.nodeTypes().add(node.get("Node Type").asText());
+        if (node.has("Index Name")) {
+            plan.indexes().add(node.get("Index Name").asText());
+        }
+        if (node.has("Relation Name")) {
+            plan.relations().add(node.get("Relation Name").asText());
+        }
+        if (node.has("Plans")) {
+            for (JsonNode child : node.get("Plans")) {
+                collect(child, plan);
+            }
+        }
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    }
+
+    private record Plan(String json, List<String> nodeTypes, List<String> indexes, List<String> relations) {
+    }
+}
@@ -0,0 +1,184 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.repository.NotificationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link NotificationIdIndex} over an in-memory notification table: {@code findIdsAfter} answers from
+ * {@code rows} the way the repository query does (tenant, ID above the cursor, ascending, limited).
+ */
+class NotificationIdIndexTest {
+
+    private static final String TENANT = "escola_norte";
+
+    private final NotificationRepository repository = mock(NotificationRepository.class);
+    private final NotificationReadStateProperties properties = new NotificationReadStateProperties();
+    private final List<Row> rows = new ArrayList<>();
+    private NotificationIdIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findIdsAfter(anyString(), anyLong(), any(Limit.class))).thenAnswer(invocation -> {
+            String tenant = invocation.getArgument(0);
+            long after = invocation.getArgument(1);
+            int max = invocation.<Limit>getArgument(2).max();
+            return rows.stream()
+                    .filter(row -> row.tenant().equals(tenant) && row.id() > after)
+                    .sorted((a, b) -> Long.compare(a.id(), b.id()))
+                    .limit(max)
+                    .map(row -> new Object[] {row.id(), row.createdAt()})
+                    .toList();
+        });
+        // Every refresh reads the table, unless a test says otherwise
+        properties.setIdRefreshMs(0);
+        index = new NotificationIdIndex(repository, properties);
+    }
+
+    @Test
+    void unreadIsTheTenantsIdsMinusTheReadOnes() {
+        for (long id = 1; id <= 10; id++) {
+            insert(TENANT, id, settled());
+        }
+        ReadState readState = ReadState.NONE.with(2, 1, 1).with(5, 2, 2).with(99, 3, 3);
+
+        assertThat(index.unreadCount(TENANT, readState)).isEqualTo(8);
+        assertThat(index.unread(TENANT, readState).toArray()).containsExactly(1, 3, 4, 6, 7, 8, 9, 10);
+        assertThat(index.unreadCount(TENANT, ReadState.NONE)).isEqualTo(10);
+    }
+
+    @Test
+    void tenantsAreIndexedSeparately() {
+        insert(TENANT, 1, settled());
+        insert("escola_sul", 2, settled());
+        insert("escola_sul", 3, settled());
+
+        assertThat(index.unread(TENANT, ReadState.NONE).toArray()).containsExactly(1);
+        assertThat(index.unread("escola_sul", ReadState.NONE).toArray()).containsExactly(2, 3);
+    }
+
+    @Test
+    void unreadBitmapBelongsToTheCaller() {
+        insert(TENANT, 1, settled());
+        insert(TENANT, 2, settled());
+
+        Roaring64NavigableMap unread = index.unread(TENANT, ReadState.NONE);
+        unread.removeLong(1);
+
+        assertThat(index.unreadCount(TENANT, ReadState.NONE)).isEqualTo(2);
+    }
+
+    @Test
+    void notificationsPersistedHereAreAddedWithoutARefresh() {
+        insert(TENANT, 1, settled());
+        index.load(TENANT);
+
+        index.added(TENANT, 2);
+
+        assertThat(index.unread(TENANT, ReadState.NONE).toArray()).containsExactly(1, 2);
+    }
+
+    @Test
+    void notificationAddedBeforeTheFirstLoadIsReadByIt() {
+        index.added(TENANT, 1);
+        verify(repository, never()).findIdsAfter(anyString(), anyLong(), any(Limit.class));
+
+        insert(TENANT, 1, settled());
+        assertThat(index.unreadCount(TENANT, ReadState.NONE)).isEqualTo(1);
+    }
+
+    @Test
+    void refreshReadsNotificationsPersistedByOtherInstances() {
+        insert(TENANT, 1, settled());
+        index.load(TENANT);
+
+        insert(TENANT, 2, settled());
+        index.refresh(TENANT);
+
+        assertThat(index.unread(TENANT, ReadState.NONE).toArray()).containsExactly(1, 2);
+    }
+
+    @Test
+    void refreshPicksUpAnIdCommittedAfterAHigherOne() {
+        insert(TENANT, 1, settled());
+        // 3 committed first; 2 was drawn earlier but is still in flight
+        insert(TENANT, 3, LocalDateTime.now(ZoneOffset.UTC));
+        index.load(TENANT);
+        assertThat(index.unread(TENANT, ReadState.NONE).toArray()).containsExactly(1, 3);
+
+        insert(TENANT, 2, LocalDateTime.now(ZoneOffset.UTC));
+        index.refresh(TENANT);
+
+        assertThat(index.unread(TENANT, ReadState.NONE).toArray()).containsExactly(1, 2, 3);
+        // Read again from the last settled ID, 1, so 3 (still recent) is re-read too
+        verify(repository, atLeastOnce()).findIdsAfter(TENANT, 1L, Limit.of(50_000));
+    }
+
+    @Test
+    void refreshResumesAfterTheSettledIds() {
+        for (long id = 1; id <= 5; id++) {
+            insert(TENANT, id, settled());
+        }
+        index.load(TENANT);
+
+        index.refresh(TENANT);
+
+        verify(repository).findIdsAfter(TENANT, 0L, Limit.of(50_000));
+        verify(repository).findIdsAfter(TENANT, 5L, Limit.of(50_000));
+    }
+
+    @Test
+    void refreshesAreRateLimited() {
+        properties.setIdRefreshMs(60_000);
+        insert(TENANT, 1, settled());
+        index.load(TENANT);
+
+        insert(TENANT, 2, settled());
+        index.refresh(TENANT);
+
+        assertThat(index.unreadCount(TENANT, ReadState.NONE)).isEqualTo(1);
+    }
+
+    @Test
+    void loadsLargeTenantsPageByPage() {
+        for (long id = 1; id <= 120_000; id++) {
+            insert(TENANT, id, settled());
+        }
+
+        assertThat(index.unreadCount(TENANT, ReadState.NONE)).isEqualTo(120_000);
+        verify(repository).findIdsAfter(TENANT, 50_000L, Limit.of(50_000));
+        verify(repository).findIdsAfter(TENANT, 100_000L, Limit.of(50_000));
+    }
+
+    private void insert(String tenant, long id, LocalDateTime createdAt) {
+        rows.add(new Row(tenant, id, createdAt));
+    }
+
+    /**
+     * A creation time older than {@code id-settle-ms}.
+     */
+    private LocalDateTime settled() {
+        return LocalDateTime.now(ZoneOffset.UTC).minus(Duration.ofMillis(properties.getIdSettleMs() + 60_000));
+    }
+
+    private record Row(String tenant, long id, LocalDateTime createdAt) {
+    }
+}
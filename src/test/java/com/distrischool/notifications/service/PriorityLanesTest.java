@@ -0,0 +1,168 @@
+package com.distrischool.notifications.service;
+
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import com.distrischool.notifications.metrics.NotificationMetrics.LaneStage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pick order of {@link PriorityLanes} with one worker. Each test first blocks the worker on a gate item, queues
+ * its items while the worker is held, then releases it, so the order handled is decided by the scheduling alone.
+ */
+class PriorityLanesTest {
+
+    private static final String GATE = "gate";
+
+    private final CountDownLatch gateTaken = new CountDownLatch(1);
+    private final CountDownLatch gateOpen = new CountDownLatch(1);
+    private final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+    private PriorityLanes<String> lanes;
+
+    @AfterEach
+    void shutdown() {
+        gateOpen.countDown();
+        if (lanes != null) {
+            lanes.shutdown();
+        }
+    }
+
+    @Test
+    void busyLanesArePickedInProportionToTheirWeights() throws InterruptedException {
+        start(3, 2, 1);
+        queue(NotificationPriority.URGENT, 30);
+        queue(NotificationPriority.NORMAL, 30);
+        queue(NotificationPriority.BULK, 30);
+        List<NotificationPriority> order = drain(90);
+
+        // While all three hold work, every round of total weight (6) picks has each lane weight times
+        for (int round = 0; round < 5; round++) {
+            List<NotificationPriority> picks = order.subList(round * 6, round * 6 + 6);
+            assertThat(Collections.frequency(picks, NotificationPriority.URGENT)).isEqualTo(3);
+            assertThat(Collections.frequency(picks, NotificationPriority.NORMAL)).isEqualTo(2);
+            assertThat(Collections.frequency(picks, NotificationPriority.BULK)).isEqualTo(1);
+        }
+        // Smooth: the heaviest lane never gets a run longer than its share allows
+        assertThat(order.subList(0, 6)).containsExactly(NotificationPriority.URGENT, NotificationPriority.NORMAL,
+                NotificationPriority.URGENT, NotificationPriority.BULK, NotificationPriority.NORMAL,
+                NotificationPriority.URGENT);
+    }
+
+    @Test
+    void lightestLaneIsNotStarvedByAFloodOfUrgentWork() throws InterruptedException {
+        NotificationPriorityProperties properties = new NotificationPriorityProperties();
+        start(properties);
+        queue(NotificationPriority.URGENT, 200);
+        queue(NotificationPriority.BULK, 5);
+        List<NotificationPriority> order = drain(205);
+
+        // Weights 8 and 1: at least one bulk pick every 9
+        int total = properties.getUrgent().getWeight() + properties.getBulk().getWeight();
+        List<Integer> bulkPicks = new ArrayList<>();
+        for (int i = 0; i < order.size(); i++) {
+            if (order.get(i) == NotificationPriority.BULK) {
+                bulkPicks.add(i);
+            }
+        }
+        assertThat(bulkPicks).hasSize(5);
+        assertThat(bulkPicks.get(0)).isLessThan(total);
+        for (int i = 1; i < bulkPicks.size(); i++) {
+            assertThat(bulkPicks.get(i) - bulkPicks.get(i - 1)).isLessThanOrEqualTo(total);
+        }
+    }
+
+    @Test
+    void itemsOfOneLaneKeepTheirOrder() throws InterruptedException {
+        start(3, 2, 1);
+        queue(NotificationPriority.NORMAL, 10);
+        drain(10);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            expected.add("NORMAL-" + i);
+        }
+        assertThat(handled.subList(1, 11)).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void shutdownDrainsQueuedItemsAndHandlesLaterOnesInline() throws InterruptedException {
+        start(3, 2, 1);
+        queue(NotificationPriority.BULK, 5);
+        gateOpen.countDown();
+        lanes.shutdown();
+        assertThat(handled).hasSize(6);
+
+        lanes.submit(NotificationPriority.URGENT, "late");
+        assertThat(handled).last().isEqualTo("late");
+    }
+
+    private void start(int urgent, int normal, int bulk) throws InterruptedException {
+        NotificationPriorityProperties properties = new NotificationPriorityProperties();
+        properties.getUrgent().setWeight(urgent);
+        properties.getNormal().setWeight(normal);
+        properties.getBulk().setWeight(bulk);
+        start(properties);
+    }
+
+    private void start(NotificationPriorityProperties properties) throws InterruptedException {
+        lanes = new PriorityLanes<>("test-lanes", LaneStage.PERSIST, properties, 1,
+                new NotificationMetrics(new SimpleMeterRegistry()), this::handle);
+        lanes.submit(NotificationPriority.NORMAL, GATE);
+        assertThat(gateTaken.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private void handle(String item) {
+        handled.add(item);
+        if (item.equals(GATE)) {
+            gateTaken.countDown();
+            await(gateOpen);
+        }
+    }
+
+    private void queue(NotificationPriority priority, int count) {
+        for (int i = 0; i < count; i++) {
+            lanes.submit(priority, priority.name() + "-" + i);
+        }
+    }
+
+    /**
+     * Releases the worker and returns the lanes of the next {@code count} items it handles.
+     */
+    private List<NotificationPriority> drain(int count) throws InterruptedException {
+        gateOpen.countDown();
+        awaitHandled(count + 1);
+        return priorities(handled.subList(1, count + 1));
+    }
+
+    private void awaitHandled(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (handled.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(handled).hasSizeGreaterThanOrEqualTo(count);
+    }
+
+    private static List<NotificationPriority> priorities(List<String> items) {
+        List<NotificationPriority> priorities = new ArrayList<>();
+        for (String item : items) {
+            priorities.add(NotificationPriority.valueOf(item.substring(0, item.indexOf('-'))));
+        }
+        return priorities;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.distrischool.notifications.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Marks and bitmap round-trips of {@link ReadState}, as {@code notification_read_state} stores them.
+ */
+class ReadStateTest {
+
+    @Test
+    void emptyStateRoundTrips() {
+        ReadState restored = ReadState.deserialize(ReadState.NONE.serialize(), 0, 0);
+
+        assertThat(restored.count()).isZero();
+        assertThat(restored.isRead(1)).isFalse();
+    }
+
+    @Test
+    void marksRoundTripWithTheirVersionAndTime() {
+        ReadState state = ReadState.NONE
+                .with(7, 1, 1_000)
+                .with(3, 2, 2_000)
+                .with(1_000_000, 3, 3_000);
+
+        ReadState restored = ReadState.deserialize(state.serialize(), state.version(), state.lastModified());
+
+        assertThat(restored.count()).isEqualTo(3);
+        assertThat(restored.isRead(3)).isTrue();
+        assertThat(restored.isRead(7)).isTrue();
+        assertThat(restored.isRead(1_000_000)).isTrue();
+        assertThat(restored.isRead(4)).isFalse();
+        assertThat(restored.version()).isEqualTo(3);
+        assertThat(restored.lastModified()).isEqualTo(3_000);
+    }
+
+    @Test
+    void runsSparseIdsAndIdsBeyondThirtyTwoBitsRoundTrip() {
+        ReadState state = ReadState.NONE;
+        long version = 0;
+        // A run, scattered IDs and IDs in the second 32-bit range, which sit in another Roaring bucket
+        for (long id = 10_000; id < 20_000; id++) {
+            state = state.with(id, ++version, version);
+        }
+        for (long id = 100_000; id < 1_000_000; id += 997) {
+            state = state.with(id, ++version, version);
+        }
+        long high = (1L << 32) + 5;
+        state = state.with(high, ++version, version).with(high + 1, ++version, version);
+
+        byte[] bytes = state.serialize();
+        ReadState restored = ReadState.deserialize(bytes, state.version(), state.lastModified());
+
+        assertThat(restored.count()).isEqualTo(state.count());
+        assertThat(restored.ids()).isEqualTo(state.ids());
+        assertThat(restored.isRead(high + 1)).isTrue();
+        assertThat(restored.isRead(1L << 32)).isFalse();
+        // Serialization is deterministic, so a re-save of an unchanged state writes the same bytes
+        assertThat(restored.serialize()).isEqualTo(bytes);
+        // The run is compressed: far less than the 8 bytes per ID of a plain array
+        assertThat(bytes.length).isLessThan((int) state.count());
+    }
+
+    @Test
+    void markLeavesTheOriginalStateUnchanged() {
+        ReadState before = ReadState.NONE.with(1, 1, 100);
+        ReadState after = before.with(2, 2, 200);
+
+        assertThat(before.isRead(2)).isFalse();
+        assertThat(before.count()).isEqualTo(1);
+        assertThat(after.isRead(1)).isTrue();
+        assertThat(after.isRead(2)).isTrue();
+        assertThat(ReadState.NONE.count()).isZero();
+    }
+
+    @Test
+    void markingAReadNotificationAgainKeepsTheCount() {
+        ReadState state = ReadState.NONE.with(5, 1, 100).with(5, 2, 200);
+
+        assertThat(state.count()).isEqualTo(1);
+    }
+
+    @Test
+    void malformedBytesAreRejected() {
+        byte[] truncated = Arrays.copyOf(ReadState.NONE.with(42, 1, 1).serialize(), 6);
+
+        assertThatThrownBy(() -> ReadState.deserialize(truncated, 1, 1))
+                .isInstanceOf(UncheckedIOException.class);
+    }
+}
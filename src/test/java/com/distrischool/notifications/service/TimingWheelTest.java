@@ -0,0 +1,168 @@
+package com.distrischool.notifications.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Firing times of {@link TimingWheel}. The wheels here have 8 buckets of 10 ms, so the levels span 80 ms, 640 ms,
+ * 5.12 s, ...: short enough that most deadlines go through several cascades.
+ */
+class TimingWheelTest {
+
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    private final TimingWheel<String> wheel = new TimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    void firesOnTheFirstAdvancePastTheEndOfItsTick() {
+        wheel.add(25, "a");
+
+        wheel.advance(25, fired::add);
+        wheel.advance(29, fired::add);
+        assertThat(fired).isEmpty();
+
+        wheel.advance(30, fired::add);
+        assertThat(fired).containsExactly("a");
+    }
+
+    @Test
+    void rejectsDeadlinesBeforeTheCurrentTick() {
+        wheel.advance(100, fired::add);
+
+        assertThat(wheel.add(99, "late")).isFalse();
+        assertThat(wheel.add(100, "now")).isTrue();
+        wheel.advance(1000, fired::add);
+        assertThat(fired).containsExactly("now");
+    }
+
+    @Test
+    void firesInDeadlineOrderAcrossTicksAndLevels() {
+        wheel.add(3000, "level 2");
+        wheel.add(75, "level 0, late");
+        wheel.add(15, "level 0, early");
+        wheel.add(500, "level 1");
+
+        // One advance over the whole span still hands the items out tick by tick
+        wheel.advance(10_000, fired::add);
+
+        assertThat(fired).containsExactly("level 0, early", "level 0, late", "level 1", "level 2");
+    }
+
+    @Test
+    void itemsOfTheSameTickFireInInsertionOrder() {
+        wheel.add(1207, "first");
+        wheel.add(1201, "second");
+        wheel.add(1209, "third");
+
+        wheel.advance(2000, fired::add);
+
+        assertThat(fired).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    void cascadedItemsFireNeitherEarlyNorMoreThanOneTickLate() {
+        Map<String, Long> deadlines = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            long deadline = random.nextInt(50_000);
+            deadlines.put("item-" + i, deadline);
+            wheel.add(deadline, "item-" + i);
+        }
+
+        Map<String, Long> firedAt = advanceMillisByMillis(50_000 + TICK_MS);
+
+        assertThat(firedAt).hasSameSizeAs(deadlines);
+        deadlines.forEach((item, deadline) ->
+                assertThat(firedAt.get(item)).as(item).isEqualTo(endOfTick(deadline)));
+    }
+
+    @Test
+    void deadlinesBeyondEveryLevelSoFarGrowMoreLevels() {
+        // Past 5 levels (327 s at this size)
+        long farAway = 1_000_003;
+        wheel.add(farAway, "far");
+        wheel.add(40, "near");
+
+        Map<String, Long> firedAt = advanceMillisByMillis(farAway + TICK_MS);
+
+        assertThat(firedAt).containsEntry("near", 40L + TICK_MS).containsEntry("far", endOfTick(farAway));
+    }
+
+    @Test
+    void addsRelativeToAStartBetweenTicks() {
+        TimingWheel<String> late = new TimingWheel<>(TICK_MS, WHEEL_SIZE, 1234);
+        // The first tick started at 1230, so its end is the earliest firing time
+        assertThat(late.add(1231, "same tick")).isTrue();
+        late.add(1234 + 5000, "cascaded");
+
+        late.advance(1239, fired::add);
+        assertThat(fired).isEmpty();
+        late.advance(1240, fired::add);
+        assertThat(fired).containsExactly("same tick");
+
+        late.advance(1234 + 5000 + TICK_MS, fired::add);
+        assertThat(fired).containsExactly("same tick", "cascaded");
+    }
+
+    @Test
+    void removedItemsNeverFire() {
+        wheel.add(55, "level 0");
+        wheel.add(700, "level 1");
+        wheel.add(20_000, "level 3");
+        wheel.add(700, "kept");
+
+        assertThat(wheel.remove(55, "level 0")).isTrue();
+        assertThat(wheel.remove(700, "level 1")).isTrue();
+        assertThat(wheel.remove(20_000, "level 3")).isTrue();
+        wheel.advance(30_000, fired::add);
+
+        assertThat(fired).containsExactly("kept");
+    }
+
+    @Test
+    void removesItemsAfterTheyCascaded() {
+        wheel.add(6000, "cascaded");
+        // Past its overflow bucket's start: now in a lower level
+        wheel.advance(5990, fired::add);
+
+        assertThat(wheel.remove(6000, "cascaded")).isTrue();
+        wheel.advance(10_000, fired::add);
+        assertThat(fired).isEmpty();
+    }
+
+    @Test
+    void removeReportsItemsTheWheelDoesNotHold() {
+        wheel.add(55, "a");
+
+        assertThat(wheel.remove(56, "a")).isFalse();
+        assertThat(wheel.remove(55, "b")).isFalse();
+        wheel.advance(60, fired::add);
+        assertThat(wheel.remove(55, "a")).isFalse();
+        assertThat(fired).containsExactly("a");
+    }
+
+    /**
+     * Advances one millisecond at a time, returning when each item fired.
+     */
+    private Map<String, Long> advanceMillisByMillis(long untilMs) {
+        Map<String, Long> firedAt = new HashMap<>();
+        for (long now = 1; now <= untilMs; now++) {
+            long at = now;
+            wheel.advance(now, item -> firedAt.put(item, at));
+        }
+        return firedAt;
+    }
+
+    private static long endOfTick(long deadlineMs) {
+        return deadlineMs - deadlineMs % TICK_MS + TICK_MS;
+    }
+}
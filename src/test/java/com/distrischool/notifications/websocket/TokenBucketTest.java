@@ -0,0 +1,86 @@
+package com.distrischool.notifications.websocket;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link TokenBucket} on a manual clock.
+ */
+class TokenBucketTest {
+
+    private long nowNanos = 1_000;
+
+    @Test
+    void startsFullAndAllowsABurstOfItsCapacity() {
+        TokenBucket bucket = new TokenBucket(5, 10, () -> nowNanos);
+
+        assertThat(consumeAll(bucket)).isEqualTo(10);
+    }
+
+    @Test
+    void refillsContinuouslyAtItsRate() {
+        TokenBucket bucket = new TokenBucket(5, 10, () -> nowNanos);
+        consumeAll(bucket);
+
+        // 5 per second: one token every 200 ms
+        elapse(199);
+        assertThat(bucket.tryConsume()).isFalse();
+        elapse(1);
+        assertThat(bucket.tryConsume()).isTrue();
+        assertThat(bucket.tryConsume()).isFalse();
+
+        elapse(1000);
+        assertThat(consumeAll(bucket)).isEqualTo(5);
+    }
+
+    @Test
+    void keepsFractionalRefillAcrossCalls() {
+        TokenBucket bucket = new TokenBucket(5, 10, () -> nowNanos);
+        consumeAll(bucket);
+
+        // Each rejected call still credits the time since the previous one
+        for (int i = 0; i < 3; i++) {
+            elapse(50);
+            assertThat(bucket.tryConsume()).isFalse();
+        }
+        elapse(50);
+        assertThat(bucket.tryConsume()).isTrue();
+    }
+
+    @Test
+    void neverHoldsMoreThanItsCapacity() {
+        TokenBucket bucket = new TokenBucket(5, 10, () -> nowNanos);
+        consumeAll(bucket);
+
+        elapse(TimeUnit.HOURS.toMillis(1));
+
+        assertThat(consumeAll(bucket)).isEqualTo(10);
+    }
+
+    @Test
+    void rejectedCallsDoNotConsume() {
+        TokenBucket bucket = new TokenBucket(5, 1, () -> nowNanos);
+        assertThat(bucket.tryConsume()).isTrue();
+        for (int i = 0; i < 100; i++) {
+            assertThat(bucket.tryConsume()).isFalse();
+        }
+
+        elapse(200);
+        assertThat(bucket.tryConsume()).isTrue();
+    }
+
+    private void elapse(long millis) {
+        nowNanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static int consumeAll(TokenBucket bucket) {
+        int consumed = 0;
+        while (bucket.tryConsume()) {
+            consumed++;
+        }
+        return consumed;
+    }
+}
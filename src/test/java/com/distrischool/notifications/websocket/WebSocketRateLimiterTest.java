@@ -0,0 +1,135 @@
+package com.distrischool.notifications.websocket;
+
+import com.distrischool.notifications.metrics.NotificationMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Admission of inbound frames by {@link WebSocketRateLimiter}. Rates are low enough that no bucket refills within
+ * a test: a connection admits {@code SESSION_BURST} frames, a user {@code USER_BURST} over all their connections.
+ */
+class WebSocketRateLimiterTest {
+
+    private static final double RATE = 0.001;
+    private static final int SESSION_BURST = 3;
+    private static final int USER_BURST = 5;
+    private static final int MAX_FRAME_BYTES = 100;
+    private static final int MAX_VIOLATIONS = 4;
+    private static final BooleanSupplier KNOWN = () -> true;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final WebSocketRateLimiter limiter = new WebSocketRateLimiter(new NotificationMetrics(registry),
+            RATE, SESSION_BURST, RATE, USER_BURST, MAX_FRAME_BYTES, MAX_VIOLATIONS);
+
+    @Test
+    void connectionAdmitsItsBurstThenDropsForRate() {
+        WebSocketRateLimiter.ConnectionLimit connection = limiter.open("user-1");
+
+        assertThat(admitted(connection, 10)).isEqualTo(SESSION_BURST);
+        assertThat(dropped("rate")).isEqualTo(10 - SESSION_BURST);
+    }
+
+    @Test
+    void userBucketIsSharedByTheirConnections() {
+        WebSocketRateLimiter.ConnectionLimit first = limiter.open("user-1");
+        WebSocketRateLimiter.ConnectionLimit second = limiter.open("user-1");
+        WebSocketRateLimiter.ConnectionLimit otherUser = limiter.open("user-2");
+
+        assertThat(admitted(first, 10) + admitted(second, 10)).isEqualTo(USER_BURST);
+        assertThat(admitted(otherUser, 10)).isEqualTo(SESSION_BURST);
+    }
+
+    @Test
+    void anonymousConnectionsOnlyHaveTheirOwnBucket() {
+        WebSocketRateLimiter.ConnectionLimit first = limiter.open(null);
+        WebSocketRateLimiter.ConnectionLimit second = limiter.open(null);
+
+        assertThat(admitted(first, 10) + admitted(second, 10)).isEqualTo(2 * SESSION_BURST);
+        first.close();
+    }
+
+    @Test
+    void oversizedAndUnknownFramesAreDropped() {
+        WebSocketRateLimiter.ConnectionLimit connection = limiter.open("user-1");
+
+        assertThat(connection.admit(MAX_FRAME_BYTES + 1, KNOWN)).isFalse();
+        assertThat(connection.admit(10, () -> false)).isFalse();
+        assertThat(connection.admit(MAX_FRAME_BYTES, KNOWN)).isTrue();
+
+        assertThat(dropped("size")).isEqualTo(1);
+        assertThat(dropped("type")).isEqualTo(1);
+    }
+
+    @Test
+    void typeCheckRunsOnlyForFramesThatPassedTheOtherLimits() {
+        WebSocketRateLimiter.ConnectionLimit connection = limiter.open("user-1");
+        AtomicInteger checks = new AtomicInteger();
+        BooleanSupplier counted = () -> checks.incrementAndGet() > 0;
+
+        connection.admit(MAX_FRAME_BYTES + 1, counted);
+        connection.admit(10, counted);
+        connection.admit(10, counted);
+        // Bucket empty from here on
+        connection.admit(10, counted);
+
+        assertThat(checks).hasValue(2);
+    }
+
+    @Test
+    void connectionIsAbusiveAfterConsecutiveDropsOnly() {
+        // Dropped frames use tokens too: buckets large enough that only the size check drops
+        WebSocketRateLimiter.ConnectionLimit connection = new WebSocketRateLimiter(new NotificationMetrics(registry),
+                RATE, 100, RATE, 100, MAX_FRAME_BYTES, MAX_VIOLATIONS).open("user-1");
+
+        for (int i = 0; i < MAX_VIOLATIONS - 1; i++) {
+            connection.admit(MAX_FRAME_BYTES + 1, KNOWN);
+        }
+        assertThat(connection.isAbusive()).isFalse();
+        // An accepted frame starts the count over
+        connection.admit(10, KNOWN);
+        connection.admit(MAX_FRAME_BYTES + 1, KNOWN);
+        assertThat(connection.isAbusive()).isFalse();
+
+        for (int i = 0; i < MAX_VIOLATIONS - 1; i++) {
+            connection.admit(MAX_FRAME_BYTES + 1, KNOWN);
+        }
+        assertThat(connection.isAbusive()).isTrue();
+    }
+
+    @Test
+    void userBucketIsReleasedWithTheirLastConnection() {
+        WebSocketRateLimiter.ConnectionLimit first = limiter.open("user-1");
+        WebSocketRateLimiter.ConnectionLimit second = limiter.open("user-1");
+        admitted(first, SESSION_BURST);
+        admitted(second, 10);
+
+        first.close();
+        first.close();
+        // Still held by the second connection, whose frames used it up
+        WebSocketRateLimiter.ConnectionLimit third = limiter.open("user-1");
+        assertThat(admitted(third, 10)).isZero();
+
+        second.close();
+        third.close();
+        assertThat(admitted(limiter.open("user-1"), 10)).isEqualTo(SESSION_BURST);
+    }
+
+    private static int admitted(WebSocketRateLimiter.ConnectionLimit connection, int frames) {
+        int admitted = 0;
+        for (int i = 0; i < frames; i++) {
+            if (connection.admit(10, KNOWN)) {
+                admitted++;
+            }
+        }
+        return admitted;
+    }
+
+    private double dropped(String reason) {
+        return registry.get("notifications.websocket.inbound.dropped").tag("reason", reason).counter().count();
+    }
+}
@@ -0,0 +1,129 @@
+package com.distrischool.template.kafka;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Offsets acknowledged by {@link EventOffsetTracker} as records complete out of order and partitions move.
+ * Each record's acknowledgment appends its offset to {@code acknowledged}, which stands for the commit.
+ */
+class EventOffsetTrackerTest {
+
+    private static final String TOPIC = "distrischool.events";
+
+    private final EventOffsetTracker tracker = new EventOffsetTracker();
+    private final List<Long> acknowledged = new ArrayList<>();
+
+    @Test
+    void acknowledgesRecordsCompletedInOrder() {
+        Runnable first = track(0, 10);
+        Runnable second = track(0, 11);
+
+        first.run();
+        second.run();
+
+        assertThat(acknowledged).containsExactly(10L, 11L);
+    }
+
+    @Test
+    void outOfOrderCompletionWaitsForEveryEarlierRecord() {
+        Runnable first = track(0, 10);
+        Runnable second = track(0, 11);
+        Runnable third = track(0, 12);
+
+        third.run();
+        second.run();
+        assertThat(acknowledged).isEmpty();
+
+        first.run();
+        // Only the highest contiguous offset: committing it covers the earlier ones
+        assertThat(acknowledged).containsExactly(12L);
+    }
+
+    @Test
+    void gapKeepsLaterRecordsUnacknowledged() {
+        Runnable first = track(0, 10);
+        Runnable second = track(0, 11);
+        Runnable third = track(0, 12);
+
+        first.run();
+        third.run();
+        assertThat(acknowledged).containsExactly(10L);
+
+        second.run();
+        assertThat(acknowledged).containsExactly(10L, 12L);
+    }
+
+    @Test
+    void doneIsIdempotent() {
+        Runnable first = track(0, 10);
+        Runnable second = track(0, 11);
+
+        first.run();
+        first.run();
+        second.run();
+        second.run();
+
+        assertThat(acknowledged).containsExactly(10L, 11L);
+    }
+
+    @Test
+    void partitionsAreTrackedIndependently() {
+        Runnable slow = track(0, 10);
+        Runnable fast = track(1, 20);
+
+        fast.run();
+        assertThat(acknowledged).containsExactly(20L);
+
+        slow.run();
+        assertThat(acknowledged).containsExactly(20L, 10L);
+    }
+
+    @Test
+    void revokedPartitionIsNotAcknowledged() {
+        Runnable inFlight = track(0, 10);
+        Runnable other = track(1, 20);
+
+        tracker.onPartitionsRevokedBeforeCommit(null, List.of(new TopicPartition(TOPIC, 0)));
+        inFlight.run();
+        other.run();
+
+        assertThat(acknowledged).containsExactly(20L);
+    }
+
+    @Test
+    void lostPartitionIsNotAcknowledged() {
+        Runnable first = track(0, 10);
+        Runnable second = track(0, 11);
+
+        first.run();
+        tracker.onPartitionsLost(null, List.of(new TopicPartition(TOPIC, 0)));
+        second.run();
+
+        assertThat(acknowledged).containsExactly(10L);
+    }
+
+    @Test
+    void reassignedPartitionStartsOver() {
+        Runnable stale = track(0, 10);
+        tracker.onPartitionsRevokedBeforeCommit(null, List.of(new TopicPartition(TOPIC, 0)));
+
+        // Redelivered to this consumer after the rebalance
+        Runnable redelivered = track(0, 10);
+        redelivered.run();
+        stale.run();
+
+        assertThat(acknowledged).containsExactly(10L);
+    }
+
+    private Runnable track(int partition, long offset) {
+        Acknowledgment acknowledgment = () -> acknowledged.add(offset);
+        return tracker.track(TOPIC, partition, acknowledgment);
+    }
+}